@@ -0,0 +1,31 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks variando o número de threads concorrentes de 1 até N (em potências de 2),
+ * o que a anotação @Threads não permite parametrizar.
+ *
+ * Uso: java -cp target/benchmarks.jar benchmark.ExecutorBenchmarks [N] [regex-dos-benchmarks]
+ */
+public class ExecutorBenchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        String filtro = args.length > 1 ? args[1] : GerenciadorSincronizacaoBenchmark.class.getSimpleName();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ChainedOptionsBuilder opcoes = new OptionsBuilder()
+                    .include(filtro)
+                    .threads(threads)
+                    .result("jmh-" + threads + "-threads.json")
+                    .resultFormat(ResultFormatType.JSON);
+            new Runner(opcoes.build()).run();
+        }
+    }
+}
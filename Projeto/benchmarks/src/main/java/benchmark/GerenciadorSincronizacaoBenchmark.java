@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Malha;
+import model.sincronizacao.EstrategiaEspera;
+import model.sincronizacao.EstrategiaSincronizacao;
+import model.sincronizacao.GerenciadorAdmissaoCruzamento;
+import model.sincronizacao.GerenciadorSincronizacao;
+import model.sincronizacao.ModoReserva;
+
+/**
+ * Mede o custo das operações dos gerenciadores de sincronização, que estão no caminho de todo
+ * movimento de veículo. Todas as threads compartilham o mesmo gerenciador e escolhem células da
+ * mesma malha, então a disputa cresce com o número de threads (-t N, ou ExecutorBenchmarks).
+ * Na malha sintética há poucas células e a disputa é alta; nas malhas reais ela é diluída.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GerenciadorSincronizacaoBenchmark {
+
+    @Param({ "SEMAFORO", "MONITOR", "ATOMICO" })
+    public String estrategia;
+
+    /** Espera do adquirir bloqueante; só afeta a estratégia ATOMICO. */
+    @Param({ "ESTACIONAR" })
+    public String espera;
+
+    @Param({ Malhas.SINTETICA, "malha-exemplo-2", "malha-exemplo-3" })
+    public String malha;
+
+    /** AGLOMERADO reserva os caminhos com a máscara do cruzamento (GerenciadorAdmissaoCruzamento). */
+    @Param({ "TENTATIVA", "AGLOMERADO" })
+    public String reserva;
+
+    private GerenciadorSincronizacao gerenciador;
+    private int[] celulas;
+    private List<int[]> caminhos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Malha m = Malhas.carregar(malha);
+        gerenciador = EstrategiaSincronizacao.porNome(estrategia).criar(m, EstrategiaEspera.porNome(espera));
+        if (ModoReserva.porNome(reserva) == ModoReserva.AGLOMERADO) {
+            GerenciadorAdmissaoCruzamento admissao = new GerenciadorAdmissaoCruzamento(gerenciador, m);
+            admissao.setAtivo(true);
+            gerenciador = admissao;
+        }
+        celulas = Malhas.celulasDeVia(m);
+        caminhos = Malhas.caminhosDeCruzamento(m, 256);
+    }
+
+    private static final AtomicInteger PROXIMO_ID = new AtomicInteger();
+
+    /**
+     * Posição de cada thread nas tabelas de células e caminhos, com início aleatório
+     * para que as threads não andem sempre juntas. Cada thread age como um veículo com id próprio.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int id;
+        int celula;
+        int caminho;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            id = PROXIMO_ID.getAndIncrement();
+            celula = ThreadLocalRandom.current().nextInt(1 << 16);
+            caminho = ThreadLocalRandom.current().nextInt(1 << 16);
+        }
+    }
+
+    @Benchmark
+    public boolean tentarAdquirirELiberar(Cursor cursor) {
+        int c = celulas[cursor.celula++ % celulas.length];
+        if (gerenciador.tentarAdquirir(c, cursor.id)) {
+            gerenciador.liberar(c, cursor.id);
+            return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public void adquirirELiberar(Cursor cursor) throws InterruptedException {
+        int c = celulas[cursor.celula++ % celulas.length];
+        gerenciador.adquirir(c, cursor.id);
+        gerenciador.liberar(c, cursor.id);
+    }
+
+    @Benchmark
+    public boolean tentarAdquirirCaminhoELiberar(Cursor cursor) {
+        int[] caminho = caminhos.get(cursor.caminho++ % caminhos.size());
+        if (gerenciador.tentarAdquirirCaminho(caminho, 0, caminho.length, cursor.id)) {
+            gerenciador.liberarCaminho(caminho, 0, caminho.length, cursor.id);
+            return true;
+        }
+        return false;
+    }
+}
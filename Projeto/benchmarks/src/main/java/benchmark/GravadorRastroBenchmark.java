@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.rastro.GravadorRastro;
+
+/**
+ * Mede o custo que a gravação do rastro acrescenta a cada passo de um veículo
+ * (GravadorRastro.registrar), incluindo as trocas de buffer com a thread do gravador. Rode com
+ * -t N para ver a disputa entre N veículos pela trava do buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GravadorRastroBenchmark {
+
+    private Path arquivo;
+    private GravadorRastro gravador;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        arquivo = Files.createTempFile("rastro", ".bin");
+        gravador = GravadorRastro.abrir(arquivo, 100, 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws IOException, InterruptedException {
+        gravador.fechar();
+        Files.deleteIfExists(arquivo);
+    }
+
+    @State(Scope.Thread)
+    public static class Veiculo {
+        int id = (int) Thread.currentThread().getId();
+        int celula;
+    }
+
+    @Benchmark
+    public void registrar(Veiculo v) {
+        int de = v.celula;
+        v.celula = (de + 1) % 10_000;
+        gravador.registrar(v.id, de, v.celula, 0);
+    }
+}
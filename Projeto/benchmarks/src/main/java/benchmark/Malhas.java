@@ -0,0 +1,111 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import model.Malha;
+import model.ObservadorVeiculo;
+import model.Veiculo;
+import util.LeitorMalha;
+
+/**
+ * Carrega as malhas usadas nos benchmarks.
+ * "sintetica" é um único cruzamento de duas vias de mão dupla (alta disputa por poucas células);
+ * os demais nomes são arquivos de Projeto/Malhas.
+ */
+final class Malhas {
+
+    static final String SINTETICA = "sintetica";
+
+    private static final ObservadorVeiculo SEM_OBSERVADOR = new ObservadorVeiculo() {
+        @Override
+        public void aoMover(Veiculo veiculo) {
+        }
+
+        @Override
+        public void aoFinalizar(Veiculo veiculo) {
+        }
+    };
+
+    private Malhas() {
+    }
+
+    static Malha carregar(String nome) {
+        Path arquivo = SINTETICA.equals(nome) ? gerarSintetica()
+                : Paths.get(System.getProperty("malhas.dir", "../Malhas"), nome + ".txt");
+        Malha malha = LeitorMalha.lerArquivo(arquivo.toString());
+        if (malha == null) {
+            throw new IllegalStateException("Não foi possível ler a malha " + arquivo.toAbsolutePath());
+        }
+        return malha;
+    }
+
+    /**
+     * Todas as células de via (tipos 1 a 12) da malha.
+     */
+    static int[] celulasDeVia(Malha malha) {
+        return IntStream.range(0, malha.getTotalCelulas()).filter(c -> malha.getTipo(c) > 0).toArray();
+    }
+
+    /**
+     * Sorteia caminhos de travessia de cruzamento com as mesmas regras do Veiculo,
+     * a partir de cada célula de via que desemboca num cruzamento.
+     */
+    static List<int[]> caminhosDeCruzamento(Malha malha, int quantidade) {
+        List<Veiculo> aproximacoes = new ArrayList<>();
+        for (int c : celulasDeVia(malha)) {
+            int tipo = malha.getTipo(c);
+            if (tipo >= 1 && tipo <= 4) {
+                Veiculo v = new Veiculo(c, malha, SEM_OBSERVADOR, null);
+                int proxima = v.calcularProximaCelula();
+                if (proxima != Malha.SEM_CELULA && malha.getTipo(proxima) >= 5) {
+                    aproximacoes.add(v);
+                }
+            }
+        }
+        List<int[]> caminhos = new ArrayList<>();
+        for (int i = 0; i < quantidade && !aproximacoes.isEmpty(); i++) {
+            Veiculo v = aproximacoes.get(i % aproximacoes.size());
+            caminhos.add(v.planejarCaminhoCompleto(v.calcularProximaCelula()));
+        }
+        return caminhos;
+    }
+
+    private static Path gerarSintetica() {
+        int[][] grid = new int[9][9];
+        for (int j = 0; j < 9; j++) {
+            grid[4][j] = 4;
+            grid[5][j] = 2;
+        }
+        for (int i = 0; i < 9; i++) {
+            grid[i][3] = 3;
+            grid[i][4] = 1;
+        }
+        grid[4][3] = 12;
+        grid[4][4] = 10;
+        grid[5][3] = 11;
+        grid[5][4] = 9;
+
+        StringBuilder sb = new StringBuilder("9\n9\n");
+        for (int[] linha : grid) {
+            for (int j = 0; j < linha.length; j++) {
+                sb.append(j == 0 ? "" : "\t").append(linha[j]);
+            }
+            sb.append('\n');
+        }
+        try {
+            Path arquivo = Files.createTempFile("malha-sintetica", ".txt");
+            Files.writeString(arquivo, sb);
+            arquivo.toFile().deleteOnExit();
+            return arquivo;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.MotorParticionado;
+import model.Malha;
+import util.GeradorMalha;
+
+/**
+ * Mede a escala do MotorParticionado com o número de partições: cada invocação simula
+ * DURACAO_MS numa malha gerada de 400x400, e o contador "passos" dá os passos de veículo por
+ * segundo de tempo real. Com P partições o ideal é P vezes os passos/s de uma partição, até o
+ * número de núcleos da máquina.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MotorParticionadoBenchmark {
+
+    private static final int VEICULOS = 4000;
+    private static final long INTERVALO_MS = 10;
+    private static final long DURACAO_MS = 60_000;
+
+    @Param({ "1", "2", "4", "8" })
+    public int particoes;
+
+    private Malha malha;
+
+    /** Passos de veículo simulados, reportados pelo JMH como taxa por segundo. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Passos {
+        public long passos;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        malha = new GeradorMalha(400, 400, 8, 0.5, 0.0, 42).criarMalha();
+    }
+
+    @Benchmark
+    public long simular(Passos contador) {
+        MotorParticionado motor = new MotorParticionado(malha, VEICULOS, INTERVALO_MS, 42, particoes);
+        motor.executar(DURACAO_MS);
+        long passos = motor.getMetricas().getPassos();
+        contador.passos += passos;
+        return passos;
+    }
+}
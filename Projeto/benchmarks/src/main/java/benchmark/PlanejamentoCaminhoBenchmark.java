@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Malha;
+import model.Veiculo;
+
+/**
+ * Mede o custo de decidir o caminho ao chegar num cruzamento (Veiculo.planejarCaminho),
+ * o ponto de decisão mais frequente depois do próprio passo. Use com -prof gc para ver a alocação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanejamentoCaminhoBenchmark {
+
+    @Param({ Malhas.SINTETICA, "malha-exemplo-2", "malha-exemplo-3" })
+    public String malha;
+
+    private Veiculo[] aproximacoes;
+    private int[] entradas;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Malha m = Malhas.carregar(malha);
+        List<Veiculo> veiculos = new ArrayList<>();
+        for (int c : Malhas.celulasDeVia(m)) {
+            int tipo = m.getTipo(c);
+            if (tipo >= 1 && tipo <= 4) {
+                Veiculo v = new Veiculo(c, m, null, null);
+                int entrada = v.calcularProximaCelula();
+                if (entrada != Malha.SEM_CELULA && m.getTipo(entrada) >= 5) {
+                    veiculos.add(v);
+                }
+            }
+        }
+        aproximacoes = veiculos.toArray(new Veiculo[0]);
+        entradas = new int[aproximacoes.length];
+        for (int i = 0; i < aproximacoes.length; i++) {
+            entradas[i] = aproximacoes[i].calcularProximaCelula();
+        }
+    }
+
+    @Benchmark
+    public int planejarCaminho() {
+        int i = proxima++ % aproximacoes.length;
+        return aproximacoes[i].planejarCaminho(entradas[i]);
+    }
+}
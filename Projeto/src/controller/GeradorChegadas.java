@@ -0,0 +1,323 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import model.EscalaTempo;
+import model.PerfilDemanda;
+import model.ProcessoChegada;
+
+/**
+ * Gera as chegadas de veículos em cada ponto de entrada e insere-os assim que a entrada fica
+ * livre, em vez de acordar a cada intervalo e testar todas as entradas.
+ *
+ * Cada entrada tem seu processo de chegada (ProcessoChegada) e uma fila de veículos que já
+ * chegaram mas ainda não entraram, de até MAXIMO_FILA (as chegadas além disso são descartadas).
+ * A thread dorme até a próxima chegada, ou até ser acordada por entradaLiberada (chamado quando
+ * o gerenciador libera uma célula de entrada) ou vagaLiberada (quando um veículo sai da malha).
+ *
+ * A entrada é reivindicada com um CAS antes de o veículo ser criado e só volta a ficar livre
+ * quando o veículo a libera no gerenciador (ou termina sem tê-la ocupado), de modo que dois
+ * veículos nunca são inseridos na mesma entrada, ao contrário do antigo teste isOcupado seguido
+ * da criação.
+ *
+ * Com um PerfilDemanda, as entradas que têm taxas no perfil usam a taxa do instante da chegada
+ * (contado a partir do início da thread) em vez do intervalo padrão, e ficam sem chegadas fora
+ * dos trechos do perfil.
+ *
+ * Com uma EscalaTempo, a agenda e o perfil seguem o relógio simulado, e as esperas são convertidas
+ * para tempo real (no máximo ESPERA_MAXIMA_NANOS, para seguir uma mudança de escala). Na velocidade
+ * máxima não há agenda: cada entrada livre recebe um veículo assim que houver vaga, como se sempre
+ * houvesse alguém esperando.
+ */
+public class GeradorChegadas implements Runnable {
+
+    public static final int MAXIMO_FILA = 32;
+    /** Maior espera de uma vez, em tempo real, antes de reler a escala. */
+    private static final long ESPERA_MAXIMA_NANOS = 100_000_000L;
+
+    private final int[] entradas;
+    private final BitSet ehEntrada;
+    private final ProcessoChegada[] processos;
+    private final IntConsumer insercao;
+    private final IntSupplier qtdAtivos;
+    private final IntSupplier qtdMaximaVeiculos;
+    private final LongSupplier intervaloMedioMs;
+
+    /** 1 se a entrada está livre; só esta thread passa de 1 para 0. */
+    private final AtomicIntegerArray livres;
+    // Estado só usado pela thread do gerador.
+    private final int[] fila;
+    private final BitSet comFila;
+    private final long[] proximaChegadaNanos;
+    private final long[] sequencia;
+    private final PriorityQueue<Integer> agenda;
+    private final Integer[] chaves;
+
+    private PerfilDemanda perfil;
+    private EscalaTempo escala;
+    private SplittableRandom random = new SplittableRandom();
+    private long inicioNanos;
+    private volatile Thread thread;
+    private volatile boolean inserindo = true;
+    private volatile long chegadas = 0;
+    private volatile long descartadas = 0;
+    private volatile long inseridos = 0;
+
+    /**
+     * @param entradas          células de entrada da malha.
+     * @param insercao          cria e inicia o veículo na célula recebida; chamado nesta thread.
+     * @param qtdAtivos         veículos na malha agora.
+     * @param qtdMaximaVeiculos consultado a cada inserção.
+     * @param intervaloMedioMs  intervalo médio entre chegadas em cada entrada, consultado a cada chegada.
+     */
+    public GeradorChegadas(int[] entradas, ProcessoChegada processo, IntConsumer insercao, IntSupplier qtdAtivos,
+            IntSupplier qtdMaximaVeiculos, LongSupplier intervaloMedioMs) {
+        this.entradas = entradas.clone();
+        Arrays.sort(this.entradas);
+        int n = this.entradas.length;
+        this.ehEntrada = new BitSet();
+        for (int celula : this.entradas) {
+            ehEntrada.set(celula);
+        }
+        this.processos = new ProcessoChegada[n];
+        Arrays.fill(processos, processo);
+        this.insercao = insercao;
+        this.qtdAtivos = qtdAtivos;
+        this.qtdMaximaVeiculos = qtdMaximaVeiculos;
+        this.intervaloMedioMs = intervaloMedioMs;
+
+        this.livres = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            livres.set(i, 1);
+        }
+        this.fila = new int[n];
+        this.comFila = new BitSet(n);
+        this.proximaChegadaNanos = new long[n];
+        this.sequencia = new long[n];
+        // As chaves são criadas uma vez, para a agenda não alocar um Integer a cada chegada.
+        this.chaves = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            chaves[i] = i;
+        }
+        this.agenda = new PriorityQueue<>(Math.max(1, n),
+                (a, b) -> Long.compare(proximaChegadaNanos[a], proximaChegadaNanos[b]));
+    }
+
+    /**
+     * Troca o processo de chegada de uma entrada; deve ser chamado antes de iniciar a thread.
+     */
+    public void setProcesso(int celulaEntrada, ProcessoChegada processo) {
+        int i = Arrays.binarySearch(entradas, celulaEntrada);
+        if (i < 0) {
+            throw new IllegalArgumentException("Célula " + celulaEntrada + " não é uma entrada");
+        }
+        processos[i] = processo;
+    }
+
+    /**
+     * Sequência usada pelos processos de chegada (ex.: um split() da semente da simulação); deve
+     * ser definida antes de iniciar a thread, que passa a ser a única a usá-la.
+     */
+    public void setAleatorio(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Define as taxas de chegada por entrada; deve ser chamado antes de iniciar a thread.
+     */
+    public void setPerfil(PerfilDemanda perfil) {
+        this.perfil = perfil;
+    }
+
+    /**
+     * Relógio da agenda e das chegadas (null para tempo real); deve ser definida antes de iniciar a thread.
+     */
+    public void setEscalaTempo(EscalaTempo escala) {
+        this.escala = escala;
+    }
+
+    /**
+     * Para de gerar chegadas; os veículos já na fila também não entram mais.
+     */
+    public void encerrarInsercao() {
+        inserindo = false;
+    }
+
+    /**
+     * Avisa que uma célula foi liberada no gerenciador, ou que o veículo inserido nela terminou
+     * sem chegar a ocupá-la; ignora as que não são entrada. Pode ser chamado de qualquer thread.
+     */
+    public void entradaLiberada(int celula) {
+        if (!ehEntrada.get(celula))
+            return;
+        int i = Arrays.binarySearch(entradas, celula);
+        livres.set(i, 1);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Avisa que um veículo deixou a malha, abrindo vaga para outro.
+     */
+    public void vagaLiberada() {
+        LockSupport.unpark(thread);
+    }
+
+    public long getChegadas() {
+        return chegadas;
+    }
+
+    public long getDescartadas() {
+        return descartadas;
+    }
+
+    public long getInseridos() {
+        return inseridos;
+    }
+
+    /**
+     * @return veículos que chegaram e ainda esperam a entrada ficar livre.
+     */
+    public long getNaFila() {
+        return chegadas - descartadas - inseridos;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        long agora = agoraNanos();
+        inicioNanos = agora;
+        reagendar(agora);
+        boolean saturado = false;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (escala != null && escala.isVelocidadeMaxima()) {
+                    saturado = true;
+                    if (inserindo) {
+                        inserirSaturado();
+                    }
+                    // Acordada por entradaLiberada ou vagaLiberada.
+                    LockSupport.parkNanos(this, ESPERA_MAXIMA_NANOS);
+                    continue;
+                }
+                agora = agoraNanos();
+                if (saturado) {
+                    // Saiu da velocidade máxima: a agenda recomeça de agora, sem acumular chegadas.
+                    saturado = false;
+                    reagendar(agora);
+                }
+                while (!agenda.isEmpty() && proximaChegadaNanos[agenda.peek()] <= agora) {
+                    Integer chave = agenda.poll();
+                    int i = chave;
+                    long media = intervaloMedioNanos(i, proximaChegadaNanos[i]);
+                    if (media > 0) {
+                        if (inserindo) {
+                            registrarChegada(i);
+                        }
+                        // Agendada a partir da chegada anterior, não de agora: atrasos não reduzem a taxa.
+                        proximaChegadaNanos[i] += processos[i].proximoIntervaloNanos(media, random, sequencia[i]++);
+                        agenda.add(chave);
+                    } else {
+                        // Taxa zero no perfil: dorme até o próximo trecho da entrada, se houver.
+                        long inicioMs = perfil.getProximoInicioMs(entradas[i],
+                                (proximaChegadaNanos[i] - inicioNanos) / 1_000_000);
+                        if (inicioMs >= 0) {
+                            proximaChegadaNanos[i] = inicioNanos + inicioMs * 1_000_000L;
+                            agenda.add(chave);
+                        }
+                    }
+                }
+
+                if (inserindo) {
+                    inserirProntos();
+                }
+
+                long espera = agenda.isEmpty() ? Long.MAX_VALUE
+                        : proximaChegadaNanos[agenda.peek()] - agoraNanos();
+                if (espera > 0) {
+                    LockSupport.parkNanos(this, escala != null
+                            ? Math.min(escala.paraNanosReais(espera), ESPERA_MAXIMA_NANOS)
+                            : espera);
+                }
+            } catch (Exception e) {
+                System.err.println("Erro no gerador de chegadas: " + e.getMessage());
+                e.printStackTrace();
+                LockSupport.parkNanos(this, 1_000_000_000L);
+            }
+        }
+        System.out.println("Thread gerenciadora finalizada.");
+    }
+
+    private long agoraNanos() {
+        return escala != null ? escala.agoraNanos() : System.nanoTime();
+    }
+
+    private void reagendar(long agora) {
+        agenda.clear();
+        for (int i = 0; i < entradas.length; i++) {
+            proximaChegadaNanos[i] = agora;
+            agenda.add(chaves[i]);
+        }
+    }
+
+    /**
+     * Velocidade máxima: insere em toda entrada livre (com taxa no perfil, se houver) enquanto
+     * houver vaga. Cada inserção conta como uma chegada.
+     */
+    private void inserirSaturado() {
+        long agora = agoraNanos();
+        for (int i = 0; i < entradas.length; i++) {
+            if (qtdAtivos.getAsInt() >= qtdMaximaVeiculos.getAsInt())
+                return;
+            if (intervaloMedioNanos(i, agora) > 0 && livres.compareAndSet(i, 1, 0)) {
+                chegadas++;
+                inseridos++;
+                insercao.accept(entradas[i]);
+            }
+        }
+    }
+
+    /**
+     * @return intervalo médio entre chegadas na entrada, no instante indicado, ou 0 se a taxa do
+     *         perfil for zero.
+     */
+    private long intervaloMedioNanos(int i, long instanteNanos) {
+        if (perfil == null || !perfil.temTaxa(entradas[i])) {
+            return Math.max(1, intervaloMedioMs.getAsLong()) * 1_000_000L;
+        }
+        double taxa = perfil.getTaxaPorMinuto(entradas[i], (instanteNanos - inicioNanos) / 1_000_000);
+        return taxa > 0 ? Math.max(1, (long) (60_000_000_000L / taxa)) : 0;
+    }
+
+    private void registrarChegada(int i) {
+        chegadas++;
+        if (fila[i] >= MAXIMO_FILA) {
+            descartadas++;
+            return;
+        }
+        fila[i]++;
+        comFila.set(i);
+    }
+
+    private void inserirProntos() {
+        for (int i = comFila.nextSetBit(0); i >= 0; i = comFila.nextSetBit(i + 1)) {
+            if (qtdAtivos.getAsInt() >= qtdMaximaVeiculos.getAsInt())
+                return;
+            if (livres.compareAndSet(i, 1, 0)) {
+                if (--fila[i] == 0) {
+                    comFila.clear(i);
+                }
+                inseridos++;
+                insercao.accept(entradas[i]);
+            }
+        }
+    }
+}
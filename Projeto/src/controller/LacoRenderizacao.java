@@ -0,0 +1,101 @@
+package controller;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import model.QuadroSimulacao;
+
+/**
+ * Thread que, a uma taxa fixa de quadros por segundo, captura as posições dos veículos e entrega o
+ * quadro a quem desenha. Os veículos não avisam mais a interface a cada passo: vários passos entre
+ * dois quadros viram um único redesenho, e quadros sem nenhuma mudança nem são entregues.
+ */
+public class LacoRenderizacao implements Runnable {
+
+    public static final int QUADROS_POR_SEGUNDO_PADRAO = 30;
+
+    private final Supplier<QuadroSimulacao> fonte;
+    private final Consumer<QuadroSimulacao> destino;
+    private final long intervaloNanos;
+    private Thread thread;
+    private volatile boolean ativo = false;
+    private volatile long quadrosPublicados = 0;
+    private volatile long quadrosIgnorados = 0;
+
+    /**
+     * @param fonte   chamada na thread de renderização a cada quadro (ex.: Simulacao::capturarQuadro).
+     * @param destino recebe só os quadros que mudaram; também é chamado na thread de renderização,
+     *                então deve apenas guardar o quadro e pedir um repaint.
+     */
+    public LacoRenderizacao(Supplier<QuadroSimulacao> fonte, Consumer<QuadroSimulacao> destino,
+            int quadrosPorSegundo) {
+        if (quadrosPorSegundo <= 0) {
+            throw new IllegalArgumentException("Quadros por segundo deve ser positivo: " + quadrosPorSegundo);
+        }
+        this.fonte = fonte;
+        this.destino = destino;
+        this.intervaloNanos = 1_000_000_000L / quadrosPorSegundo;
+    }
+
+    public void iniciar() {
+        if (ativo)
+            return;
+        ativo = true;
+        thread = new Thread(this, "renderizacao");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Para a thread e espera ela terminar, para que nenhum quadro seja entregue depois disso.
+     */
+    public void encerrar() {
+        ativo = false;
+        if (thread == null)
+            return;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getQuadrosPublicados() {
+        return quadrosPublicados;
+    }
+
+    public long getQuadrosIgnorados() {
+        return quadrosIgnorados;
+    }
+
+    @Override
+    public void run() {
+        QuadroSimulacao anterior = null;
+        long proximo = System.nanoTime();
+        while (ativo) {
+            QuadroSimulacao atual = fonte.get();
+            if (atual.mesmasPosicoes(anterior)) {
+                quadrosIgnorados++;
+            } else {
+                destino.accept(atual);
+                anterior = atual;
+                quadrosPublicados++;
+            }
+
+            // Taxa fixa: o próximo quadro é agendado a partir do anterior, não do fim deste.
+            proximo += intervaloNanos;
+            long espera = proximo - System.nanoTime();
+            if (espera <= 0) {
+                proximo = System.nanoTime();
+                continue;
+            }
+            try {
+                Thread.sleep(espera / 1_000_000, (int) (espera % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import model.Malha;
+import model.ObservadorVeiculo;
+import model.Veiculo;
+import model.metricas.ColetorMetricas;
+
+/**
+ * Motor de eventos discretos: avança todos os veículos em tempo simulado, numa única thread,
+ * em vez de uma thread por veículo dormindo em tempo real.
+ *
+ * As regras de movimento são as mesmas do Veiculo (calcularProximaCelula,
+ * planejarCaminho). A ocupação das células segue o comportamento dos gerenciadores:
+ * - via comum: o veículo espera a célula livre, em fila FIFO (como o semáforo/lock justo);
+ * - cruzamento: reserva o caminho inteiro ou tenta de novo após {@code velocidade} ms.
+ * Cada passo custa {@code velocidade} ms simulados, e a inserção ocorre a cada {@code intervalo} ms,
+ * de modo que as métricas são comparáveis com as dos modos com threads.
+ *
+ * Eventos no mesmo instante seguem uma ordem canônica: a inserção primeiro, depois os veículos pelo
+ * número de inserção. O MotorParticionado usa a mesma ordem e por isso chega ao mesmo resultado.
+ */
+public class MotorEventosDiscretos {
+
+    private static final int EVENTO_INSERCAO = 0;
+    private static final int EVENTO_PASSO = 1;
+
+    private final Malha malha;
+    private final int qtdMaximaVeiculos;
+    private final long intervaloInsercaoMs;
+    private final ColetorMetricas metricas;
+    /** Embaralha as entradas e dá a cada veículo a sua sequência (split). */
+    private final SplittableRandom random;
+
+    /** Estado de ocupação: veículo que ocupa cada célula, ou null. */
+    private final int[] celulasDeEntrada;
+    private final EstadoVeiculo[] ocupantes;
+    /** Veículos esperando cada célula de via comum, na ordem de chegada. */
+    private final ArrayDeque<EstadoVeiculo>[] esperando;
+    private final PriorityQueue<Evento> eventos = new PriorityQueue<>();
+    private final ObservadorVeiculo observadorNulo = new ObservadorVeiculo() {
+        @Override
+        public void aoMover(Veiculo veiculo) {
+        }
+
+        @Override
+        public void aoFinalizar(Veiculo veiculo) {
+        }
+    };
+
+    private long agoraMs = 0;
+    private long veiculosCriados = 0;
+    private int veiculosAtivos = 0;
+
+    @SuppressWarnings("unchecked")
+    public MotorEventosDiscretos(Malha malha, int qtdMaximaVeiculos, long intervaloInsercaoMs, long semente) {
+        this.malha = malha;
+        this.qtdMaximaVeiculos = qtdMaximaVeiculos;
+        this.intervaloInsercaoMs = Math.max(1, intervaloInsercaoMs);
+        this.metricas = new ColetorMetricas();
+        this.random = new SplittableRandom(semente);
+        int totalCelulas = malha.getTotalCelulas();
+        this.celulasDeEntrada = malha.getCelulasDeEntrada().clone();
+        this.ocupantes = new EstadoVeiculo[totalCelulas];
+        this.esperando = (ArrayDeque<EstadoVeiculo>[]) new ArrayDeque<?>[totalCelulas];
+    }
+
+    /**
+     * Executa a simulação até o instante simulado {@code duracaoMs}.
+     */
+    public void executar(long duracaoMs) {
+        agendar(0, EVENTO_INSERCAO, null);
+
+        while (!eventos.isEmpty()) {
+            Evento evento = eventos.poll();
+            if (evento.tempo > duracaoMs)
+                break;
+            agoraMs = evento.tempo;
+
+            if (evento.tipo == EVENTO_INSERCAO) {
+                inserirVeiculos();
+                agendar(agoraMs + intervaloInsercaoMs, EVENTO_INSERCAO, null);
+            } else {
+                executarPasso(evento.estado);
+            }
+        }
+        agoraMs = duracaoMs;
+    }
+
+    public ColetorMetricas getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * @return tempo simulado decorrido, em ms.
+     */
+    public long getAgoraMs() {
+        return agoraMs;
+    }
+
+    private void inserirVeiculos() {
+        if (veiculosAtivos >= qtdMaximaVeiculos)
+            return;
+
+        for (int i = celulasDeEntrada.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int aux = celulasDeEntrada[i];
+            celulasDeEntrada[i] = celulasDeEntrada[j];
+            celulasDeEntrada[j] = aux;
+        }
+        for (int celula : celulasDeEntrada) {
+            if (veiculosAtivos >= qtdMaximaVeiculos)
+                break;
+            if (ocupantes[celula] == null) {
+                Veiculo veiculo = new Veiculo(celula, malha, observadorNulo, null, random.split());
+                EstadoVeiculo estado = new EstadoVeiculo(veiculo, veiculosCriados++, agoraMs);
+                ocupantes[celula] = estado;
+                veiculosAtivos++;
+                metricas.registrarInsercao();
+                agendar(agoraMs, EVENTO_PASSO, estado);
+            }
+        }
+    }
+
+    private void executarPasso(EstadoVeiculo estado) {
+        Veiculo veiculo = estado.veiculo;
+        int velocidade = veiculo.getVelocidade();
+
+        // Atravessando um cruzamento já reservado: apenas avança para a próxima célula.
+        if (estado.tamanhoCaminho > 0) {
+            mover(estado, veiculo.getCelulaDoCaminho(estado.passoNoCaminho++));
+            if (estado.passoNoCaminho == estado.tamanhoCaminho) {
+                estado.tamanhoCaminho = 0;
+            }
+            agendar(agoraMs + velocidade, EVENTO_PASSO, estado);
+            return;
+        }
+
+        if (malha.isSaida(veiculo.getCelula())) {
+            finalizar(estado, true);
+            return;
+        }
+
+        int proximaCelula = veiculo.calcularProximaCelula();
+        if (proximaCelula == Malha.SEM_CELULA) {
+            finalizar(estado, false);
+            return;
+        }
+
+        if (malha.getTipo(proximaCelula) >= 5) {
+            int tamanho = veiculo.planejarCaminho(proximaCelula);
+            if (tamanho > 0 && caminhoLivre(veiculo, tamanho)) {
+                for (int i = 0; i < tamanho; i++) {
+                    ocupantes[veiculo.getCelulaDoCaminho(i)] = estado;
+                }
+                estado.tamanhoCaminho = tamanho;
+                estado.passoNoCaminho = 0;
+                executarPasso(estado);
+            } else {
+                agendar(agoraMs + velocidade, EVENTO_PASSO, estado);
+            }
+            return;
+        }
+
+        // A célula pode já ter sido entregue a este veículo por liberar(), enquanto ele esperava.
+        if (ocupantes[proximaCelula] == null || ocupantes[proximaCelula] == estado) {
+            ocupantes[proximaCelula] = estado;
+            mover(estado, proximaCelula);
+            agendar(agoraMs + velocidade, EVENTO_PASSO, estado);
+        } else {
+            // Bloqueia até a célula ser liberada, como no adquirir() dos gerenciadores.
+            if (esperando[proximaCelula] == null) {
+                esperando[proximaCelula] = new ArrayDeque<>();
+            }
+            esperando[proximaCelula].addLast(estado);
+        }
+    }
+
+    private boolean caminhoLivre(Veiculo veiculo, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (ocupantes[veiculo.getCelulaDoCaminho(i)] != null)
+                return false;
+        }
+        return true;
+    }
+
+    private void mover(EstadoVeiculo estado, int destino) {
+        int celulaAntiga = estado.veiculo.getCelula();
+        estado.veiculo.setCelula(destino);
+        metricas.registrarPasso();
+        liberar(celulaAntiga);
+    }
+
+    private void finalizar(EstadoVeiculo estado, boolean chegouNaSaida) {
+        liberar(estado.veiculo.getCelula());
+        veiculosAtivos--;
+        if (chegouNaSaida) {
+            metricas.registrarSaida((agoraMs - estado.instanteEntradaMs) * 1_000_000L);
+        } else {
+            metricas.registrarInterrupcao();
+        }
+    }
+
+    /**
+     * Libera a célula e entrega-a ao primeiro veículo da fila, se houver, que avança no mesmo instante.
+     * O avanço é agendado (em vez de feito aqui) para não encadear recursões em filas longas.
+     */
+    private void liberar(int i) {
+        ocupantes[i] = null;
+        ArrayDeque<EstadoVeiculo> fila = esperando[i];
+        if (fila != null && !fila.isEmpty()) {
+            EstadoVeiculo proximo = fila.pollFirst();
+            ocupantes[i] = proximo;
+            agendar(agoraMs, EVENTO_PASSO, proximo);
+        }
+    }
+
+    private void agendar(long tempo, int tipo, EstadoVeiculo estado) {
+        eventos.add(new Evento(tempo, tipo, estado));
+    }
+
+    private static final class EstadoVeiculo {
+        final Veiculo veiculo;
+        /** Ordem de inserção; desempata os eventos do mesmo instante. */
+        final long numero;
+        final long instanteEntradaMs;
+        /**
+         * Tamanho do caminho de cruzamento reservado (0 se nenhum), que fica no buffer do Veiculo;
+         * passoNoCaminho é a próxima célula a ocupar.
+         */
+        int tamanhoCaminho;
+        int passoNoCaminho;
+
+        EstadoVeiculo(Veiculo veiculo, long numero, long instanteEntradaMs) {
+            this.veiculo = veiculo;
+            this.numero = numero;
+            this.instanteEntradaMs = instanteEntradaMs;
+        }
+    }
+
+    /**
+     * Evento ordenado pelo instante simulado; no mesmo instante, a inserção vem antes e os passos
+     * seguem o número do veículo. Cada veículo tem no máximo um evento na fila, então a ordem é total.
+     */
+    private static final class Evento implements Comparable<Evento> {
+        final long tempo;
+        final int tipo;
+        final EstadoVeiculo estado;
+
+        Evento(long tempo, int tipo, EstadoVeiculo estado) {
+            this.tempo = tempo;
+            this.tipo = tipo;
+            this.estado = estado;
+        }
+
+        long chave() {
+            return estado == null ? -1 : estado.numero;
+        }
+
+        @Override
+        public int compareTo(Evento outro) {
+            int c = Long.compare(tempo, outro.tempo);
+            return c != 0 ? c : Long.compare(chave(), outro.chave());
+        }
+    }
+}
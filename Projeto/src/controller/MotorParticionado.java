@@ -0,0 +1,599 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.Malha;
+import model.ObservadorVeiculo;
+import model.TabelaRotas;
+import model.Veiculo;
+import model.metricas.ColetorMetricas;
+
+/**
+ * Versão paralela do MotorEventosDiscretos: a malha é dividida em faixas de linhas (partições), e
+ * cada partição tem sua fila de eventos, avançada por uma thread própria. O resultado é o mesmo
+ * do motor sequencial, qualquer que seja o número de partições.
+ *
+ * O tempo simulado anda em janelas de até {@code janelaMs}, que também terminam em cada instante
+ * de inserção. Dentro de uma janela cada thread executa, em ordem, os passos que só tocam células
+ * livres da sua faixa. Um passo que toca uma célula de outra partição ou uma célula congelada é
+ * adiado para o coordenador, e as células que ele toca ficam congeladas até o fim da janela.
+ * Quando todas as threads terminam a janela, elas se encontram numa barreira e o coordenador,
+ * sozinho, executa os passos adiados na ordem canônica, faz as inserções e libera as threads.
+ *
+ * Congelar uma célula congela também a célula de cada veículo na fila dela, e assim por diante:
+ * quando o coordenador libera a célula, a fila inteira pode andar no mesmo instante, e nenhum
+ * passo local posterior pode ter visto essas células. No início de cada janela ficam congeladas
+ * as células que um passo de outra partição pode tocar (ver marcarCompartilhadas). Assim cada
+ * célula é tocada ou só pela thread dona, ou só pelo coordenador depois de congelada, sempre na
+ * ordem do tempo, e a ordem canônica (tempo, depois número do veículo) é a do motor sequencial.
+ *
+ * Como todo passo custa pelo menos Veiculo.VELOCIDADE_MINIMA_MS, a janela não pode ser maior que
+ * isso: o passo seguinte de um veículo adiado sempre cai numa janela posterior.
+ */
+public class MotorParticionado {
+
+    /** Duração padrão de cada janela de tempo simulado, em ms. */
+    public static final long JANELA_PADRAO_MS = 100;
+
+    private final Malha malha;
+    private final int colunas;
+    private final int qtdMaximaVeiculos;
+    private final long intervaloInsercaoMs;
+    private final long janelaMs;
+    private final ColetorMetricas metricas;
+    /** Embaralha as entradas e dá a cada veículo a sua sequência (split). */
+    private final SplittableRandom random;
+
+    private final int[] celulasDeEntrada;
+    /** Partição dona de cada linha da malha. */
+    private final int[] particaoDaLinha;
+    private final Particao[] particoes;
+    /** Contexto do coordenador: executa os passos adiados e as inserções, com acesso à malha toda. */
+    private final Particao coordenador = new Particao(-1);
+    /** Células que um passo de outra partição pode tocar, congeladas no início de cada janela. */
+    private final int[] compartilhadas;
+
+    /**
+     * Estado de ocupação, compartilhado: dentro de uma janela cada célula só é escrita pela thread
+     * dona da sua linha; a barreira garante a visibilidade entre janelas.
+     */
+    private final EstadoVeiculo[] ocupantes;
+    private final ArrayDeque<EstadoVeiculo>[] esperando;
+    /** Janela em que cada célula foi congelada; escrito como ocupantes. */
+    private final int[] congelada;
+    private final AtomicInteger veiculosAtivos = new AtomicInteger();
+    private final ObservadorVeiculo observadorNulo = new ObservadorVeiculo() {
+        @Override
+        public void aoMover(Veiculo veiculo) {
+        }
+
+        @Override
+        public void aoFinalizar(Veiculo veiculo) {
+        }
+    };
+
+    // Estado do coordenador, alterado só na ação da barreira (ou antes de as threads começarem).
+    private final PriorityQueue<Evento> pendentes = new PriorityQueue<>();
+    private long duracaoMs;
+    private long inicioJanela;
+    private long fimJanela;
+    private long proximaInsercaoMs;
+    private long veiculosCriados = 0;
+    private int janelaAtual = 0;
+    private boolean executandoAdiados = false;
+    private long transferencias = 0;
+    private long janelas = 0;
+    private boolean terminado;
+    private volatile RuntimeException falha;
+
+    public MotorParticionado(Malha malha, int qtdMaximaVeiculos, long intervaloInsercaoMs, long semente,
+            int qtdParticoes) {
+        this(malha, qtdMaximaVeiculos, intervaloInsercaoMs, semente, qtdParticoes, JANELA_PADRAO_MS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public MotorParticionado(Malha malha, int qtdMaximaVeiculos, long intervaloInsercaoMs, long semente,
+            int qtdParticoes, long janelaMs) {
+        if (qtdParticoes <= 0) {
+            throw new IllegalArgumentException("Quantidade de partições deve ser positiva: " + qtdParticoes);
+        }
+        if (janelaMs <= 0 || janelaMs > Veiculo.VELOCIDADE_MINIMA_MS) {
+            throw new IllegalArgumentException("Janela deve estar entre 1 e " + Veiculo.VELOCIDADE_MINIMA_MS
+                    + " ms: " + janelaMs);
+        }
+        this.malha = malha;
+        this.colunas = malha.getColunas();
+        this.qtdMaximaVeiculos = qtdMaximaVeiculos;
+        this.intervaloInsercaoMs = Math.max(1, intervaloInsercaoMs);
+        this.janelaMs = janelaMs;
+        this.metricas = new ColetorMetricas();
+        this.random = new SplittableRandom(semente);
+        this.celulasDeEntrada = malha.getCelulasDeEntrada().clone();
+
+        // Mais partições que linhas deixaria faixas vazias.
+        int linhas = malha.getLinhas();
+        int n = Math.min(qtdParticoes, linhas);
+        this.particaoDaLinha = new int[linhas];
+        for (int linha = 0; linha < linhas; linha++) {
+            particaoDaLinha[linha] = (int) ((long) linha * n / linhas);
+        }
+        this.particoes = new Particao[n];
+        for (int i = 0; i < n; i++) {
+            particoes[i] = new Particao(i);
+        }
+
+        int totalCelulas = malha.getTotalCelulas();
+        this.ocupantes = new EstadoVeiculo[totalCelulas];
+        this.esperando = (ArrayDeque<EstadoVeiculo>[]) new ArrayDeque<?>[totalCelulas];
+        this.congelada = new int[totalCelulas];
+        this.compartilhadas = marcarCompartilhadas();
+    }
+
+    /**
+     * Executa a simulação até o instante simulado {@code duracaoMs}, com uma thread por partição.
+     */
+    public void executar(long duracaoMs) {
+        this.duracaoMs = duracaoMs;
+        inicioJanela = 0;
+        proximaInsercaoMs = 0;
+        terminado = false;
+        abrirJanela();
+
+        CyclicBarrier barreira = new CyclicBarrier(particoes.length, this::fecharJanela);
+        Thread[] threads = new Thread[particoes.length];
+        for (int i = 0; i < particoes.length; i++) {
+            Particao particao = particoes[i];
+            threads[i] = new Thread(() -> trabalhar(particao, barreira), "particao-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Thread t : threads) {
+                    t.interrupt();
+                }
+                return;
+            }
+        }
+        if (falha != null) {
+            throw falha;
+        }
+        coordenador.agoraMs = duracaoMs;
+    }
+
+    public ColetorMetricas getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * @return tempo simulado decorrido, em ms.
+     */
+    public long getAgoraMs() {
+        return coordenador.agoraMs;
+    }
+
+    public int getParticoes() {
+        return particoes.length;
+    }
+
+    /**
+     * @return passos executados pelo coordenador, por tocarem células de outra partição ou congeladas.
+     */
+    public long getTransferencias() {
+        return transferencias;
+    }
+
+    public long getJanelas() {
+        return janelas;
+    }
+
+    private void trabalhar(Particao particao, CyclicBarrier barreira) {
+        try {
+            // terminado e fimJanela só mudam na ação da barreira, antes de as threads serem liberadas.
+            while (!terminado) {
+                try {
+                    particao.processarAte(Math.min(fimJanela, duracaoMs + 1));
+                } catch (RuntimeException e) {
+                    // Chega na barreira mesmo assim, para as outras threads não ficarem presas nela.
+                    falha = e;
+                }
+                barreira.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BrokenBarrierException e) {
+            // Outra thread foi interrompida ou a ação da barreira falhou.
+        } catch (RuntimeException e) {
+            falha = e;
+        }
+    }
+
+    /**
+     * Ação da barreira, executada por uma única thread com todas as outras paradas: executa os
+     * passos adiados da janela que acabou e prepara a próxima.
+     */
+    private void fecharJanela() {
+        if (falha != null) {
+            terminado = true;
+            return;
+        }
+        janelas++;
+        for (Particao particao : particoes) {
+            pendentes.addAll(particao.adiados);
+            particao.adiados.clear();
+        }
+        // Os veículos que esses passos liberam das filas andam no mesmo instante e entram em pendentes.
+        executandoAdiados = true;
+        Evento evento;
+        while ((evento = pendentes.poll()) != null) {
+            coordenador.agoraMs = evento.tempo;
+            transferencias++;
+            executarPasso(evento.estado, coordenador);
+        }
+        executandoAdiados = false;
+
+        inicioJanela = fimJanela;
+        if (inicioJanela > duracaoMs) {
+            terminado = true;
+            return;
+        }
+        abrirJanela();
+    }
+
+    /**
+     * Faz a inserção do instante inicioJanela, se houver, escolhe o fim da janela e congela as
+     * células compartilhadas.
+     */
+    private void abrirJanela() {
+        janelaAtual++;
+        if (proximaInsercaoMs == inicioJanela) {
+            coordenador.agoraMs = inicioJanela;
+            inserirVeiculos();
+            proximaInsercaoMs += intervaloInsercaoMs;
+        }
+        fimJanela = inicioJanela + janelaMs;
+        if (proximaInsercaoMs <= duracaoMs) {
+            fimJanela = Math.min(fimJanela, proximaInsercaoMs);
+        }
+        for (int celula : compartilhadas) {
+            congelar(celula, coordenador);
+        }
+    }
+
+    private void inserirVeiculos() {
+        if (veiculosAtivos.get() >= qtdMaximaVeiculos)
+            return;
+
+        for (int i = celulasDeEntrada.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int aux = celulasDeEntrada[i];
+            celulasDeEntrada[i] = celulasDeEntrada[j];
+            celulasDeEntrada[j] = aux;
+        }
+        for (int celula : celulasDeEntrada) {
+            if (veiculosAtivos.get() >= qtdMaximaVeiculos)
+                break;
+            if (ocupantes[celula] == null) {
+                EstadoVeiculo estado = new EstadoVeiculo(new Veiculo(celula, malha, observadorNulo, null, random.split()),
+                        veiculosCriados++, coordenador.agoraMs);
+                ocupantes[celula] = estado;
+                veiculosAtivos.incrementAndGet();
+                metricas.registrarInsercao();
+                agendar(coordenador.agoraMs, estado, coordenador);
+            }
+        }
+    }
+
+    /**
+     * Mesmo passo do MotorEventosDiscretos. Nas partições só é chamado depois de tocarLivres
+     * confirmar que todas as células que ele pode tocar são da faixa e não estão congeladas.
+     */
+    private void executarPasso(EstadoVeiculo estado, Particao particao) {
+        Veiculo veiculo = estado.veiculo;
+        int velocidade = veiculo.getVelocidade();
+
+        // Atravessando um cruzamento já reservado: apenas avança para a próxima célula.
+        if (estado.tamanhoCaminho > 0) {
+            mover(estado, veiculo.getCelulaDoCaminho(estado.passoNoCaminho++), particao);
+            if (estado.passoNoCaminho == estado.tamanhoCaminho) {
+                estado.tamanhoCaminho = 0;
+            }
+            agendar(particao.agoraMs + velocidade, estado, particao);
+            return;
+        }
+
+        if (malha.isSaida(veiculo.getCelula())) {
+            finalizar(estado, true, particao);
+            return;
+        }
+
+        int proximaCelula = veiculo.calcularProximaCelula();
+        if (proximaCelula == Malha.SEM_CELULA) {
+            finalizar(estado, false, particao);
+            return;
+        }
+
+        if (malha.getTipo(proximaCelula) >= 5) {
+            int tamanho = veiculo.planejarCaminho(proximaCelula);
+            if (tamanho > 0 && caminhoLivre(veiculo, tamanho)) {
+                for (int i = 0; i < tamanho; i++) {
+                    ocupantes[veiculo.getCelulaDoCaminho(i)] = estado;
+                }
+                estado.tamanhoCaminho = tamanho;
+                estado.passoNoCaminho = 0;
+                executarPasso(estado, particao);
+            } else {
+                agendar(particao.agoraMs + velocidade, estado, particao);
+            }
+            return;
+        }
+
+        // A célula pode já ter sido entregue a este veículo por liberar(), enquanto ele esperava.
+        if (ocupantes[proximaCelula] == null || ocupantes[proximaCelula] == estado) {
+            ocupantes[proximaCelula] = estado;
+            mover(estado, proximaCelula, particao);
+            agendar(particao.agoraMs + velocidade, estado, particao);
+        } else {
+            if (esperando[proximaCelula] == null) {
+                esperando[proximaCelula] = new ArrayDeque<>();
+            }
+            esperando[proximaCelula].addLast(estado);
+        }
+    }
+
+    /**
+     * Percorre as células que o próximo passo do veículo pode tocar: a atual e a próxima, ou, antes
+     * de um cruzamento, as de todas as rotas dele. Não sorteia nada, para que a sequência do veículo
+     * seja consumida só quando o passo de fato executa.
+     *
+     * @param congelar false para só verificar; true para congelar as células da faixa.
+     * @return com congelar false, se todas são da faixa e não estão congeladas.
+     */
+    private boolean tocarLivres(EstadoVeiculo estado, Particao particao, boolean congelar) {
+        Veiculo veiculo = estado.veiculo;
+        if (!tocar(veiculo.getCelula(), particao, congelar))
+            return false;
+        if (estado.tamanhoCaminho > 0)
+            return tocar(veiculo.getCelulaDoCaminho(estado.passoNoCaminho), particao, congelar);
+        if (malha.isSaida(veiculo.getCelula()))
+            return true;
+        int proximaCelula = veiculo.calcularProximaCelula();
+        if (proximaCelula == Malha.SEM_CELULA)
+            return true;
+        if (malha.getTipo(proximaCelula) < 5)
+            return tocar(proximaCelula, particao, congelar);
+
+        TabelaRotas rotas = malha.getRotas();
+        int[] celulas = rotas.getCelulas();
+        int quantidade = rotas.getQuantidadeRotas(proximaCelula);
+        for (int r = 0; r < quantidade; r++) {
+            int rota = rotas.getRota(proximaCelula, r);
+            for (int i = rotas.getInicio(rota); i < rotas.getFim(rota); i++) {
+                if (!tocar(celulas[i], particao, congelar))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tocar(int celula, Particao particao, boolean congelar) {
+        boolean daFaixa = particaoDaLinha[celula / colunas] == particao.indice;
+        if (congelar) {
+            if (daFaixa) {
+                congelar(celula, particao);
+            }
+            return true;
+        }
+        return daFaixa && congelada[celula] != janelaAtual;
+    }
+
+    /**
+     * Congela a célula e, em cadeia, a célula de cada veículo que espera por ela. A thread de uma
+     * partição só chega a células da própria faixa: a fila de uma célula não compartilhada só tem
+     * veículos da mesma faixa, e as compartilhadas já estão congeladas.
+     */
+    private void congelar(int celula, Particao particao) {
+        int[] pilha = particao.pilha;
+        int topo = 0;
+        pilha[topo++] = celula;
+        while (topo > 0) {
+            int c = pilha[--topo];
+            if (congelada[c] == janelaAtual)
+                continue;
+            congelada[c] = janelaAtual;
+            ArrayDeque<EstadoVeiculo> fila = esperando[c];
+            if (fila == null)
+                continue;
+            for (EstadoVeiculo estado : fila) {
+                if (topo == pilha.length) {
+                    pilha = particao.pilha = Arrays.copyOf(pilha, topo * 2);
+                }
+                pilha[topo++] = estado.veiculo.getCelula();
+            }
+        }
+    }
+
+    /**
+     * Marca as células que um passo iniciado em outra partição pode tocar: a próxima célula de uma
+     * via que atravessa a fronteira, e todas as células de uma rota de cruzamento que, junto com a
+     * célula de onde se entra nela, fica em mais de uma partição. Por simplicidade a célula de
+     * origem também é marcada.
+     */
+    private int[] marcarCompartilhadas() {
+        BitSet marcadas = new BitSet(malha.getTotalCelulas());
+        TabelaRotas rotas = malha.getRotas();
+        int[] celulas = rotas.getCelulas();
+        for (int c = 0; c < malha.getTotalCelulas(); c++) {
+            int tipo = malha.getTipo(c);
+            if (tipo < 1 || tipo > 4)
+                continue;
+            int proxima = malha.getVizinha(c, tipo);
+            if (proxima == Malha.SEM_CELULA)
+                continue;
+            int dono = particaoDaLinha[c / colunas];
+            if (malha.getTipo(proxima) < 5) {
+                if (particaoDaLinha[proxima / colunas] != dono) {
+                    marcadas.set(c);
+                    marcadas.set(proxima);
+                }
+                continue;
+            }
+            int quantidade = rotas.getQuantidadeRotas(proxima);
+            for (int r = 0; r < quantidade; r++) {
+                int rota = rotas.getRota(proxima, r);
+                boolean cruzaFronteira = false;
+                for (int i = rotas.getInicio(rota); i < rotas.getFim(rota); i++) {
+                    cruzaFronteira |= particaoDaLinha[celulas[i] / colunas] != dono;
+                }
+                if (cruzaFronteira) {
+                    marcadas.set(c);
+                    for (int i = rotas.getInicio(rota); i < rotas.getFim(rota); i++) {
+                        marcadas.set(celulas[i]);
+                    }
+                }
+            }
+        }
+        return marcadas.stream().toArray();
+    }
+
+    private int donoDe(EstadoVeiculo estado) {
+        return particaoDaLinha[estado.veiculo.getCelula() / colunas];
+    }
+
+    private boolean caminhoLivre(Veiculo veiculo, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (ocupantes[veiculo.getCelulaDoCaminho(i)] != null)
+                return false;
+        }
+        return true;
+    }
+
+    private void mover(EstadoVeiculo estado, int destino, Particao particao) {
+        int celulaAntiga = estado.veiculo.getCelula();
+        estado.veiculo.setCelula(destino);
+        metricas.registrarPasso();
+        liberar(celulaAntiga, particao);
+    }
+
+    private void finalizar(EstadoVeiculo estado, boolean chegouNaSaida, Particao particao) {
+        liberar(estado.veiculo.getCelula(), particao);
+        veiculosAtivos.decrementAndGet();
+        if (chegouNaSaida) {
+            metricas.registrarSaida((particao.agoraMs - estado.instanteEntradaMs) * 1_000_000L);
+        } else {
+            metricas.registrarInterrupcao();
+        }
+    }
+
+    /**
+     * Libera a célula e entrega-a ao primeiro veículo da fila, se houver, que avança no mesmo instante.
+     */
+    private void liberar(int i, Particao particao) {
+        ocupantes[i] = null;
+        ArrayDeque<EstadoVeiculo> fila = esperando[i];
+        if (fila != null && !fila.isEmpty()) {
+            EstadoVeiculo proximo = fila.pollFirst();
+            ocupantes[i] = proximo;
+            agendar(particao.agoraMs, proximo, particao);
+        }
+    }
+
+    /**
+     * Agenda o próximo passo na partição dona da célula atual do veículo. Os passos que o
+     * coordenador agenda dentro da janela que está fechando (veículos liberados de uma fila
+     * congelada) ficam com ele.
+     */
+    private void agendar(long tempo, EstadoVeiculo estado, Particao particao) {
+        Evento evento = new Evento(tempo, estado);
+        if (particao == coordenador && executandoAdiados && tempo < fimJanela) {
+            pendentes.add(evento);
+            return;
+        }
+        int dono = donoDe(estado);
+        if (particao != coordenador && dono != particao.indice) {
+            throw new IllegalStateException("Passo local agendou veículo da partição " + dono);
+        }
+        particoes[dono].eventos.add(evento);
+    }
+
+    /**
+     * Fila de eventos de uma faixa de linhas. Só é tocada pela thread da partição, ou pelo
+     * coordenador enquanto todas as threads estão na barreira.
+     */
+    private final class Particao {
+        final int indice;
+        final PriorityQueue<Evento> eventos = new PriorityQueue<>();
+        /** Passos que tocam outra partição ou células congeladas, executados pelo coordenador. */
+        final ArrayDeque<Evento> adiados = new ArrayDeque<>();
+        /** Pilha de trabalho de congelar. */
+        int[] pilha = new int[64];
+        long agoraMs = 0;
+
+        Particao(int indice) {
+            this.indice = indice;
+        }
+
+        /** Processa os eventos com tempo anterior a {@code limite}. */
+        void processarAte(long limite) {
+            Evento evento;
+            while ((evento = eventos.peek()) != null && evento.tempo < limite) {
+                eventos.poll();
+                agoraMs = evento.tempo;
+                if (tocarLivres(evento.estado, this, false)) {
+                    executarPasso(evento.estado, this);
+                } else {
+                    tocarLivres(evento.estado, this, true);
+                    adiados.add(evento);
+                }
+            }
+        }
+    }
+
+    private static final class EstadoVeiculo {
+        final Veiculo veiculo;
+        /** Ordem de inserção; desempata os eventos do mesmo instante. */
+        final long numero;
+        final long instanteEntradaMs;
+        /**
+         * Tamanho do caminho de cruzamento reservado (0 se nenhum), que fica no buffer do Veiculo;
+         * passoNoCaminho é a próxima célula a ocupar.
+         */
+        int tamanhoCaminho;
+        int passoNoCaminho;
+
+        EstadoVeiculo(Veiculo veiculo, long numero, long instanteEntradaMs) {
+            this.veiculo = veiculo;
+            this.numero = numero;
+            this.instanteEntradaMs = instanteEntradaMs;
+        }
+    }
+
+    /**
+     * Evento ordenado pelo instante simulado e, no mesmo instante, pelo número do veículo: a mesma
+     * ordem do MotorEventosDiscretos, que não depende de qual partição agendou o evento.
+     */
+    private static final class Evento implements Comparable<Evento> {
+        final long tempo;
+        final EstadoVeiculo estado;
+
+        Evento(long tempo, EstadoVeiculo estado) {
+            this.tempo = tempo;
+            this.estado = estado;
+        }
+
+        @Override
+        public int compareTo(Evento outro) {
+            int c = Long.compare(tempo, outro.tempo);
+            return c != 0 ? c : Long.compare(estado.numero, outro.estado.numero);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package controller;
+
+/**
+ * O que o VigiaBloqueios faz quando confirma um deadlock.
+ */
+public enum PoliticaBloqueio {
+
+    /** Só registra e reporta; os veículos continuam parados. */
+    REPORTAR,
+    /**
+     * Interrompe, em cada ciclo, o veículo mais novo (maior id): ele sai da malha liberando a
+     * célula que segura, e o ciclo se desfaz.
+     */
+    INTERROMPER;
+
+    public static PoliticaBloqueio porNome(String nome) {
+        for (PoliticaBloqueio p : values()) {
+            if (p.name().equalsIgnoreCase(nome.trim())) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Política de bloqueio desconhecida: " + nome);
+    }
+}
@@ -0,0 +1,157 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import model.QuadroSimulacao;
+import model.rastro.FormatoRastro;
+import model.rastro.LeitorRastro;
+
+/**
+ * Reproduz um rastro gravado (ver GravadorRastro) como uma sequência de QuadroSimulacao, no lugar
+ * de Simulacao::capturarQuadro num LacoRenderizacao.
+ *
+ * A cada quadro, o relógio do rastro anda o tempo real decorrido vezes a velocidade, e os
+ * registros até esse instante são aplicados às posições. avancar() só é chamado pela thread de
+ * renderização; a velocidade e a pausa podem ser mudadas de qualquer thread.
+ */
+public class ReproducaoRastro {
+
+    private static final int FORA = -1;
+
+    private final LeitorRastro leitor;
+    // Célula de cada veículo, indexada pelo id, ou FORA.
+    private int[] posicoes = new int[1024];
+    // Os veículos com id abaixo deste já saíram ou nem entraram; o quadro começa por ele.
+    private int menorAtivo = 0;
+    private int maiorId = -1;
+    private volatile int ativos = 0;
+    private boolean registroPendente = false;
+    private long ultimoNanos = -1;
+    private volatile long instanteNanos = 0;
+    private volatile double velocidade = 1.0;
+    private volatile boolean pausado = false;
+    private volatile boolean terminada = false;
+    private volatile long saidas = 0;
+
+    public ReproducaoRastro(LeitorRastro leitor) {
+        this.leitor = leitor;
+        Arrays.fill(posicoes, FORA);
+    }
+
+    /**
+     * @param velocidade quantos segundos do rastro passam por segundo real (ex.: 10 para 10x).
+     */
+    public void setVelocidade(double velocidade) {
+        if (velocidade <= 0) {
+            throw new IllegalArgumentException("Velocidade deve ser positiva: " + velocidade);
+        }
+        this.velocidade = velocidade;
+    }
+
+    public double getVelocidade() {
+        return velocidade;
+    }
+
+    public void setPausado(boolean pausado) {
+        this.pausado = pausado;
+    }
+
+    public boolean isPausado() {
+        return pausado;
+    }
+
+    /**
+     * @return instante do rastro já reproduzido, em ns desde o início da gravação.
+     */
+    public long getInstanteNanos() {
+        return instanteNanos;
+    }
+
+    /**
+     * @return true depois que o último registro foi aplicado.
+     */
+    public boolean isTerminada() {
+        return terminada;
+    }
+
+    public int getAtivos() {
+        return ativos;
+    }
+
+    public long getSaidas() {
+        return saidas;
+    }
+
+    /**
+     * Avança o relógio do rastro e devolve as posições nesse instante.
+     */
+    public QuadroSimulacao avancar() {
+        long agora = System.nanoTime();
+        if (ultimoNanos >= 0 && !pausado && !terminada) {
+            instanteNanos += (long) ((agora - ultimoNanos) * velocidade);
+        }
+        ultimoNanos = agora;
+
+        try {
+            while (!terminada) {
+                if (!registroPendente) {
+                    if (!leitor.proximo()) {
+                        terminada = true;
+                        break;
+                    }
+                    registroPendente = true;
+                }
+                if (leitor.getInstanteNanos() > instanteNanos)
+                    break;
+                aplicar(leitor.getVeiculo(), leitor.getPara());
+                registroPendente = false;
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o rastro: " + e.getMessage());
+            terminada = true;
+        }
+        return montarQuadro();
+    }
+
+    private void aplicar(int veiculo, int para) {
+        if (veiculo >= posicoes.length) {
+            int tamanho = posicoes.length;
+            posicoes = Arrays.copyOf(posicoes, Math.max(veiculo + 1, tamanho * 2));
+            Arrays.fill(posicoes, tamanho, posicoes.length, FORA);
+        }
+        boolean estava = posicoes[veiculo] != FORA;
+        if (para >= 0) {
+            posicoes[veiculo] = para;
+            if (!estava) {
+                ativos++;
+                // Um veículo pode entrar depois de outro criado depois dele.
+                menorAtivo = Math.min(menorAtivo, veiculo);
+            }
+            maiorId = Math.max(maiorId, veiculo);
+        } else if (estava) {
+            posicoes[veiculo] = FORA;
+            ativos--;
+            if (para == FormatoRastro.FORA) {
+                saidas++;
+            }
+        }
+    }
+
+    private QuadroSimulacao montarQuadro() {
+        while (menorAtivo <= maiorId && posicoes[menorAtivo] == FORA) {
+            menorAtivo++;
+        }
+        int[] ids = new int[ativos];
+        int[] celulas = new int[ativos];
+        int n = 0;
+        for (int id = menorAtivo; id <= maiorId && n < ativos; id++) {
+            if (posicoes[id] != FORA) {
+                ids[n] = id;
+                celulas[n] = posicoes[id];
+                n++;
+            }
+        }
+        return QuadroSimulacao.de(ids, celulas);
+    }
+}
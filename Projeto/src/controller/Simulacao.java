@@ -0,0 +1,390 @@
+package controller;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import model.EscalaTempo;
+import model.Malha;
+import model.ModoExecucao;
+import model.ObservadorVeiculo;
+import model.PerfilDemanda;
+import model.ProcessoChegada;
+import model.QuadroSimulacao;
+import model.RegistroVeiculos;
+import model.Veiculo;
+import model.metricas.ColetorMetricas;
+import model.metricas.InstantaneoMetricas;
+import model.rastro.GravadorRastro;
+import model.sincronizacao.GerenciadorAdmissaoCruzamento;
+import model.sincronizacao.GerenciadorEsperaCruzamento;
+import model.sincronizacao.GerenciadorInstrumentado;
+import model.sincronizacao.GerenciadorSincronizacao;
+import model.sincronizacao.ModoEsperaCruzamento;
+import model.sincronizacao.ModoReserva;
+
+/**
+ * Núcleo da simulação, sem nenhuma dependência de Swing.
+ * Mantém os veículos ativos e a thread do GeradorChegadas, que insere novos veículos nos pontos de
+ * entrada.
+ * É usado tanto pelo SimuladorController (interface gráfica) quanto pelo modo headless.
+ */
+public class Simulacao implements ObservadorVeiculo {
+
+    private final Malha malha;
+    // Criada antes das métricas, que medem pelo seu relógio.
+    private final EscalaTempo escalaTempo = new EscalaTempo();
+    private final GerenciadorInstrumentado gerenciadorSincronizacao;
+    private final GerenciadorAdmissaoCruzamento admissaoCruzamento;
+    private final GerenciadorEsperaCruzamento esperaCruzamento;
+    // Sem trava: esta thread registra, cada veículo se remove ao finalizar (aoFinalizar) e a
+    // renderização percorre o registro continuamente (ver capturarQuadro).
+    private final RegistroVeiculos veiculos = new RegistroVeiculos();
+    private final ColetorMetricas metricas = new ColetorMetricas(escalaTempo::agoraNanos);
+    private final IntSupplier qtdMaximaVeiculos;
+    private final LongSupplier intervaloInsercao;
+    private ObservadorVeiculo observadorExterno;
+    private ModoExecucao modoExecucao = ModoExecucao.PLATAFORMA;
+    private ModoReserva modoReserva = ModoReserva.TENTATIVA;
+    private ModoEsperaCruzamento modoEsperaCruzamento = ModoEsperaCruzamento.FIXA;
+    private ProcessoChegada processoChegada = ProcessoChegada.FIXO;
+    private PerfilDemanda perfilDemanda;
+    private GravadorRastro gravadorRastro;
+    private Long semente;
+    private long sementeUsada;
+    // Sequência raiz da execução: chegadas, destinos e um split por veículo. Só a thread do
+    // GeradorChegadas a usa depois de iniciar().
+    private SplittableRandom aleatorio;
+    private GeradorChegadas geradorChegadas;
+    private Thread threadGerenciadora;
+    private long intervaloVigiaMs = VigiaBloqueios.INTERVALO_PADRAO_MS;
+    private PoliticaBloqueio politicaBloqueio = PoliticaBloqueio.REPORTAR;
+    private long limiarSemProgressoMs = VigiaBloqueios.LIMIAR_SEM_PROGRESSO_PADRAO_MS;
+    private VigiaBloqueios vigia;
+    private Thread threadVigia;
+    private boolean instrumentacao = true;
+    private volatile boolean simulacaoAtiva = false;
+
+    /**
+     * @param gerenciador       é envolvido num GerenciadorAdmissaoCruzamento (usado no
+     *                          ModoReserva.AGLOMERADO), num GerenciadorEsperaCruzamento, que avisa os
+     *                          veículos esperando um cruzamento (ligado só no
+     *                          ModoEsperaCruzamento.NOTIFICADA), e num GerenciadorInstrumentado, que
+     *                          mede espera e disputa (no relógio da EscalaTempo, como as demais
+     *                          métricas).
+     * @param qtdMaximaVeiculos consultado a cada ciclo, permitindo alterar o limite durante a execução.
+     * @param intervaloInsercao intervalo médio (ms) entre chegadas em cada entrada, também consultado a
+     *                          cada chegada.
+     */
+    public Simulacao(Malha malha, GerenciadorSincronizacao gerenciador, IntSupplier qtdMaximaVeiculos,
+            LongSupplier intervaloInsercao) {
+        this.malha = malha;
+        this.admissaoCruzamento = new GerenciadorAdmissaoCruzamento(gerenciador, malha);
+        this.esperaCruzamento = new GerenciadorEsperaCruzamento(admissaoCruzamento, malha);
+        this.gerenciadorSincronizacao = new GerenciadorInstrumentado(esperaCruzamento, malha, escalaTempo::agoraNanos);
+        this.qtdMaximaVeiculos = qtdMaximaVeiculos;
+        this.intervaloInsercao = intervaloInsercao;
+    }
+
+    /**
+     * Define quem mais deve ser avisado sobre os movimentos (ex.: o painel, para redesenhar).
+     */
+    public void setObservadorExterno(ObservadorVeiculo observador) {
+        this.observadorExterno = observador;
+    }
+
+    public void setModoExecucao(ModoExecucao modoExecucao) {
+        this.modoExecucao = modoExecucao;
+    }
+
+    public ModoExecucao getModoExecucao() {
+        return modoExecucao;
+    }
+
+    /**
+     * Escala do tempo desta simulação; pode ser mudada a qualquer momento, inclusive durante a
+     * execução. As métricas, os veículos e as chegadas seguem o seu relógio.
+     */
+    public EscalaTempo getEscalaTempo() {
+        return escalaTempo;
+    }
+
+    /**
+     * Deve ser chamado antes de iniciar(): o modo AGLOMERADO muda onde o gerenciador guarda a
+     * ocupação dos cruzamentos.
+     */
+    public void setModoReserva(ModoReserva modoReserva) {
+        this.modoReserva = modoReserva;
+        admissaoCruzamento.setAtivo(modoReserva == ModoReserva.AGLOMERADO);
+    }
+
+    /**
+     * O que os veículos inseridos daqui em diante fazem quando a reserva de um cruzamento falha.
+     */
+    public void setModoEsperaCruzamento(ModoEsperaCruzamento modoEsperaCruzamento) {
+        this.modoEsperaCruzamento = modoEsperaCruzamento;
+        esperaCruzamento.setAtivo(modoEsperaCruzamento == ModoEsperaCruzamento.NOTIFICADA);
+    }
+
+    /**
+     * Processo de chegada de todas as entradas; vale a partir do próximo iniciar().
+     */
+    public void setProcessoChegada(ProcessoChegada processoChegada) {
+        this.processoChegada = processoChegada;
+    }
+
+    /**
+     * Taxas de chegada e destinos por entrada (null para a demanda uniforme); vale a partir do
+     * próximo iniciar().
+     */
+    public void setPerfilDemanda(PerfilDemanda perfilDemanda) {
+        this.perfilDemanda = perfilDemanda;
+    }
+
+    /**
+     * Grava os movimentos dos veículos inseridos daqui em diante (null para não gravar). Quem abriu
+     * o gravador o fecha, depois de encerrarEAguardar.
+     */
+    public void setGravadorRastro(GravadorRastro gravadorRastro) {
+        this.gravadorRastro = gravadorRastro;
+    }
+
+    /**
+     * Semente de todas as sequências aleatórias da próxima execução (null para sortear uma).
+     * Com a mesma semente, cada veículo tem a mesma velocidade e faz as mesmas escolhas, e as
+     * chegadas seguem os mesmos intervalos; a ordem entre threads ainda depende do escalonador.
+     */
+    public void setSemente(Long semente) {
+        this.semente = semente;
+    }
+
+    /**
+     * @return a semente da execução atual, sorteada ou não, para repeti-la depois.
+     */
+    public long getSementeUsada() {
+        return sementeUsada;
+    }
+
+    public GeradorChegadas getGeradorChegadas() {
+        return geradorChegadas;
+    }
+
+    /**
+     * Liga ou desliga a medida de espera e disputa do GerenciadorInstrumentado (ligada por padrão);
+     * vale a partir do próximo iniciar(). Desligada, os arrays por célula nem são criados, o que
+     * conta nas malhas grandes; o vigia, se ligado, a liga mesmo assim, pois usa o grafo de espera.
+     */
+    public void setInstrumentacao(boolean instrumentacao) {
+        this.instrumentacao = instrumentacao;
+    }
+
+    /**
+     * Intervalo entre as voltas do VigiaBloqueios (0 para não iniciar o vigia) e o que ele faz com
+     * um deadlock confirmado; vale a partir do próximo iniciar().
+     */
+    public void setVigiaBloqueios(long intervaloMs, PoliticaBloqueio politica) {
+        this.intervaloVigiaMs = intervaloMs;
+        this.politicaBloqueio = politica;
+    }
+
+    /**
+     * Tempo sem nenhum passo para o vigia dar a simulação como parada, em ms simulados (na escala
+     * da EscalaTempo); vale a partir do próximo iniciar().
+     */
+    public void setLimiarSemProgresso(long ms) {
+        this.limiarSemProgressoMs = ms;
+    }
+
+    /**
+     * @return o vigia da execução atual, ou null se ele estiver desligado.
+     */
+    public VigiaBloqueios getVigiaBloqueios() {
+        return vigia;
+    }
+
+    public void iniciar() {
+        if (simulacaoAtiva)
+            return;
+
+        simulacaoAtiva = true;
+        sementeUsada = semente != null ? semente : new SplittableRandom().nextLong();
+        aleatorio = new SplittableRandom(sementeUsada);
+        gerenciadorSincronizacao.setAtivo(instrumentacao || intervaloVigiaMs > 0);
+        metricas.iniciar();
+
+        geradorChegadas = new GeradorChegadas(malha.getCelulasDeEntrada(), processoChegada, this::inserirVeiculo,
+                veiculos::getQuantidade, qtdMaximaVeiculos, intervaloInsercao);
+        geradorChegadas.setPerfil(perfilDemanda);
+        geradorChegadas.setAleatorio(aleatorio.split());
+        geradorChegadas.setEscalaTempo(escalaTempo);
+        gerenciadorSincronizacao.setObservadorLiberacao(geradorChegadas::entradaLiberada);
+        threadGerenciadora = new Thread(geradorChegadas, "gerenciador-simulacao");
+        threadGerenciadora.start();
+
+        if (intervaloVigiaMs > 0) {
+            vigia = new VigiaBloqueios(gerenciadorSincronizacao, metricas, malha, this::interromperVeiculo,
+                    intervaloVigiaMs, limiarSemProgressoMs, politicaBloqueio);
+            threadVigia = new Thread(vigia, "vigia-bloqueios");
+            threadVigia.setDaemon(true);
+            threadVigia.start();
+        }
+    }
+
+    public void encerrarInsercao() {
+        if (geradorChegadas != null) {
+            geradorChegadas.encerrarInsercao();
+        }
+    }
+
+    /**
+     * Fim da duração pedida: para a inserção e o relógio simulado e devolve o retrato das métricas
+     * nesse instante. Os veículos continuam até encerrar(); o retrato é o que vale para o resumo,
+     * sem o tempo que eles levam para sair.
+     */
+    public InstantaneoMetricas congelar() {
+        encerrarInsercao();
+        escalaTempo.congelar();
+        return getInstantaneo();
+    }
+
+    public void encerrar() {
+        this.simulacaoAtiva = false;
+        encerrarInsercao();
+
+        if (threadGerenciadora != null) {
+            threadGerenciadora.interrupt();
+        }
+        if (threadVigia != null) {
+            threadVigia.interrupt();
+        }
+
+        veiculos.paraCada(Veiculo::interromper);
+    }
+
+    /**
+     * Encerra a simulação e espera as threads terminarem, para que as métricas fiquem consistentes.
+     */
+    public void encerrarEAguardar(long timeoutMs) throws InterruptedException {
+        List<Veiculo> ativos = veiculos.listar();
+        encerrar();
+
+        long limite = System.currentTimeMillis() + timeoutMs;
+        if (threadGerenciadora != null) {
+            threadGerenciadora.join(Math.max(1, limite - System.currentTimeMillis()));
+        }
+        for (Veiculo v : ativos) {
+            long restante = limite - System.currentTimeMillis();
+            if (restante <= 0)
+                break;
+            v.aguardar(restante);
+        }
+    }
+
+    public boolean isAtiva() {
+        return simulacaoAtiva;
+    }
+
+    /**
+     * Cópia dos veículos ativos neste momento.
+     */
+    public List<Veiculo> getVeiculos() {
+        return veiculos.listar();
+    }
+
+    public int getQuantidadeVeiculos() {
+        return veiculos.getQuantidade();
+    }
+
+    /**
+     * Posições atuais dos veículos ativos. Não bloqueia a simulação: percorre o registro e lê a
+     * célula (volatile) de cada veículo.
+     */
+    public QuadroSimulacao capturarQuadro() {
+        return QuadroSimulacao.capturar(veiculos);
+    }
+
+    public ColetorMetricas getMetricas() {
+        return metricas;
+    }
+
+    public GerenciadorSincronizacao getGerenciadorSincronizacao() {
+        return gerenciadorSincronizacao;
+    }
+
+    /**
+     * Intensidade da disputa de cada célula (0 a 255, ver MetricasSincronizacao.capturarMapaDeCalor).
+     */
+    public byte[] getMapaDeCalor() {
+        return gerenciadorSincronizacao.getMetricas().capturarMapaDeCalor();
+    }
+
+    /**
+     * Retrato atual das métricas; pode ser chamado de qualquer thread enquanto a simulação roda.
+     */
+    public InstantaneoMetricas getInstantaneo() {
+        return InstantaneoMetricas.capturar(metricas, gerenciadorSincronizacao.getMetricas(),
+                gerenciadorSincronizacao.getContadoresReserva(), malha.getColunas());
+    }
+
+    public Malha getMalha() {
+        return malha;
+    }
+
+    private void interromperVeiculo(int id) {
+        veiculos.paraCada(v -> {
+            if (v.getId() == id) {
+                v.interromper();
+            }
+        });
+    }
+
+    /**
+     * Cria e inicia um veículo na entrada, já reivindicada pelo GeradorChegadas.
+     */
+    private void inserirVeiculo(int celula) {
+        Veiculo novoVeiculo = new Veiculo(celula, malha, this, this.gerenciadorSincronizacao, aleatorio.split());
+        novoVeiculo.setModoReserva(modoReserva);
+        novoVeiculo.setModoEsperaCruzamento(modoEsperaCruzamento);
+        novoVeiculo.setEscalaTempo(escalaTempo);
+        novoVeiculo.setRastro(gravadorRastro);
+        if (perfilDemanda != null) {
+            int destino = perfilDemanda.sortearDestino(celula, aleatorio.nextDouble());
+            if (destino != Malha.SEM_CELULA) {
+                novoVeiculo.setDistanciasAoDestino(perfilDemanda.getDistancias(destino));
+            }
+        }
+        veiculos.registrar(novoVeiculo);
+        metricas.registrarInsercao();
+        novoVeiculo.iniciar(modoExecucao);
+    }
+
+    @Override
+    public void aoMover(Veiculo veiculo) {
+        metricas.registrarPasso();
+        if (observadorExterno != null) {
+            observadorExterno.aoMover(veiculo);
+        }
+    }
+
+    @Override
+    public void aoFinalizar(Veiculo veiculo) {
+        veiculos.remover(veiculo);
+        if (geradorChegadas != null) {
+            // Sem ter entrado, o veículo nunca libera a entrada no gerenciador, e ela ficaria
+            // reivindicada para sempre.
+            if (!veiculo.entrouNaMalha()) {
+                geradorChegadas.entradaLiberada(veiculo.getCelula());
+            }
+            geradorChegadas.vagaLiberada();
+        }
+        if (veiculo.chegouNaSaida()) {
+            metricas.registrarSaida(veiculo.getTempoDeViagemNanos());
+        } else {
+            metricas.registrarInterrupcao();
+        }
+        if (observadorExterno != null) {
+            observadorExterno.aoFinalizar(veiculo);
+        }
+    }
+}
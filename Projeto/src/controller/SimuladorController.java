@@ -1,36 +1,35 @@
 package controller;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.Timer;
 import model.Malha;
-import model.Veiculo;
-import model.sincronizacao.GerenciadorMonitor;
-import model.sincronizacao.GerenciadorSemaforo;
-import model.sincronizacao.GerenciadorSincronizacao;
+import model.PerfilDemanda;
+import model.QuadroSimulacao;
+import model.sincronizacao.EstrategiaSincronizacao;
 import util.LeitorMalha;
+import util.LeitorPerfilDemanda;
 import view.JanelaPrincipal;
 import view.PainelControle;
 import view.PainelMalha;
+import view.PainelMetricas;
 
-public class SimuladorController implements Runnable {
+public class SimuladorController {
+
+    // Intervalo de atualização do painel de métricas e do retrato do mapa de calor.
+    private static final int INTERVALO_METRICAS_MS = 500;
 
     private JanelaPrincipal janela;
     private PainelControle painelControle;
     private PainelMalha painelMalha;
+    private PainelMetricas painelMetricas;
     private Malha malha;
-    private List<Veiculo> veiculos;
-    private Thread threadGerenciadora;
-    private volatile boolean simulacaoAtiva = false;
-    private volatile boolean podeInserirVeiculos = true;
-
-    private GerenciadorSincronizacao gerenciadorSincronizacao;
+    private PerfilDemanda perfilDemanda;
+    private Simulacao simulacao;
+    private LacoRenderizacao lacoRenderizacao;
+    private final Timer timerMetricas = new Timer(INTERVALO_METRICAS_MS, e -> atualizarMetricas());
 
     public SimuladorController() {
-        this.veiculos = Collections.synchronizedList(new ArrayList<>());
         iniciarGUI();
         if (carregarMalha()) {
             painelMalha.setMalha(malha);
@@ -45,7 +44,7 @@ public class SimuladorController implements Runnable {
         this.janela = new JanelaPrincipal();
         this.painelMalha = janela.getPainelMalha();
         this.painelControle = janela.getPainelControle();
-        this.painelMalha.setVeiculos(veiculos);
+        this.painelMetricas = janela.getPainelMetricas();
         conectarEventos();
     }
 
@@ -66,114 +65,147 @@ public class SimuladorController implements Runnable {
         return false;
     }
 
+    /**
+     * Carrega um perfil de demanda (ver LeitorPerfilDemanda), usado a partir da próxima simulação.
+     */
+    private void carregarPerfil() {
+        JFileChooser fileChooser = new JFileChooser("./Malhas/");
+        fileChooser.setDialogTitle("Selecione um perfil de demanda");
+
+        if (fileChooser.showOpenDialog(janela) == JFileChooser.APPROVE_OPTION) {
+            String caminhoArquivo = fileChooser.getSelectedFile().getPath();
+            PerfilDemanda perfil = LeitorPerfilDemanda.lerArquivo(caminhoArquivo, malha);
+            if (perfil == null) {
+                JOptionPane.showMessageDialog(janela, "Erro ao ler o perfil de demanda.", "Erro de Arquivo",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            this.perfilDemanda = perfil;
+            System.out.println("Perfil de demanda carregado: " + caminhoArquivo);
+        }
+    }
+
     private void conectarEventos() {
         painelControle.getBtnIniciar().addActionListener(e -> iniciarSimulacao());
         painelControle.getBtnEncerrarInsercao().addActionListener(e -> encerrarInsercao());
         painelControle.getBtnEncerrarSimulacao().addActionListener(e -> encerrarSimulacao());
+        painelControle.getChkMapaDeCalor().addActionListener(e -> alternarMapaDeCalor());
+        painelControle.getBtnCarregarPerfil().addActionListener(e -> carregarPerfil());
+        painelControle.getCbEscalaTempo().addActionListener(e -> aplicarEscalaTempo());
     }
 
     private void iniciarSimulacao() {
-        if (simulacaoAtiva)
+        if (simulacao != null && simulacao.isAtiva())
             return;
 
         System.out.println("Iniciando a simulação...");
 
-        if (painelControle.isSemaforoSelecionado()) {
-            System.out.println("Usando estratégia: SEMÁFORO");
-            this.gerenciadorSincronizacao = new GerenciadorSemaforo(malha);
-        } else {
-            System.out.println("Usando estratégia: MONITOR");
-            this.gerenciadorSincronizacao = new GerenciadorMonitor(malha);
+        EstrategiaSincronizacao estrategia = painelControle.getEstrategiaSincronizacao();
+        System.out.println("Usando estratégia: " + estrategia);
+
+        this.simulacao = new Simulacao(malha, estrategia.criar(malha),
+                () -> Integer.parseInt(painelControle.getQtdVeiculos()),
+                () -> Long.parseLong(painelControle.getIntervalo()));
+        this.simulacao.setModoExecucao(painelControle.getModoExecucao());
+        this.simulacao.setModoReserva(painelControle.getModoReserva());
+        this.simulacao.setPerfilDemanda(perfilDemanda);
+        this.simulacao.setSemente(lerSemente());
+        aplicarEscalaTempo();
+        System.out.println("Execução dos veículos: " + painelControle.getModoExecucao());
+        painelMalha.setMapaDeCalor(null);
+        painelControle.getBtnIniciar().setEnabled(false);
+
+        // Os veículos não tocam no Swing: a malha é redesenhada a partir de quadros capturados a
+        // uma taxa fixa pela thread de renderização.
+        this.lacoRenderizacao = new LacoRenderizacao(simulacao::capturarQuadro, painelMalha::setQuadro,
+                lerQuadrosPorSegundo());
+        simulacao.iniciar();
+        System.out.println("Semente: " + simulacao.getSementeUsada());
+        lacoRenderizacao.iniciar();
+        painelMetricas.limpar();
+        timerMetricas.start();
+    }
+
+    /**
+     * @return a semente digitada, ou null (semente sorteada) se o campo estiver vazio ou inválido.
+     */
+    private Long lerSemente() {
+        String texto = painelControle.getSemente().trim();
+        if (texto.isEmpty())
+            return null;
+        try {
+            return Long.parseLong(texto);
+        } catch (NumberFormatException e) {
+            System.out.println("Semente inválida, usando uma sorteada: " + texto);
+            return null;
+        }
+    }
+
+    /**
+     * Passa a escala escolhida para a simulação atual; vale na hora, mesmo com a simulação rodando.
+     */
+    private void aplicarEscalaTempo() {
+        if (simulacao == null)
+            return;
+        try {
+            simulacao.getEscalaTempo().definir(painelControle.getEscalaTempo());
+            System.out.println("Escala de tempo: " + simulacao.getEscalaTempo());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(janela, e.getMessage(), "Escala de Tempo", JOptionPane.WARNING_MESSAGE);
         }
+    }
 
-        simulacaoAtiva = true;
-        podeInserirVeiculos = true;
-        painelControle.getBtnIniciar().setEnabled(false);
+    private int lerQuadrosPorSegundo() {
+        try {
+            int quadros = Integer.parseInt(painelControle.getQuadrosPorSegundo().trim());
+            if (quadros > 0)
+                return quadros;
+        } catch (NumberFormatException e) {
+            // cai no padrão abaixo
+        }
+        System.out.println("Quadros por segundo inválido, usando " + LacoRenderizacao.QUADROS_POR_SEGUNDO_PADRAO);
+        return LacoRenderizacao.QUADROS_POR_SEGUNDO_PADRAO;
+    }
 
-        List<Point> pontosDeEntrada = new ArrayList<>(malha.getPontosDeEntrada());
-        Collections.shuffle(pontosDeEntrada);
-        int maxInitialCars = Math.min(pontosDeEntrada.size(), Integer.parseInt(painelControle.getQtdVeiculos()));
-
-        int carrosCriados = 0;
-        for (Point pontoInicial : pontosDeEntrada) {
-            if (carrosCriados >= maxInitialCars)
-                break;
-
-            // Verifica se o ponto está ocupado em vez de tentar adquiri-lo.
-            if (!this.gerenciadorSincronizacao.isOcupado(pontoInicial)) {
-                Veiculo novoVeiculo = new Veiculo(pontoInicial, malha, painelMalha, this.gerenciadorSincronizacao);
-                veiculos.add(novoVeiculo);
-                novoVeiculo.start();
-                carrosCriados++;
+    private void atualizarMetricas() {
+        if (simulacao != null) {
+            painelMetricas.atualizar(simulacao.getInstantaneo());
+            // O retrato só é montado com a sobreposição visível; o painel desenha a partir dele.
+            if (painelMalha.isMostrarMapaDeCalor()) {
+                painelMalha.setMapaDeCalor(simulacao.getMapaDeCalor());
             }
         }
+    }
 
-        threadGerenciadora = new Thread(this);
-        threadGerenciadora.start();
+    private void alternarMapaDeCalor() {
+        boolean mostrar = painelControle.getChkMapaDeCalor().isSelected();
+        if (mostrar && simulacao != null) {
+            painelMalha.setMapaDeCalor(simulacao.getMapaDeCalor());
+        }
+        painelMalha.setMostrarMapaDeCalor(mostrar);
     }
 
     private void encerrarInsercao() {
         System.out.println("Encerrando a inserção de novos veículos...");
-        this.podeInserirVeiculos = false;
+        if (simulacao != null) {
+            simulacao.encerrarInsercao();
+        }
     }
 
     private void encerrarSimulacao() {
         System.out.println("Encerrando a simulação...");
-        this.simulacaoAtiva = false;
-        this.podeInserirVeiculos = false;
-
-        if (threadGerenciadora != null) {
-            threadGerenciadora.interrupt();
-        }
-
-        synchronized (veiculos) {
-            new ArrayList<>(veiculos).forEach(Thread::interrupt);
-            veiculos.clear();
+        if (simulacao != null) {
+            timerMetricas.stop();
+            lacoRenderizacao.encerrar();
+            simulacao.encerrar();
+            simulacao.getMetricas().imprimirResumo(System.out);
+            simulacao.getGerenciadorSincronizacao().getContadoresReserva().imprimirResumo(System.out);
+            simulacao.getInstantaneo().imprimir(System.out);
+            atualizarMetricas();
+            System.out.printf("Quadros desenhados: %d (%d sem mudança, não redesenhados)%n",
+                    lacoRenderizacao.getQuadrosPublicados(), lacoRenderizacao.getQuadrosIgnorados());
         }
-        painelMalha.repaint();
+        painelMalha.setQuadro(QuadroSimulacao.VAZIO);
         painelControle.getBtnIniciar().setEnabled(true);
     }
-
-    @Override
-    public void run() {
-        List<Point> pontosDeEntrada = new ArrayList<>(malha.getPontosDeEntrada());
-
-        while (simulacaoAtiva) {
-            try {
-                veiculos.removeIf(v -> !v.isAlive());
-                painelMalha.repaint();
-
-                if (podeInserirVeiculos && veiculos.size() < Integer.parseInt(painelControle.getQtdVeiculos())) {
-                    Collections.shuffle(pontosDeEntrada);
-
-                    for (Point p : pontosDeEntrada) {
-                        if (veiculos.size() >= Integer.parseInt(painelControle.getQtdVeiculos())) {
-                            break;
-                        }
-                        //Verifica se o ponto está ocupado em vez de tentar adquiri-lo.
-                        if (!this.gerenciadorSincronizacao.isOcupado(p)) {
-                            Veiculo novoVeiculo = new Veiculo(p, malha, painelMalha, this.gerenciadorSincronizacao);
-                            veiculos.add(novoVeiculo);
-                            novoVeiculo.start();
-                        }
-                    }
-                }
-
-                long intervalo = Long.parseLong(painelControle.getIntervalo());
-                Thread.sleep(intervalo);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                System.err.println("Erro no loop do gerenciador: " + e.getMessage());
-                e.printStackTrace();
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
-        System.out.println("Thread gerenciadora finalizada.");
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,384 @@
+package controller;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import model.Malha;
+import model.metricas.ColetorMetricas;
+import model.sincronizacao.GerenciadorInstrumentado;
+
+/**
+ * Thread que vigia a simulação em busca de travamentos, a cada intervalo.
+ *
+ * Monta o grafo de espera a partir do GerenciadorInstrumentado: cada veículo bloqueado aponta para
+ * o dono da célula que espera. Como cada veículo espera no máximo uma célula, um deadlock é um
+ * ciclo nesse grafo; o ciclo só é confirmado se aparecer em duas voltas seguidas com as mesmas
+ * esperas, já que a leitura não é atômica. Sem ciclo, uma simulação com veículos ativos que não dá
+ * nenhum passo pelo limiar sem progresso está SEM_PROGRESSO, ou em LIVELOCK se as tentativas de
+ * reserva continuam (veículos tentando e falhando sem sair do lugar).
+ *
+ * As mudanças de estado vão para System.out; o estado atual e os totais ficam em getSituacao().
+ * Os tempos (o limiar, as durações e os instantes do log) são do relógio do ColetorMetricas, em
+ * tempo simulado quando há uma EscalaTempo; o intervalo entre as voltas é sempre real.
+ * Com a PoliticaBloqueio.INTERROMPER, um veículo de cada ciclo confirmado é interrompido.
+ */
+public class VigiaBloqueios implements Runnable {
+
+    public static final long INTERVALO_PADRAO_MS = 1000;
+    /** Tempo sem nenhum passo, com veículos ativos, para a simulação ser dada como parada. */
+    public static final long LIMIAR_SEM_PROGRESSO_PADRAO_MS = 5000;
+    /** Quantas células de um ciclo entram na mensagem de log. */
+    private static final int CELULAS_NO_LOG = 8;
+
+    public enum Estado {
+        NORMAL, SEM_PROGRESSO, LIVELOCK, DEADLOCK
+    }
+
+    private final GerenciadorInstrumentado gerenciador;
+    private final ColetorMetricas metricas;
+    private final Malha malha;
+    private final IntConsumer interromperVeiculo;
+    private final long intervaloMs;
+    private final long limiarSemProgressoNanos;
+    private final PoliticaBloqueio politica;
+
+    // Estado só usado pela thread do vigia.
+    private final long inicioNanos;
+    private Map<Integer, Integer> esperasAnteriores = Collections.emptyMap();
+    private final Set<Integer> interrompidos = new HashSet<>();
+    private long ultimoTickNanos;
+    private long ultimosPassos = -1;
+    private long ultimasTentativas = -1;
+    private long inicioParadaNanos = -1;
+    private long inicioEstadoNanos;
+
+    // Lidos por getSituacao(), de qualquer thread.
+    private volatile Situacao situacao;
+    private volatile long deadlocks = 0;
+    private volatile long veiculosInterrompidos = 0;
+    private volatile long paradas = 0;
+    private volatile long tempoParadoNanos = 0;
+    private volatile long maiorParadaNanos = 0;
+
+    /**
+     * @param interromperVeiculo   interrompe o veículo com o id recebido (PoliticaBloqueio.INTERROMPER).
+     * @param limiarSemProgressoMs tempo sem nenhum passo para SEM_PROGRESSO ou LIVELOCK, no relógio do
+     *                             coletor (simulado, com uma EscalaTempo).
+     */
+    public VigiaBloqueios(GerenciadorInstrumentado gerenciador, ColetorMetricas metricas, Malha malha,
+            IntConsumer interromperVeiculo, long intervaloMs, long limiarSemProgressoMs, PoliticaBloqueio politica) {
+        this.gerenciador = gerenciador;
+        this.metricas = metricas;
+        this.malha = malha;
+        this.interromperVeiculo = interromperVeiculo;
+        this.intervaloMs = intervaloMs;
+        this.limiarSemProgressoNanos = limiarSemProgressoMs * 1_000_000;
+        this.politica = politica;
+        this.inicioNanos = metricas.agoraNanos();
+        this.ultimoTickNanos = inicioNanos;
+        this.inicioEstadoNanos = inicioNanos;
+        this.situacao = new Situacao(Estado.NORMAL, 0, List.of(), this);
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(intervaloMs);
+                verificar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("Erro no vigia de bloqueios: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Uma volta do vigia; chamada pela thread a cada intervalo.
+     */
+    void verificar() {
+        long agora = metricas.agoraNanos();
+        long passos = metricas.getPassos();
+        long tentativas = gerenciador.getContadoresReserva().getTentativas();
+        boolean semPassos = passos == ultimosPassos && metricas.getVeiculosAtivos() > 0;
+
+        if (semPassos) {
+            if (inicioParadaNanos < 0) {
+                inicioParadaNanos = ultimoTickNanos;
+                paradas++;
+            }
+            tempoParadoNanos += agora - ultimoTickNanos;
+            maiorParadaNanos = Math.max(maiorParadaNanos, agora - inicioParadaNanos);
+        } else if (inicioParadaNanos >= 0) {
+            System.out.printf("[vigia %s] Veículos voltaram a andar após %.1f s parados%n", instante(agora),
+                    (agora - inicioParadaNanos) / 1e9);
+            inicioParadaNanos = -1;
+        }
+
+        Map<Integer, Integer> esperas = gerenciador.capturarEsperas();
+        List<Ciclo> ciclos = confirmados(encontrarCiclos(esperas), esperas);
+
+        Estado estado;
+        if (!ciclos.isEmpty()) {
+            estado = Estado.DEADLOCK;
+        } else if (inicioParadaNanos >= 0 && agora - inicioParadaNanos >= limiarSemProgressoNanos) {
+            estado = tentativas != ultimasTentativas ? Estado.LIVELOCK : Estado.SEM_PROGRESSO;
+        } else {
+            estado = Estado.NORMAL;
+        }
+
+        Situacao anterior = situacao;
+        if (estado != anterior.estado) {
+            if (anterior.estado != Estado.NORMAL) {
+                System.out.printf("[vigia %s] Fim de %s após %.1f s%n", instante(agora), anterior.estado,
+                        (agora - inicioEstadoNanos) / 1e9);
+            }
+            inicioEstadoNanos = agora;
+        }
+        for (Ciclo ciclo : ciclos) {
+            if (!anterior.contem(ciclo)) {
+                deadlocks++;
+                System.out.printf("[vigia %s] DEADLOCK: %d veículos em ciclo nas células %s%n", instante(agora),
+                        ciclo.veiculos.length, ciclo.descrever(malha));
+            }
+        }
+        if (estado != anterior.estado && (estado == Estado.SEM_PROGRESSO || estado == Estado.LIVELOCK)) {
+            System.out.printf("[vigia %s] %s: nenhum passo há %.1f s, %d veículos ativos%n", instante(agora), estado,
+                    (agora - inicioParadaNanos) / 1e9, metricas.getVeiculosAtivos());
+        }
+        situacao = new Situacao(estado, (agora - inicioEstadoNanos) / 1_000_000, ciclos, this);
+
+        if (politica == PoliticaBloqueio.INTERROMPER) {
+            resolver(ciclos, agora);
+        }
+
+        esperasAnteriores = esperas;
+        ultimosPassos = passos;
+        ultimasTentativas = tentativas;
+        ultimoTickNanos = agora;
+    }
+
+    /**
+     * Ciclos do grafo de espera. Cada veículo tem no máximo uma aresta (para o dono da célula que
+     * espera), então basta seguir as arestas a partir de cada veículo ainda não visitado.
+     */
+    private List<Ciclo> encontrarCiclos(Map<Integer, Integer> esperas) {
+        List<Ciclo> ciclos = new ArrayList<>();
+        Set<Integer> visitados = new HashSet<>();
+        for (Integer inicio : esperas.keySet()) {
+            if (visitados.contains(inicio))
+                continue;
+            List<Integer> caminho = new ArrayList<>();
+            Map<Integer, Integer> posicao = new HashMap<>();
+            int veiculo = inicio;
+            while (true) {
+                posicao.put(veiculo, caminho.size());
+                caminho.add(veiculo);
+                visitados.add(veiculo);
+                Integer celula = esperas.get(veiculo);
+                if (celula == null)
+                    break;
+                int dono = gerenciador.getDono(celula);
+                if (dono < 0 || dono == veiculo)
+                    break;
+                Integer p = posicao.get(dono);
+                if (p != null) {
+                    ciclos.add(new Ciclo(caminho.subList(p, caminho.size()), esperas));
+                    break;
+                }
+                if (visitados.contains(dono))
+                    break;
+                veiculo = dono;
+            }
+        }
+        return ciclos;
+    }
+
+    /**
+     * Mantém só os ciclos cujos veículos já esperavam as mesmas células na volta anterior.
+     */
+    private List<Ciclo> confirmados(List<Ciclo> ciclos, Map<Integer, Integer> esperas) {
+        List<Ciclo> confirmados = new ArrayList<>();
+        for (Ciclo ciclo : ciclos) {
+            boolean mesmo = true;
+            for (int v : ciclo.veiculos) {
+                mesmo &= esperas.get(v).equals(esperasAnteriores.get(v));
+            }
+            if (mesmo) {
+                confirmados.add(ciclo);
+            }
+        }
+        return confirmados;
+    }
+
+    private void resolver(List<Ciclo> ciclos, long agora) {
+        for (Ciclo ciclo : ciclos) {
+            int vitima = -1;
+            for (int v : ciclo.veiculos) {
+                vitima = Math.max(vitima, v);
+            }
+            if (interrompidos.add(vitima)) {
+                veiculosInterrompidos++;
+                System.out.printf("[vigia %s] Interrompendo o veículo %d para desfazer o ciclo%n", instante(agora),
+                        vitima);
+                interromperVeiculo.accept(vitima);
+            }
+        }
+    }
+
+    private String instante(long agora) {
+        return String.format("%.1f s", (agora - inicioNanos) / 1e9);
+    }
+
+    public Situacao getSituacao() {
+        return situacao;
+    }
+
+    public void imprimirResumo(PrintStream saida) {
+        imprimirResumo(saida, situacao);
+    }
+
+    /**
+     * Imprime uma situação lida antes (ex.: no fim da duração do modo headless, antes do encerramento).
+     */
+    public void imprimirResumo(PrintStream saida, Situacao s) {
+        saida.println("===== Vigia de bloqueios =====");
+        saida.printf("Estado:                 %s (há %.1f s)%n", s.getEstado(), s.getDuracaoEstadoMs() / 1000.0);
+        saida.printf("Deadlocks confirmados:  %d (%d veículos interrompidos, política %s)%n", s.getDeadlocks(),
+                s.getVeiculosInterrompidos(), politica);
+        saida.printf("Vazão zero:             %.1f s no total, em %d períodos (maior %.1f s)%n",
+                s.getTempoParadoMs() / 1000.0, s.getParadas(), s.getMaiorParadaMs() / 1000.0);
+        for (Ciclo ciclo : s.getCiclos()) {
+            saida.printf("  ciclo de %d veículos: %s%n", ciclo.veiculos.length, ciclo.descrever(malha));
+        }
+    }
+
+    /**
+     * Veículos de um ciclo do grafo de espera e a célula que cada um espera.
+     */
+    public static final class Ciclo {
+        private final int[] veiculos;
+        private final int[] celulas;
+
+        Ciclo(List<Integer> veiculos, Map<Integer, Integer> esperas) {
+            this.veiculos = new int[veiculos.size()];
+            this.celulas = new int[veiculos.size()];
+            for (int i = 0; i < this.veiculos.length; i++) {
+                this.veiculos[i] = veiculos.get(i);
+                this.celulas[i] = esperas.get(veiculos.get(i));
+            }
+        }
+
+        public int getQuantidade() {
+            return veiculos.length;
+        }
+
+        int menorVeiculo() {
+            int menor = Integer.MAX_VALUE;
+            for (int v : veiculos) {
+                menor = Math.min(menor, v);
+            }
+            return menor;
+        }
+
+        public int getVeiculo(int i) {
+            return veiculos[i];
+        }
+
+        public int getCelula(int i) {
+            return celulas[i];
+        }
+
+        String descrever(Malha malha) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(celulas.length, CELULAS_NO_LOG); i++) {
+                sb.append(i > 0 ? " " : "").append('(').append(malha.getLinha(celulas[i])).append(", ")
+                        .append(malha.getColuna(celulas[i])).append(')');
+            }
+            if (celulas.length > CELULAS_NO_LOG) {
+                sb.append(" ...");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Retrato imutável do vigia: o estado atual, os ciclos confirmados na última volta e os totais.
+     */
+    public static final class Situacao {
+        private final Estado estado;
+        private final long duracaoEstadoMs;
+        private final List<Ciclo> ciclos;
+        private final long deadlocks;
+        private final long veiculosInterrompidos;
+        private final long paradas;
+        private final long tempoParadoMs;
+        private final long maiorParadaMs;
+
+        Situacao(Estado estado, long duracaoEstadoMs, List<Ciclo> ciclos, VigiaBloqueios vigia) {
+            this.estado = estado;
+            this.duracaoEstadoMs = duracaoEstadoMs;
+            this.ciclos = List.copyOf(ciclos);
+            this.deadlocks = vigia.deadlocks;
+            this.veiculosInterrompidos = vigia.veiculosInterrompidos;
+            this.paradas = vigia.paradas;
+            this.tempoParadoMs = vigia.tempoParadoNanos / 1_000_000;
+            this.maiorParadaMs = vigia.maiorParadaNanos / 1_000_000;
+        }
+
+        /**
+         * Os ciclos de um grafo em que cada veículo tem uma aresta só são disjuntos: o menor id
+         * identifica o ciclo.
+         */
+        boolean contem(Ciclo ciclo) {
+            for (Ciclo c : ciclos) {
+                if (c.menorVeiculo() == ciclo.menorVeiculo())
+                    return true;
+            }
+            return false;
+        }
+
+        public Estado getEstado() {
+            return estado;
+        }
+
+        /** Há quanto tempo o estado atual começou, na última volta do vigia. */
+        public long getDuracaoEstadoMs() {
+            return duracaoEstadoMs;
+        }
+
+        public List<Ciclo> getCiclos() {
+            return ciclos;
+        }
+
+        public long getDeadlocks() {
+            return deadlocks;
+        }
+
+        public long getVeiculosInterrompidos() {
+            return veiculosInterrompidos;
+        }
+
+        /** Períodos em que nenhum veículo deu um passo, com veículos ativos. */
+        public long getParadas() {
+            return paradas;
+        }
+
+        public long getTempoParadoMs() {
+            return tempoParadoMs;
+        }
+
+        public long getMaiorParadaMs() {
+            return maiorParadaMs;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+
+import model.metricas.Histograma;
+import model.rastro.FormatoRastro;
+import model.rastro.LeitorRastro;
+
+/**
+ * Calcula, sem rodar a simulação, a vazão e as células mais disputadas de um rastro gravado com
+ * SimuladorHeadless --rastro. O arquivo é lido uma vez, mapeado em memória (ver LeitorRastro), e a
+ * memória usada depende da malha, do número de veículos e das janelas, não do tamanho do rastro.
+ *
+ * Uso: java main.AnalisadorRastro &lt;arquivo-rastro&gt; [opções]
+ *   --janela S         largura, em segundos, das janelas da série de vazão (padrão 10)
+ *   --celulas N        células mais disputadas a listar (padrão 10)
+ */
+public class AnalisadorRastro {
+
+    private final int colunas;
+    private final long larguraJanelaNanos;
+    // Por célula: quantas vezes um veículo entrou nela e quanto esperou por ela.
+    private final long[] visitas;
+    private final long[] esperaNanos;
+    // Por janela de tempo: passos e saídas.
+    private long[] passosPorJanela = new long[64];
+    private long[] saidasPorJanela = new long[64];
+    private int janelas = 0;
+    // Instante de entrada de cada veículo, indexado pelo id (os ids são sequenciais).
+    private long[] entradas = new long[1024];
+    private final Histograma viagem = new Histograma();
+    private final Histograma espera = new Histograma();
+    private long registros = 0;
+    private long passos = 0;
+    private long veiculosEntrados = 0;
+    private long saidas = 0;
+    private long interrompidos = 0;
+    private long ultimoInstante = 0;
+    private int ativos = 0;
+    // Maior trecho, com veículos na malha, sem nenhum passo.
+    private long ultimoPasso = 0;
+    private long maiorParada = 0;
+    private long inicioMaiorParada = 0;
+
+    AnalisadorRastro(int linhas, int colunas, long larguraJanelaNanos) {
+        this.colunas = colunas;
+        this.larguraJanelaNanos = larguraJanelaNanos;
+        this.visitas = new long[linhas * colunas];
+        this.esperaNanos = new long[linhas * colunas];
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            imprimirUso();
+            System.exit(1);
+        }
+        String caminhoRastro = args[0];
+        long janelaSegundos = 10;
+        int celulasListadas = 10;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                case "--janela":
+                    janelaSegundos = Long.parseLong(args[++i]);
+                    if (janelaSegundos <= 0) {
+                        throw new IllegalArgumentException("Janela deve ser positiva: " + janelaSegundos);
+                    }
+                    break;
+                case "--celulas":
+                    celulasListadas = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : "Argumentos inválidos.");
+            imprimirUso();
+            System.exit(1);
+        }
+
+        try (LeitorRastro leitor = LeitorRastro.abrir(Path.of(caminhoRastro))) {
+            AnalisadorRastro analisador = new AnalisadorRastro(leitor.getLinhas(), leitor.getColunas(),
+                    janelaSegundos * 1_000_000_000L);
+            long inicio = System.nanoTime();
+            while (leitor.proximo()) {
+                analisador.registrar(leitor.getInstanteNanos(), leitor.getVeiculo(), leitor.getDe(), leitor.getPara(),
+                        leitor.getEsperaNanos());
+            }
+            double segundosLeitura = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+            System.out.printf("Rastro %s: malha %dx%d, gravado em %s%n", caminhoRastro, leitor.getLinhas(),
+                    leitor.getColunas(), new Date(leitor.getInicioEpochMs()));
+            analisador.imprimir(System.out, celulasListadas);
+            long bytes = FormatoRastro.TAMANHO_CABECALHO + leitor.getQuantidade() * FormatoRastro.TAMANHO_REGISTRO;
+            System.out.printf("Leitura:                %d registros em %.2f s (%.0f MB/s)%n", leitor.getQuantidade(),
+                    segundosLeitura, bytes / 1e6 / Math.max(segundosLeitura, 1e-9));
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o rastro: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    void registrar(long instante, int veiculo, int de, int para, long esperaRegistro) {
+        registros++;
+        ultimoInstante = Math.max(ultimoInstante, instante);
+        int janela = (int) (instante / larguraJanelaNanos);
+        if (janela >= passosPorJanela.length) {
+            int tamanho = Math.max(janela + 1, passosPorJanela.length * 2);
+            passosPorJanela = Arrays.copyOf(passosPorJanela, tamanho);
+            saidasPorJanela = Arrays.copyOf(saidasPorJanela, tamanho);
+        }
+        janelas = Math.max(janelas, janela + 1);
+        if (veiculo >= entradas.length) {
+            entradas = Arrays.copyOf(entradas, Math.max(veiculo + 1, entradas.length * 2));
+        }
+
+        if (para >= 0) {
+            // Entrada ou passo: o veículo passa a ocupar a célula de destino.
+            visitas[para]++;
+            esperaNanos[para] += esperaRegistro;
+            espera.registrar(esperaRegistro);
+            if (ativos > 0 && instante - ultimoPasso > maiorParada) {
+                maiorParada = instante - ultimoPasso;
+                inicioMaiorParada = ultimoPasso;
+            }
+            ultimoPasso = instante;
+            if (de == FormatoRastro.FORA) {
+                veiculosEntrados++;
+                ativos++;
+                entradas[veiculo] = instante;
+            } else {
+                passos++;
+                passosPorJanela[janela]++;
+            }
+        } else {
+            ativos--;
+            if (para == FormatoRastro.FORA) {
+                saidas++;
+                saidasPorJanela[janela]++;
+                viagem.registrar(instante - entradas[veiculo]);
+            } else {
+                interrompidos++;
+            }
+        }
+    }
+
+    void imprimir(PrintStream saida, int celulasListadas) {
+        double segundos = Math.max(ultimoInstante, 1) / 1_000_000_000.0;
+        saida.println("===== Resumo do rastro =====");
+        saida.printf("Duração:                %.2f s, %d registros%n", segundos, registros);
+        saida.printf("Veículos que entraram:  %d%n", veiculosEntrados);
+        saida.printf("Veículos que saíram:    %d%n", saidas);
+        saida.printf("Veículos interrompidos: %d%n", interrompidos);
+        saida.printf("Vazão:                  %.3f veículos/s%n", saidas / segundos);
+        saida.printf("Passos:                 %d (%.1f passos/s)%n", passos, passos / segundos);
+        saida.printf("Viagem média:           %.1f ms (p50 %.1f, p95 %.1f, máxima %.1f ms)%n", viagem.getMediaMs(),
+                viagem.getPercentilMs(50), viagem.getPercentilMs(95), viagem.getMaximoMs());
+        saida.printf("Espera por célula:      média %.1f ms, p95 %.1f ms, máxima %.1f ms%n", espera.getMediaMs(),
+                espera.getPercentilMs(95), espera.getMaximoMs());
+        saida.printf("Maior tempo parado:     %.1f s, a partir de %.1f s%n", maiorParada / 1e9,
+                inicioMaiorParada / 1e9);
+
+        saida.printf("Vazão por janela de %d s (início, saídas/s, passos/s):%n", larguraJanelaNanos / 1_000_000_000L);
+        double largura = larguraJanelaNanos / 1e9;
+        for (int j = 0; j < janelas; j++) {
+            saida.printf("  %8.0f s  %8.2f  %10.1f%n", j * largura, saidasPorJanela[j] / largura,
+                    passosPorJanela[j] / largura);
+        }
+
+        saida.println("Células mais disputadas (linha, coluna):");
+        Integer[] ordem = new Integer[visitas.length];
+        for (int c = 0; c < ordem.length; c++) {
+            ordem[c] = c;
+        }
+        Arrays.sort(ordem, (a, b) -> Long.compare(esperaNanos[b], esperaNanos[a]));
+        for (int i = 0; i < Math.min(celulasListadas, ordem.length); i++) {
+            int c = ordem[i];
+            if (visitas[c] == 0)
+                break;
+            saida.printf("  (%d, %d) %10d visitas, %12.1f ms de espera (média %.1f ms)%n", c / colunas, c % colunas,
+                    visitas[c], esperaNanos[c] / 1e6, esperaNanos[c] / 1e6 / visitas[c]);
+        }
+    }
+
+    private static void imprimirUso() {
+        System.err.println("Uso: java main.AnalisadorRastro <arquivo-rastro> [--janela S] [--celulas N]");
+    }
+}
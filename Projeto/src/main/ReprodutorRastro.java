@@ -0,0 +1,88 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.swing.SwingUtilities;
+
+import controller.LacoRenderizacao;
+import controller.ReproducaoRastro;
+import model.Malha;
+import model.rastro.LeitorRastro;
+import util.LeitorMalha;
+import view.JanelaReproducao;
+
+/**
+ * Reproduz na interface gráfica um rastro gravado com SimuladorHeadless --rastro.
+ *
+ * Uso: java main.ReprodutorRastro &lt;arquivo-malha&gt; &lt;arquivo-rastro&gt; [opções]
+ *   --velocidade X     segundos do rastro por segundo real (padrão 1; pode ser mudada na janela)
+ *   --quadros N        quadros por segundo do desenho (padrão 30)
+ */
+public class ReprodutorRastro {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            imprimirUso();
+            System.exit(1);
+        }
+        String caminhoMalha = args[0];
+        String caminhoRastro = args[1];
+        double velocidade = 1.0;
+        int quadrosPorSegundo = LacoRenderizacao.QUADROS_POR_SEGUNDO_PADRAO;
+
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                case "--velocidade":
+                    velocidade = Double.parseDouble(args[++i]);
+                    if (velocidade <= 0) {
+                        throw new IllegalArgumentException("Velocidade deve ser positiva: " + velocidade);
+                    }
+                    break;
+                case "--quadros":
+                    quadrosPorSegundo = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : "Argumentos inválidos.");
+            imprimirUso();
+            System.exit(1);
+        }
+
+        Malha malha = LeitorMalha.lerArquivo(caminhoMalha);
+        if (malha == null) {
+            System.err.println("Erro ao ler o arquivo da malha: " + caminhoMalha);
+            System.exit(1);
+        }
+        LeitorRastro leitor = null;
+        try {
+            leitor = LeitorRastro.abrir(Path.of(caminhoRastro));
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir o rastro: " + e.getMessage());
+            System.exit(1);
+        }
+        if (leitor.getLinhas() != malha.getLinhas() || leitor.getColunas() != malha.getColunas()) {
+            System.err.printf("O rastro é de uma malha %dx%d, não %dx%d%n", leitor.getLinhas(), leitor.getColunas(),
+                    malha.getLinhas(), malha.getColunas());
+            System.exit(1);
+        }
+
+        ReproducaoRastro reproducao = new ReproducaoRastro(leitor);
+        reproducao.setVelocidade(velocidade);
+        final int quadros = quadrosPorSegundo;
+        SwingUtilities.invokeLater(() -> {
+            JanelaReproducao janela = new JanelaReproducao(caminhoRastro, malha, reproducao);
+            janela.setVisible(true);
+            new LacoRenderizacao(reproducao::avancar, janela.getPainelMalha()::setQuadro, quadros).iniciar();
+        });
+    }
+
+    private static void imprimirUso() {
+        System.err.println("Uso: java main.ReprodutorRastro <arquivo-malha> <arquivo-rastro> [--velocidade X]"
+                + " [--quadros N]");
+    }
+}
@@ -0,0 +1,372 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import controller.GeradorChegadas;
+import controller.MotorEventosDiscretos;
+import controller.MotorParticionado;
+import controller.PoliticaBloqueio;
+import controller.Simulacao;
+import controller.VigiaBloqueios;
+import model.EscalaTempo;
+import model.Malha;
+import model.ModoExecucao;
+import model.PerfilDemanda;
+import model.ProcessoChegada;
+import model.metricas.ColetorMetricas;
+import model.metricas.InstantaneoMetricas;
+import model.metricas.RecursosJvm;
+import model.rastro.GravadorRastro;
+import model.sincronizacao.EstrategiaEspera;
+import model.sincronizacao.EstrategiaSincronizacao;
+import model.sincronizacao.ModoEsperaCruzamento;
+import model.sincronizacao.ModoReserva;
+import util.LeitorMalha;
+import util.LeitorPerfilDemanda;
+
+/**
+ * Executa a simulação sem interface gráfica, para testes de carga em máquinas sem display.
+ *
+ * Uso: java main.SimuladorHeadless &lt;arquivo-malha&gt; [opções]
+ *   --veiculos N       quantidade máxima de veículos simultâneos (padrão 10)
+ *   --intervalo MS     intervalo médio entre chegadas em cada entrada, em ms (padrão 100)
+ *   --chegadas P       fixo | poisson | rajadas: processo de chegada das entradas (padrão fixo)
+ *   --perfil ARQ       perfil de demanda: taxas por entrada ao longo do tempo e destinos
+ *                      (ver LeitorPerfilDemanda); só no motor com threads
+ *   --estrategia E     semaforo | monitor | atomico (padrão semaforo)
+ *   --espera E         girar | ceder | estacionar: espera do adquirir na estratégia atomico
+ *                      (padrão estacionar)
+ *   --reserva R        tentativa | ordenada | aglomerado: reserva dos caminhos de cruzamento, célula
+ *                      a célula, em ordem canônica ou o cruzamento inteiro num CAS (padrão tentativa)
+ *   --cruzamento C     fixa | notificada: espera depois de uma reserva que falhou, de velocidade ms
+ *                      ou até o cruzamento ter uma célula liberada (padrão fixa)
+ *   --duracao S        duração da simulação em segundos (padrão 30); no fim dela a inserção e o relógio
+ *                      param, e o resumo é desse instante, sem o encerramento dos veículos
+ *   --escala E         fator do tempo simulado (ex.: 10 para 10x, padrão 1) ou maxima, em que os
+ *                      veículos não dormem e as entradas nunca ficam vazias; a duração, as chegadas e
+ *                      as métricas seguem o tempo simulado (na máxima, o real). Só no motor com threads
+ *   --modo M           plataforma | virtual: tipo de thread de cada veículo (padrão plataforma)
+ *   --motor M          threads | discreto | particionado (padrão threads). No motor discreto a duração
+ *                      é em tempo simulado e toda a simulação roda numa única thread, sem Thread.sleep;
+ *                      o particionado divide a malha em faixas de linhas, uma thread por faixa.
+ *                      Esses dois usam só --veiculos, --intervalo, --duracao e --semente (e --particoes,
+ *                      o particionado); as demais opções são recusadas com eles, em vez de ignoradas.
+ *   --particoes N      faixas do motor particionado (padrão: número de processadores); o resultado
+ *                      é o mesmo do motor discreto com qualquer N, só o tempo real muda
+ *   --semente N        semente de todas as sequências aleatórias (padrão 42): velocidades, rotas,
+ *                      chegadas e destinos. Nos motores discreto e particionado a execução inteira
+ *                      se repete; no motor com threads, as escolhas de cada veículo.
+ *   --vigia MS         intervalo do vigia de deadlocks e travamentos (padrão 1000; 0 desliga)
+ *   --bloqueio P       reportar | interromper: o que o vigia faz com um deadlock (padrão reportar)
+ *   --limiar MS        tempo simulado sem nenhum passo para o vigia dar a simulação como parada
+ *                      (padrão 5000); na escala máxima, é tempo real
+ *   --instrumentacao I ligada | desligada: espera e disputa por célula (padrão ligada); desligada
+ *                      poupa a memória por célula das malhas grandes, mas o vigia a liga (use --vigia 0)
+ *   --rastro ARQ       grava cada movimento dos veículos em ARQ (ver FormatoRastro), para o
+ *                      ReprodutorRastro e o AnalisadorRastro; só no motor com threads
+ *   --relatorio S      imprime as taxas do momento a cada S segundos (padrão 0, desligado)
+ */
+public class SimuladorHeadless {
+
+    /** Opções que só o motor com threads usa; os motores discreto e particionado as recusam. */
+    private static final Set<String> OPCOES_SO_THREADS = Set.of("--chegadas", "--perfil", "--estrategia",
+            "--espera", "--reserva", "--cruzamento", "--escala", "--modo", "--vigia", "--bloqueio", "--limiar",
+            "--instrumentacao", "--rastro", "--relatorio");
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            imprimirUso();
+            System.exit(1);
+        }
+
+        String caminhoMalha = args[0];
+        int qtdVeiculos = 10;
+        long intervalo = 100;
+        ProcessoChegada chegadas = ProcessoChegada.FIXO;
+        String caminhoPerfil = null;
+        EstrategiaSincronizacao estrategia = EstrategiaSincronizacao.SEMAFORO;
+        EstrategiaEspera espera = EstrategiaEspera.ESTACIONAR;
+        ModoReserva reserva = ModoReserva.TENTATIVA;
+        ModoEsperaCruzamento esperaCruzamento = ModoEsperaCruzamento.FIXA;
+        long duracaoSegundos = 30;
+        String escala = "1";
+        ModoExecucao modo = ModoExecucao.PLATAFORMA;
+        String motor = "threads";
+        int particoes = Runtime.getRuntime().availableProcessors();
+        long semente = 42;
+        long relatorioSegundos = 0;
+        long intervaloVigia = VigiaBloqueios.INTERVALO_PADRAO_MS;
+        PoliticaBloqueio politicaBloqueio = PoliticaBloqueio.REPORTAR;
+        long limiarSemProgresso = VigiaBloqueios.LIMIAR_SEM_PROGRESSO_PADRAO_MS;
+        boolean instrumentacao = true;
+        String caminhoRastro = null;
+        List<String> opcoesSoThreads = new ArrayList<>();
+        boolean particoesDadas = false;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (OPCOES_SO_THREADS.contains(args[i])) {
+                    opcoesSoThreads.add(args[i]);
+                }
+                switch (args[i]) {
+                case "--veiculos":
+                    qtdVeiculos = Integer.parseInt(args[++i]);
+                    break;
+                case "--intervalo":
+                    intervalo = Long.parseLong(args[++i]);
+                    break;
+                case "--chegadas":
+                    chegadas = ProcessoChegada.porNome(args[++i]);
+                    break;
+                case "--perfil":
+                    caminhoPerfil = args[++i];
+                    break;
+                case "--estrategia":
+                    estrategia = EstrategiaSincronizacao.porNome(args[++i]);
+                    break;
+                case "--espera":
+                    espera = EstrategiaEspera.porNome(args[++i]);
+                    break;
+                case "--reserva":
+                    reserva = ModoReserva.porNome(args[++i]);
+                    break;
+                case "--cruzamento":
+                    esperaCruzamento = ModoEsperaCruzamento.porNome(args[++i]);
+                    break;
+                case "--duracao":
+                    duracaoSegundos = Long.parseLong(args[++i]);
+                    break;
+                case "--escala":
+                    escala = args[++i];
+                    new EscalaTempo().definir(escala);
+                    break;
+                case "--modo":
+                    modo = ModoExecucao.porNome(args[++i]);
+                    break;
+                case "--motor":
+                    motor = args[++i].toLowerCase();
+                    if (!motor.equals("threads") && !motor.equals("discreto") && !motor.equals("particionado")) {
+                        throw new IllegalArgumentException("Motor desconhecido: " + motor);
+                    }
+                    break;
+                case "--particoes":
+                    particoes = Integer.parseInt(args[++i]);
+                    particoesDadas = true;
+                    break;
+                case "--semente":
+                    semente = Long.parseLong(args[++i]);
+                    break;
+                case "--vigia":
+                    intervaloVigia = Long.parseLong(args[++i]);
+                    break;
+                case "--bloqueio":
+                    politicaBloqueio = PoliticaBloqueio.porNome(args[++i]);
+                    break;
+                case "--limiar":
+                    limiarSemProgresso = Long.parseLong(args[++i]);
+                    break;
+                case "--instrumentacao":
+                    String valor = args[++i].toLowerCase();
+                    if (!valor.equals("ligada") && !valor.equals("desligada")) {
+                        throw new IllegalArgumentException("Instrumentação deve ser ligada ou desligada: " + valor);
+                    }
+                    instrumentacao = valor.equals("ligada");
+                    break;
+                case "--rastro":
+                    caminhoRastro = args[++i];
+                    break;
+                case "--relatorio":
+                    relatorioSegundos = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : "Argumentos inválidos.");
+            imprimirUso();
+            System.exit(1);
+        }
+
+        if (caminhoRastro != null && !motor.equals("threads")) {
+            System.err.println("--rastro só é gravado no motor com threads.");
+            System.exit(1);
+        }
+        if (!escala.equals("1") && !motor.equals("threads")) {
+            System.err.println("--escala só vale para o motor com threads; os outros já rodam em tempo simulado.");
+            System.exit(1);
+        }
+        // Ignoradas, dariam números com cara de válidos (ex.: um perfil de demanda que não foi aplicado).
+        if (!opcoesSoThreads.isEmpty() && !motor.equals("threads")) {
+            System.err.println(String.join(", ", opcoesSoThreads) + ": só no motor com threads; o motor " + motor
+                    + " não usa.");
+            System.exit(1);
+        }
+        if (particoesDadas && !motor.equals("particionado")) {
+            System.err.println("--particoes só vale para o motor particionado.");
+            System.exit(1);
+        }
+
+        Malha malha = LeitorMalha.lerArquivo(caminhoMalha);
+        if (malha == null) {
+            System.err.println("Erro ao ler o arquivo da malha: " + caminhoMalha);
+            System.exit(1);
+        }
+
+        if (motor.equals("particionado")) {
+            System.out.printf("Malha %s (%dx%d), %d veículos, intervalo %d ms, motor particionado (%d partições),"
+                    + " %d s simulados%n", caminhoMalha, malha.getLinhas(), malha.getColunas(), qtdVeiculos,
+                    intervalo, particoes, duracaoSegundos);
+            executarParticionado(malha, qtdVeiculos, intervalo, duracaoSegundos, semente, particoes);
+            System.exit(0);
+        }
+        if (motor.equals("discreto")) {
+            System.out.printf("Malha %s (%dx%d), %d veículos, intervalo %d ms, motor discreto, %d s simulados%n",
+                    caminhoMalha, malha.getLinhas(), malha.getColunas(), qtdVeiculos, intervalo, duracaoSegundos);
+            executarDiscreto(malha, qtdVeiculos, intervalo, duracaoSegundos, semente);
+            System.exit(0);
+        }
+
+        System.out.printf("Malha %s (%dx%d), %d veículos, intervalo %d ms, chegadas %s, estratégia %s,"
+                + " reserva %s, cruzamento %s, threads %s, %d s, escala %s, semente %d%n", caminhoMalha,
+                malha.getLinhas(), malha.getColunas(), qtdVeiculos, intervalo, chegadas, estrategia, reserva,
+                esperaCruzamento, modo, duracaoSegundos, escala, semente);
+
+        final int maxVeiculos = qtdVeiculos;
+        final long intervaloInsercao = intervalo;
+        Simulacao simulacao = new Simulacao(malha, estrategia.criar(malha, espera), () -> maxVeiculos,
+                () -> intervaloInsercao);
+        simulacao.setModoExecucao(modo);
+        simulacao.setModoReserva(reserva);
+        simulacao.setModoEsperaCruzamento(esperaCruzamento);
+        simulacao.setProcessoChegada(chegadas);
+        simulacao.setSemente(semente);
+        simulacao.setVigiaBloqueios(intervaloVigia, politicaBloqueio);
+        simulacao.setLimiarSemProgresso(limiarSemProgresso);
+        simulacao.setInstrumentacao(instrumentacao);
+        simulacao.getEscalaTempo().definir(escala);
+        if (caminhoPerfil != null) {
+            PerfilDemanda perfil = LeitorPerfilDemanda.lerArquivo(caminhoPerfil, malha);
+            if (perfil == null) {
+                System.err.println("Erro ao ler o perfil de demanda: " + caminhoPerfil);
+                System.exit(1);
+            }
+            System.out.printf("Perfil de demanda %s, %d destinos%n", caminhoPerfil, perfil.getQuantidadeDestinos());
+            simulacao.setPerfilDemanda(perfil);
+        }
+        GravadorRastro rastro = null;
+        if (caminhoRastro != null) {
+            try {
+                rastro = GravadorRastro.abrir(Path.of(caminhoRastro), malha.getLinhas(), malha.getColunas(),
+                        simulacao.getEscalaTempo()::agoraNanos);
+            } catch (IOException e) {
+                System.err.println("Erro ao criar o rastro: " + e.getMessage());
+                System.exit(1);
+            }
+            simulacao.setGravadorRastro(rastro);
+        }
+        long inicioReal = System.nanoTime();
+        simulacao.iniciar();
+        aguardarComRelatorios(simulacao, duracaoSegundos * 1000, relatorioSegundos * 1000);
+        // O resumo é o retrato do fim da duração: o encerramento, que numa escala alta leva muito
+        // tempo simulado, não entra na duração, na vazão nem nas latências.
+        InstantaneoMetricas resumo = simulacao.congelar();
+        double segundosReais = (System.nanoTime() - inicioReal) / 1_000_000_000.0;
+        // Chegadas e vigia do mesmo instante: o encerramento ainda muda os dois.
+        GeradorChegadas gerador = simulacao.getGeradorChegadas();
+        long chegadasGeradas = gerador.getChegadas();
+        long chegadasInseridas = gerador.getInseridos();
+        long chegadasDescartadas = gerador.getDescartadas();
+        long chegadasNaFila = gerador.getNaFila();
+        VigiaBloqueios vigia = simulacao.getVigiaBloqueios();
+        VigiaBloqueios.Situacao situacaoVigia = vigia != null ? vigia.getSituacao() : null;
+        // Os recursos são lidos antes do encerramento, com todos os veículos ainda vivos.
+        RecursosJvm.imprimirResumo(System.out);
+        simulacao.encerrarEAguardar(5000);
+        if (rastro != null) {
+            rastro.fechar();
+        }
+
+        resumo.imprimirResumo(System.out);
+        System.out.printf("Tempo real:             %.3f s (escala %s)%n", segundosReais, simulacao.getEscalaTempo());
+        System.out.printf("Chegadas:               %d (%.1f/s pedidas), %d inseridas, %d descartadas, %d na fila%n",
+                chegadasGeradas, malha.getCelulasDeEntrada().length * 1000.0 / Math.max(1, intervalo),
+                chegadasInseridas, chegadasDescartadas, chegadasNaFila);
+        resumo.imprimirReservas(System.out);
+        resumo.imprimir(System.out);
+        if (vigia != null) {
+            vigia.imprimirResumo(System.out, situacaoVigia);
+        }
+        if (rastro != null) {
+            System.out.printf("Rastro:                 %d registros, %.2f MB em %s (%d descartados, %d esperas por buffer)%n",
+                    rastro.getRegistros(), rastro.getBytesEscritos() / 1e6, caminhoRastro, rastro.getDescartados(),
+                    rastro.getEsperasPorBuffer());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Dorme pela duração da simulação, imprimindo um retrato a cada {@code intervaloMs} (se > 0).
+     * Os dois são em tempo simulado e contam do início do ColetorMetricas (ver Simulacao.iniciar),
+     * para que a duração do resumo seja a pedida.
+     */
+    private static void aguardarComRelatorios(Simulacao simulacao, long duracaoMs, long intervaloMs)
+            throws InterruptedException {
+        EscalaTempo escala = simulacao.getEscalaTempo();
+        ColetorMetricas metricas = simulacao.getMetricas();
+        long passo = intervaloMs > 0 ? intervaloMs * 1_000_000L : Long.MAX_VALUE;
+        InstantaneoMetricas anterior = simulacao.getInstantaneo();
+        long restante;
+        while ((restante = duracaoMs * 1_000_000L - metricas.getDuracaoNanos()) > 0) {
+            long nanos = escala.paraNanosReais(Math.min(passo, restante));
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            if (intervaloMs <= 0)
+                continue;
+            InstantaneoMetricas atual = simulacao.getInstantaneo();
+            System.out.printf("[%5.1f s] %s%n", metricas.getDuracaoNanos() / 1e9, atual.getLinhaResumo(anterior));
+            anterior = atual;
+        }
+    }
+
+    private static void executarDiscreto(Malha malha, int qtdVeiculos, long intervalo, long duracaoSegundos,
+            long semente) {
+        MotorEventosDiscretos motor = new MotorEventosDiscretos(malha, qtdVeiculos, intervalo, semente);
+        long inicio = System.nanoTime();
+        motor.executar(duracaoSegundos * 1000);
+        double segundosReais = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        motor.getMetricas().imprimirResumo(System.out, motor.getAgoraMs() * 1_000_000L);
+        System.out.printf("Tempo real:             %.3f s (%.0fx o tempo simulado)%n", segundosReais,
+                duracaoSegundos / segundosReais);
+    }
+
+    private static void executarParticionado(Malha malha, int qtdVeiculos, long intervalo, long duracaoSegundos,
+            long semente, int particoes) {
+        MotorParticionado motor = new MotorParticionado(malha, qtdVeiculos, intervalo, semente, particoes);
+        long inicio = System.nanoTime();
+        motor.executar(duracaoSegundos * 1000);
+        double segundosReais = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        motor.getMetricas().imprimirResumo(System.out, motor.getAgoraMs() * 1_000_000L);
+        System.out.printf("Tempo real:             %.3f s (%.0fx o tempo simulado)%n", segundosReais,
+                duracaoSegundos / segundosReais);
+        System.out.printf("Partições:              %d, %d janelas, %d passos entre partições (%.2f%%)%n",
+                motor.getParticoes(), motor.getJanelas(), motor.getTransferencias(),
+                100.0 * motor.getTransferencias() / Math.max(1, motor.getMetricas().getPassos()));
+    }
+
+    private static void imprimirUso() {
+        System.err.println("Uso: java main.SimuladorHeadless <arquivo-malha> [--veiculos N] [--intervalo MS]"
+                + " [--chegadas fixo|poisson|rajadas] [--perfil ARQ]"
+                + " [--estrategia semaforo|monitor|atomico] [--espera girar|ceder|estacionar]"
+                + " [--reserva tentativa|ordenada|aglomerado] [--cruzamento fixa|notificada] [--duracao S]"
+                + " [--escala F|maxima] [--modo plataforma|virtual] [--motor threads|discreto|particionado]"
+                + " [--particoes N] [--semente N] [--vigia MS] [--bloqueio reportar|interromper] [--limiar MS]"
+                + " [--instrumentacao ligada|desligada] [--rastro ARQ]"
+                + " [--relatorio S]");
+    }
+}
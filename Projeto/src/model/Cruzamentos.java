@@ -0,0 +1,136 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Os cruzamentos da malha, calculados uma vez na carga: cada conjunto conexo (vizinhança de 4)
+ * de células de cruzamento (tipo 5 a 12) forma um aglomerado, que é o que os veículos disputam
+ * como uma interseção só.
+ *
+ * As células de cruzamento ficam num array ordenado, e cada uma tem uma posição fixa nele
+ * (getIndice), usada para guardar estado por célula de cruzamento sem um array do tamanho da malha,
+ * e uma posição dentro do seu aglomerado (getPosicao), de 0 ao tamanho do aglomerado - 1.
+ *
+ * getIndice e getAglomerado são chamados a cada aproximação de um cruzamento, nos dois motores e
+ * nos gerenciadores; por isso a posição de cada célula fica num int[] do tamanho da malha, montado
+ * na carga, e a consulta é um acesso ao array.
+ */
+public final class Cruzamentos {
+
+    /** Devolvido para células que não são cruzamento. */
+    public static final int SEM_AGLOMERADO = -1;
+
+    private final int[] celulas;
+    // Por célula da malha: a posição dela em celulas, ou -1 se não for cruzamento.
+    private final int[] indices;
+    private final int[] aglomerados;
+    private final int[] posicoes;
+    private final int[] tamanhos;
+
+    private Cruzamentos(int[] celulas, int[] indices, int[] aglomerados, int[] posicoes, int[] tamanhos) {
+        this.celulas = celulas;
+        this.indices = indices;
+        this.aglomerados = aglomerados;
+        this.posicoes = posicoes;
+        this.tamanhos = tamanhos;
+    }
+
+    static Cruzamentos calcular(Malha malha) {
+        int total = malha.getTotalCelulas();
+        int n = 0;
+        for (int c = 0; c < total; c++) {
+            if (malha.getTipo(c) >= 5)
+                n++;
+        }
+        int[] celulas = new int[n];
+        int[] indices = new int[total];
+        Arrays.fill(indices, -1);
+        n = 0;
+        for (int c = 0; c < total; c++) {
+            if (malha.getTipo(c) >= 5) {
+                indices[c] = n;
+                celulas[n++] = c;
+            }
+        }
+
+        // Busca em largura sobre as células de cruzamento, numerando os aglomerados na ordem das células.
+        int[] aglomerados = new int[n];
+        Arrays.fill(aglomerados, SEM_AGLOMERADO);
+        int[] posicoes = new int[n];
+        int[] fila = new int[n];
+        int[] tamanhos = new int[n];
+        int quantidade = 0;
+        for (int i = 0; i < n; i++) {
+            if (aglomerados[i] != SEM_AGLOMERADO)
+                continue;
+            int a = quantidade++;
+            aglomerados[i] = a;
+            int inicio = 0;
+            int fim = 0;
+            fila[fim++] = i;
+            while (inicio < fim) {
+                int atual = fila[inicio++];
+                int celula = celulas[atual];
+                posicoes[atual] = tamanhos[a]++;
+                for (int direcao = 1; direcao <= 4; direcao++) {
+                    int vizinha = malha.getVizinha(celula, direcao);
+                    if (vizinha == Malha.SEM_CELULA || malha.getTipo(vizinha) < 5)
+                        continue;
+                    int j = indices[vizinha];
+                    if (aglomerados[j] == SEM_AGLOMERADO) {
+                        aglomerados[j] = a;
+                        fila[fim++] = j;
+                    }
+                }
+            }
+        }
+        return new Cruzamentos(celulas, indices, aglomerados, posicoes, Arrays.copyOf(tamanhos, quantidade));
+    }
+
+    /**
+     * @return posição da célula entre as células de cruzamento (0 a getQuantidadeCelulas() - 1), ou
+     *         -1 se ela não for cruzamento.
+     */
+    public int getIndice(int celula) {
+        return indices[celula];
+    }
+
+    /**
+     * @return o aglomerado da célula, ou SEM_AGLOMERADO se ela não for cruzamento.
+     */
+    public int getAglomerado(int celula) {
+        int i = indices[celula];
+        return i >= 0 ? aglomerados[i] : SEM_AGLOMERADO;
+    }
+
+    /**
+     * @param indice posição dada por getIndice.
+     */
+    public int getAglomeradoPorIndice(int indice) {
+        return aglomerados[indice];
+    }
+
+    /**
+     * @param indice posição dada por getIndice.
+     * @return posição da célula dentro do seu aglomerado.
+     */
+    public int getPosicao(int indice) {
+        return posicoes[indice];
+    }
+
+    public int getCelula(int indice) {
+        return celulas[indice];
+    }
+
+    public int getQuantidadeCelulas() {
+        return celulas.length;
+    }
+
+    public int getQuantidadeAglomerados() {
+        return tamanhos.length;
+    }
+
+    public int getTamanho(int aglomerado) {
+        return tamanhos[aglomerado];
+    }
+}
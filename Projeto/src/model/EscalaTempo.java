@@ -0,0 +1,163 @@
+package model;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Relação entre o tempo simulado e o tempo real, que pode mudar durante a execução.
+ *
+ * Com fator F, o tempo que um veículo leva numa célula (e os intervalos entre chegadas) passa F
+ * vezes mais rápido, e o relógio simulado (agoraNanos) anda F vezes mais rápido que o real; as
+ * métricas medidas por ele ficam em tempo simulado, comparáveis entre escalas. Na velocidade
+ * máxima os veículos não dormem e as entradas ficam sempre com veículos esperando: não há tempo
+ * simulado, e o relógio anda como o real, que é o que interessa ao medir o limite da camada de
+ * sincronização.
+ *
+ * A escala é um trecho imutável (início e fator) trocado por inteiro, então quem lê o relógio não
+ * pega trava nenhuma; só as mudanças, feitas pela interface ou pelo modo headless, sincronizam.
+ *
+ * Congelado (ver congelar), o relógio simulado para no instante da chamada; os veículos continuam
+ * dormindo na escala, o que só importa enquanto terminam de ser interrompidos.
+ */
+public final class EscalaTempo {
+
+    private static final class Trecho {
+        final long inicioReal;
+        final long inicioSimulado;
+        final double fator;
+        final boolean maxima;
+        final boolean congelado;
+
+        Trecho(long inicioReal, long inicioSimulado, double fator, boolean maxima, boolean congelado) {
+            this.inicioReal = inicioReal;
+            this.inicioSimulado = inicioSimulado;
+            this.fator = fator;
+            this.maxima = maxima;
+            this.congelado = congelado;
+        }
+
+        /** Quanto o relógio simulado anda por unidade de tempo real. */
+        double fatorRelogio() {
+            return maxima ? 1.0 : fator;
+        }
+    }
+
+    /** Pausa, na velocidade máxima, entre uma tentativa que falhou e a seguinte (ver pausar). */
+    private static final long PAUSA_MAXIMA_NANOS = 50_000;
+
+    private volatile Trecho trecho = new Trecho(System.nanoTime(), 0, 1.0, false, false);
+
+    /**
+     * @param fator segundos simulados por segundo real (ex.: 10 para 10x); sai da velocidade máxima.
+     */
+    public synchronized void setFator(double fator) {
+        if (!(fator > 0) || Double.isInfinite(fator)) {
+            throw new IllegalArgumentException("Escala de tempo inválida: " + fator);
+        }
+        mudar(fator, false);
+    }
+
+    public synchronized void setVelocidadeMaxima(boolean maxima) {
+        mudar(trecho.fator, maxima);
+    }
+
+    /**
+     * Para o relógio simulado no instante atual (ex.: no fim da duração pedida ao modo headless,
+     * para que o encerramento não conte como tempo simulado). Não há volta.
+     */
+    public synchronized void congelar() {
+        Trecho t = trecho;
+        long agora = System.nanoTime();
+        trecho = new Trecho(agora, agoraNanos(t, agora), t.fator, t.maxima, true);
+    }
+
+    public boolean isCongelada() {
+        return trecho.congelado;
+    }
+
+    /**
+     * Aceita "maxima" (ou "máxima") ou um fator, com ou sem o "x" no fim (ex.: "10", "0.5x").
+     */
+    public void definir(String texto) {
+        String t = texto.trim().toLowerCase();
+        if (t.equals("maxima") || t.equals("máxima")) {
+            setVelocidadeMaxima(true);
+            return;
+        }
+        if (t.endsWith("x")) {
+            t = t.substring(0, t.length() - 1).trim();
+        }
+        try {
+            setFator(Double.parseDouble(t));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Escala de tempo inválida: " + texto);
+        }
+    }
+
+    private void mudar(double fator, boolean maxima) {
+        long agora = System.nanoTime();
+        trecho = new Trecho(agora, agoraNanos(trecho, agora), fator, maxima, trecho.congelado);
+    }
+
+    public double getFator() {
+        return trecho.fator;
+    }
+
+    public boolean isVelocidadeMaxima() {
+        return trecho.maxima;
+    }
+
+    /**
+     * @return instante atual do relógio simulado, em ns; só serve para medir intervalos.
+     */
+    public long agoraNanos() {
+        return agoraNanos(trecho, System.nanoTime());
+    }
+
+    private static long agoraNanos(Trecho t, long agoraReal) {
+        if (t.congelado)
+            return t.inicioSimulado;
+        return t.inicioSimulado + (long) ((agoraReal - t.inicioReal) * t.fatorRelogio());
+    }
+
+    /**
+     * @return quanto tempo real leva, na escala atual, para o relógio simulado andar {@code nanos}.
+     */
+    public long paraNanosReais(long nanos) {
+        return (long) (nanos / trecho.fatorRelogio());
+    }
+
+    /**
+     * Dorme o equivalente a {@code ms} ms simulados (ex.: o tempo de um veículo numa célula); na
+     * velocidade máxima volta na hora.
+     */
+    public void dormir(long ms) throws InterruptedException {
+        Trecho t = trecho;
+        if (t.maxima)
+            return;
+        long nanos = (long) (ms * 1_000_000L / t.fator);
+        Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+    }
+
+    /**
+     * Como dormir, para quem vai repetir uma tentativa que falhou (ex.: a reserva de um cruzamento);
+     * na velocidade máxima, em vez de voltar na hora, solta o processador por um instante, para não
+     * girar em cima de quem precisa andar para a tentativa dar certo (com threads virtuais, prendendo
+     * a thread portadora que ele usaria).
+     */
+    public void pausar(long ms) throws InterruptedException {
+        if (!trecho.maxima) {
+            dormir(ms);
+            return;
+        }
+        LockSupport.parkNanos(PAUSA_MAXIMA_NANOS);
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    @Override
+    public String toString() {
+        Trecho t = trecho;
+        return t.maxima ? "máxima" : String.format("%sx", t.fator == Math.rint(t.fator)
+                ? String.valueOf((long) t.fator) : String.valueOf(t.fator));
+    }
+}
@@ -1,51 +1,211 @@
 package model;
 
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.locks.Lock;
 
+/**
+ * Grade da malha viária. Cada célula é identificada por um índice inteiro
+ * {@code linha * colunas + coluna}, usado por veículos e gerenciadores no caminho de cada passo,
+ * sem criar objetos. Os métodos com Point existem apenas para a interface gráfica.
+ */
 public class Malha {
 
-    private final int[][] grid;
+    /** Índice devolvido quando a célula vizinha cai fora da malha. */
+    public static final int SEM_CELULA = -1;
+    /** Distância de uma célula que não alcança o destino (ver calcularDistancias). */
+    public static final int SEM_DISTANCIA = Integer.MAX_VALUE;
+
+    // Direções de saída (1 = cima, 2 = direita, 3 = baixo, 4 = esquerda) de cada tipo de cruzamento.
+    private static final int[][] DIRECOES_DE_SAIDA = {
+            {}, {}, {}, {}, {},
+            { 1 }, // 5: Cima
+            { 2 }, // 6: Direita
+            { 3 }, // 7: Baixo
+            { 4 }, // 8: Esquerda
+            { 1, 2 }, // 9: Cima e Direita
+            { 1, 4 }, // 10: Cima e Esquerda
+            { 2, 3 }, // 11: Direita e Baixo
+            { 3, 4 }, // 12: Baixo e Esquerda
+    };
+
+    private final int linhas;
+    private final int colunas;
+    // Um byte por célula: os tipos vão de 0 a 12 (validados na leitura).
+    private final byte[] tipos;
+    private final int[] celulasDeEntrada;
+    private final BitSet saidas;
     private final List<Point> pontosDeEntrada;
     private final List<Point> pontosDeSaida;
-    private final Map<Point, Semaphore> semaforosDaMalha;
-    private final Map<Point, Lock> monitoresDaMalha;
+    private final TabelaRotas rotas;
+    private final Cruzamentos cruzamentos;
 
-    public Malha(int[][] grid, List<Point> pontosDeEntrada, List<Point> pontosDeSaida,
-            Map<Point, Semaphore> semaforosDaMalha, Map<Point, Lock> monitoresDaMalha) {
-        this.grid = grid;
-        this.pontosDeEntrada = pontosDeEntrada;
-        this.pontosDeSaida = pontosDeSaida;
-        this.semaforosDaMalha = semaforosDaMalha;
-        this.monitoresDaMalha = monitoresDaMalha;
+    /**
+     * @param tipos            tipo de cada célula, indexado pela célula; o array passa a ser da malha.
+     * @param celulasDeEntrada índices das células de entrada.
+     * @param saidas           bit ligado para cada célula de saída.
+     */
+    public Malha(int linhas, int colunas, byte[] tipos, int[] celulasDeEntrada, BitSet saidas) {
+        if (tipos.length != linhas * colunas) {
+            throw new IllegalArgumentException("Esperadas " + linhas * colunas + " células, recebidas " + tipos.length);
+        }
+        this.linhas = linhas;
+        this.colunas = colunas;
+        this.tipos = tipos;
+        this.celulasDeEntrada = celulasDeEntrada;
+        this.saidas = saidas;
+
+        List<Point> entradas = new ArrayList<>();
+        for (int c : celulasDeEntrada) {
+            entradas.add(getPonto(c));
+        }
+        List<Point> listaSaidas = new ArrayList<>();
+        for (int c = saidas.nextSetBit(0); c >= 0; c = saidas.nextSetBit(c + 1)) {
+            listaSaidas.add(getPonto(c));
+        }
+        this.pontosDeEntrada = Collections.unmodifiableList(entradas);
+        this.pontosDeSaida = Collections.unmodifiableList(listaSaidas);
+        this.cruzamentos = Cruzamentos.calcular(this);
+        this.rotas = TabelaRotas.calcular(this, cruzamentos);
+    }
+
+    /**
+     * @return as direções em que um veículo pode deixar uma célula do tipo indicado
+     *         (vazio para tipos que não são cruzamento). O array não deve ser alterado.
+     */
+    public static int[] getDirecoesDeSaida(int tipoCruzamento) {
+        return tipoCruzamento >= 0 && tipoCruzamento < DIRECOES_DE_SAIDA.length ? DIRECOES_DE_SAIDA[tipoCruzamento]
+                : DIRECOES_DE_SAIDA[0];
     }
 
-    public Map<Point, Semaphore> getSemaforosDaMalha() {
-        return this.semaforosDaMalha;
+    /**
+     * @return as rotas pré-calculadas através dos cruzamentos.
+     */
+    public TabelaRotas getRotas() {
+        return rotas;
     }
 
-    public Map<Point, Lock> getMonitoresDaMalha() {
-        return this.monitoresDaMalha;
+    public Cruzamentos getCruzamentos() {
+        return cruzamentos;
     }
 
     public int getLinhas() {
-        return grid.length;
+        return linhas;
     }
 
     public int getColunas() {
-        return grid[0].length;
+        return colunas;
+    }
+
+    public int getTotalCelulas() {
+        return tipos.length;
     }
 
     public int getValor(int linha, int coluna) {
-        if (linha >= 0 && linha < getLinhas() && coluna >= 0 && coluna < getColunas()) {
-            return grid[linha][coluna];
+        if (linha >= 0 && linha < linhas && coluna >= 0 && coluna < colunas) {
+            return tipos[linha * colunas + coluna];
         }
         return 0; // Retorna 0 se estiver fora dos limites (considerado "Nada")
     }
 
+    /**
+     * @return tipo da célula de índice {@code celula} (0 = vazia, 1-4 = via, 5-12 = cruzamento).
+     */
+    public int getTipo(int celula) {
+        return tipos[celula];
+    }
+
+    public int getCelula(int linha, int coluna) {
+        return linha * colunas + coluna;
+    }
+
+    public int getLinha(int celula) {
+        return celula / colunas;
+    }
+
+    public int getColuna(int celula) {
+        return celula % colunas;
+    }
+
+    /**
+     * Célula vizinha na direção indicada (1 = cima, 2 = direita, 3 = baixo, 4 = esquerda).
+     *
+     * @return o índice da vizinha, ou SEM_CELULA se ela cair fora da malha ou a direção for inválida.
+     */
+    public int getVizinha(int celula, int direcao) {
+        int linha = celula / colunas;
+        int coluna = celula - linha * colunas;
+        switch (direcao) {
+        case 1:
+            return linha > 0 ? celula - colunas : SEM_CELULA;
+        case 2:
+            return coluna < colunas - 1 ? celula + 1 : SEM_CELULA;
+        case 3:
+            return linha < linhas - 1 ? celula + colunas : SEM_CELULA;
+        case 4:
+            return coluna > 0 ? celula - 1 : SEM_CELULA;
+        default:
+            return SEM_CELULA;
+        }
+    }
+
+    /**
+     * Distância, em passos, de cada célula até {@code destino}, seguindo o sentido das vias e as
+     * saídas dos cruzamentos (busca em largura reversa a partir do destino).
+     *
+     * @return um array com uma posição por célula; SEM_DISTANCIA onde o destino não é alcançável.
+     */
+    public int[] calcularDistancias(int destino) {
+        int[] distancias = new int[tipos.length];
+        Arrays.fill(distancias, SEM_DISTANCIA);
+        int[] fila = new int[tipos.length];
+        int inicio = 0;
+        int fim = 0;
+        distancias[destino] = 0;
+        fila[fim++] = destino;
+        while (inicio < fim) {
+            int celula = fila[inicio++];
+            for (int direcao = 1; direcao <= 4; direcao++) {
+                // Vizinha que, saindo no sentido oposto a direcao, chega nesta célula.
+                int vizinha = getVizinha(celula, direcao);
+                if (vizinha == SEM_CELULA || distancias[vizinha] != SEM_DISTANCIA
+                        || !saiPara(tipos[vizinha], (direcao + 1) % 4 + 1))
+                    continue;
+                distancias[vizinha] = distancias[celula] + 1;
+                fila[fim++] = vizinha;
+            }
+        }
+        return distancias;
+    }
+
+    private static boolean saiPara(int tipo, int direcao) {
+        if (tipo >= 1 && tipo <= 4)
+            return tipo == direcao;
+        for (int d : getDirecoesDeSaida(tipo)) {
+            if (d == direcao)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean isSaida(int celula) {
+        return saidas.get(celula);
+    }
+
+    /**
+     * @return índices das células de entrada. O array é compartilhado e não deve ser alterado.
+     */
+    public int[] getCelulasDeEntrada() {
+        return celulasDeEntrada;
+    }
+
+    public Point getPonto(int celula) {
+        return new Point(getColuna(celula), getLinha(celula));
+    }
+
     public List<Point> getPontosDeEntrada() {
         return pontosDeEntrada;
     }
@@ -53,4 +213,4 @@ public class Malha {
     public List<Point> getPontosDeSaida() {
         return pontosDeSaida;
     }
-}
\ No newline at end of file
+}
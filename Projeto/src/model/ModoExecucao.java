@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * Define o tipo de thread usado para executar cada veículo.
+ * Threads virtuais (Java 21+) permitem dezenas de milhares de veículos, já que quase todo o
+ * tempo deles é gasto em Thread.sleep ou bloqueado no gerenciador de sincronização.
+ */
+public enum ModoExecucao {
+
+    PLATAFORMA("Threads de plataforma"),
+    VIRTUAL("Threads virtuais");
+
+    private final String descricao;
+
+    ModoExecucao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    /**
+     * Cria (sem iniciar) a thread que executará a tarefa.
+     */
+    public Thread criarThread(Runnable tarefa, String nome) {
+        if (this == VIRTUAL) {
+            return Thread.ofVirtual().name(nome).unstarted(tarefa);
+        }
+        return Thread.ofPlatform().name(nome).unstarted(tarefa);
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public static ModoExecucao porNome(String nome) {
+        for (ModoExecucao m : values()) {
+            if (m.name().equalsIgnoreCase(nome.trim())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Modo de execução desconhecido: " + nome);
+    }
+}
@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * Recebe os eventos do ciclo de vida de um veículo.
+ * Permite que o veículo rode sem conhecer a interface gráfica (ex.: modo headless).
+ */
+public interface ObservadorVeiculo {
+
+    /** Chamado sempre que o veículo avança para uma nova célula. */
+    void aoMover(Veiculo veiculo);
+
+    /** Chamado uma única vez, quando a thread do veículo termina (saída ou interrupção). */
+    void aoFinalizar(Veiculo veiculo);
+}
@@ -0,0 +1,154 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Demanda da simulação por ponto de entrada: taxas de chegada que variam com o tempo (ex.: horário
+ * de pico) e a preferência de destino dos veículos que entram por ali.
+ *
+ * Entradas sem nenhuma taxa seguem o intervalo padrão da simulação; entradas com taxas não têm
+ * chegadas fora dos trechos definidos. Trechos sobrepostos somam as taxas. Para cada destino usado
+ * é calculada, na montagem do perfil, a distância de todas as células até ele
+ * (Malha.calcularDistancias), que o Veiculo usa para escolher o caminho nos cruzamentos.
+ *
+ * O perfil é montado pelo LeitorPerfilDemanda e não deve ser alterado depois de a simulação começar.
+ */
+public class PerfilDemanda {
+
+    private final Malha malha;
+    private final Map<Integer, List<Trecho>> taxas = new HashMap<>();
+    private final Map<Integer, Destinos> destinos = new HashMap<>();
+    private final Map<Integer, int[]> distancias = new HashMap<>();
+
+    public PerfilDemanda(Malha malha) {
+        this.malha = malha;
+    }
+
+    /**
+     * @param inicioMs início do trecho, em ms de simulação (inclusivo).
+     * @param fimMs    fim do trecho (exclusivo).
+     */
+    public void adicionarTaxa(int entrada, long inicioMs, long fimMs, double veiculosPorMinuto) {
+        validarEntrada(entrada);
+        if (inicioMs < 0 || fimMs <= inicioMs || veiculosPorMinuto < 0) {
+            throw new IllegalArgumentException("Trecho de taxa inválido: " + inicioMs + " a " + fimMs + " ms, "
+                    + veiculosPorMinuto + " veículos/min");
+        }
+        taxas.computeIfAbsent(entrada, e -> new ArrayList<>()).add(new Trecho(inicioMs, fimMs, veiculosPorMinuto));
+    }
+
+    /**
+     * @param peso peso relativo do destino entre os destinos da mesma entrada.
+     */
+    public void adicionarDestino(int entrada, int saida, double peso) {
+        validarEntrada(entrada);
+        if (!malha.isSaida(saida)) {
+            throw new IllegalArgumentException("Célula (" + malha.getLinha(saida) + ", " + malha.getColuna(saida)
+                    + ") não é uma saída");
+        }
+        if (peso <= 0) {
+            throw new IllegalArgumentException("Peso de destino deve ser positivo: " + peso);
+        }
+        destinos.computeIfAbsent(entrada, e -> new Destinos()).adicionar(saida, peso);
+        distancias.computeIfAbsent(saida, malha::calcularDistancias);
+    }
+
+    private void validarEntrada(int entrada) {
+        for (int c : malha.getCelulasDeEntrada()) {
+            if (c == entrada)
+                return;
+        }
+        throw new IllegalArgumentException("Célula (" + malha.getLinha(entrada) + ", " + malha.getColuna(entrada)
+                + ") não é uma entrada");
+    }
+
+    public boolean temTaxa(int entrada) {
+        return taxas.containsKey(entrada);
+    }
+
+    /**
+     * @return soma das taxas dos trechos da entrada que contêm o instante, em veículos por minuto.
+     */
+    public double getTaxaPorMinuto(int entrada, long instanteMs) {
+        double taxa = 0;
+        for (Trecho t : taxas.getOrDefault(entrada, List.of())) {
+            if (instanteMs >= t.inicioMs && instanteMs < t.fimMs) {
+                taxa += t.veiculosPorMinuto;
+            }
+        }
+        return taxa;
+    }
+
+    /**
+     * @return início do próximo trecho com taxa positiva depois do instante, ou -1 se não houver.
+     */
+    public long getProximoInicioMs(int entrada, long instanteMs) {
+        long proximo = -1;
+        for (Trecho t : taxas.getOrDefault(entrada, List.of())) {
+            if (t.inicioMs > instanteMs && t.veiculosPorMinuto > 0 && (proximo < 0 || t.inicioMs < proximo)) {
+                proximo = t.inicioMs;
+            }
+        }
+        return proximo;
+    }
+
+    /**
+     * Sorteia o destino de um veículo que entra por {@code entrada}, pelos pesos do perfil.
+     *
+     * @param sorteio número uniforme em [0, 1).
+     * @return a célula de saída, ou Malha.SEM_CELULA se a entrada não tiver destinos.
+     */
+    public int sortearDestino(int entrada, double sorteio) {
+        Destinos d = destinos.get(entrada);
+        return d == null ? Malha.SEM_CELULA : d.sortear(sorteio);
+    }
+
+    /**
+     * @return distâncias de cada célula até o destino (ver Malha.calcularDistancias), ou null se o
+     *         destino não estiver no perfil. O array é compartilhado e não deve ser alterado.
+     */
+    public int[] getDistancias(int destino) {
+        return distancias.get(destino);
+    }
+
+    public int getQuantidadeDestinos() {
+        return distancias.size();
+    }
+
+    private static final class Trecho {
+        final long inicioMs;
+        final long fimMs;
+        final double veiculosPorMinuto;
+
+        Trecho(long inicioMs, long fimMs, double veiculosPorMinuto) {
+            this.inicioMs = inicioMs;
+            this.fimMs = fimMs;
+            this.veiculosPorMinuto = veiculosPorMinuto;
+        }
+    }
+
+    private static final class Destinos {
+        final List<Integer> saidas = new ArrayList<>();
+        final List<Double> pesos = new ArrayList<>();
+        double pesoTotal = 0;
+
+        void adicionar(int saida, double peso) {
+            saidas.add(saida);
+            pesos.add(peso);
+            pesoTotal += peso;
+        }
+
+        int sortear(double sorteio) {
+            double alvo = sorteio * pesoTotal;
+            for (int i = 0; i < saidas.size() - 1; i++) {
+                alvo -= pesos.get(i);
+                if (alvo < 0)
+                    return saidas.get(i);
+            }
+            return saidas.get(saidas.size() - 1);
+        }
+    }
+}
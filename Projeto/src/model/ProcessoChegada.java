@@ -0,0 +1,59 @@
+package model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Como os veículos chegam a um ponto de entrada. Todos os processos têm o mesmo intervalo médio
+ * entre chegadas; muda só a distribuição dos intervalos.
+ */
+public enum ProcessoChegada {
+
+    /** Uma chegada a cada intervalo, exatamente. */
+    FIXO("Taxa fixa") {
+        @Override
+        public long proximoIntervaloNanos(long mediaNanos, RandomGenerator random, long sequencia) {
+            return mediaNanos;
+        }
+    },
+    /** Intervalos exponenciais: chegadas independentes, sem memória. */
+    POISSON("Poisson") {
+        @Override
+        public long proximoIntervaloNanos(long mediaNanos, RandomGenerator random, long sequencia) {
+            return (long) (-mediaNanos * Math.log(1.0 - random.nextDouble()));
+        }
+    },
+    /** TAMANHO_RAJADA chegadas juntas, seguidas de uma pausa de TAMANHO_RAJADA intervalos. */
+    RAJADAS("Rajadas") {
+        @Override
+        public long proximoIntervaloNanos(long mediaNanos, RandomGenerator random, long sequencia) {
+            return sequencia % TAMANHO_RAJADA == TAMANHO_RAJADA - 1 ? mediaNanos * TAMANHO_RAJADA : 0;
+        }
+    };
+
+    public static final int TAMANHO_RAJADA = 5;
+
+    private final String descricao;
+
+    ProcessoChegada(String descricao) {
+        this.descricao = descricao;
+    }
+
+    /**
+     * @param sequencia quantas chegadas o ponto de entrada já teve (usado pelas rajadas).
+     * @return tempo até a próxima chegada, em ns.
+     */
+    public abstract long proximoIntervaloNanos(long mediaNanos, RandomGenerator random, long sequencia);
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public static ProcessoChegada porNome(String nome) {
+        for (ProcessoChegada p : values()) {
+            if (p.name().equalsIgnoreCase(nome.trim())) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Processo de chegada desconhecido: " + nome);
+    }
+}
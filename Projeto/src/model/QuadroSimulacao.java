@@ -0,0 +1,75 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Retrato imutável das posições dos veículos num instante, usado para desenhar a malha.
+ * Guarda só arrays primitivos (id e célula de cada veículo), então quem desenha não precisa
+ * tocar nos objetos Veiculo nem em nenhuma trava compartilhada com a simulação.
+ */
+public final class QuadroSimulacao {
+
+    /** Quadro sem nenhum veículo. */
+    public static final QuadroSimulacao VAZIO = new QuadroSimulacao(new int[0], new int[0]);
+
+    private final int[] ids;
+    private final int[] celulas;
+
+    private QuadroSimulacao(int[] ids, int[] celulas) {
+        this.ids = ids;
+        this.celulas = celulas;
+    }
+
+    /**
+     * Monta o quadro a partir dos veículos do registro. Cada célula é lida uma vez; como o veículo
+     * pode andar durante a captura, o quadro não é um corte exato, mas cada posição é uma posição
+     * real que o veículo ocupou.
+     */
+    public static QuadroSimulacao capturar(RegistroVeiculos registro) {
+        int limite = registro.getLimite();
+        int[] ids = new int[limite];
+        int[] celulas = new int[limite];
+        int n = 0;
+        for (int i = 0; i < limite; i++) {
+            Veiculo v = registro.get(i);
+            if (v == null)
+                continue;
+            ids[n] = (int) v.getId();
+            celulas[n] = v.getCelula();
+            n++;
+        }
+        if (n == 0)
+            return VAZIO;
+        return new QuadroSimulacao(Arrays.copyOf(ids, n), Arrays.copyOf(celulas, n));
+    }
+
+    /**
+     * Monta o quadro a partir de posições já conhecidas (ex.: reprodução de um rastro). Os arrays
+     * passam a pertencer ao quadro e não devem mais ser alterados.
+     */
+    public static QuadroSimulacao de(int[] ids, int[] celulas) {
+        if (ids.length != celulas.length) {
+            throw new IllegalArgumentException("ids e celulas com tamanhos diferentes");
+        }
+        return ids.length == 0 ? VAZIO : new QuadroSimulacao(ids, celulas);
+    }
+
+    public int getQuantidade() {
+        return ids.length;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public int getCelula(int i) {
+        return celulas[i];
+    }
+
+    /**
+     * Indica se os dois quadros têm os mesmos veículos nas mesmas células (nada a redesenhar).
+     */
+    public boolean mesmasPosicoes(QuadroSimulacao outro) {
+        return outro != null && Arrays.equals(ids, outro.ids) && Arrays.equals(celulas, outro.celulas);
+    }
+}
@@ -0,0 +1,150 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Veículos ativos da simulação, guardados por índice, sem trava.
+ *
+ * Cada veículo recebe um índice ao ser registrado e o devolve ao sair (remover, chamado pelo
+ * próprio veículo ao finalizar), em O(1). Índices devolvidos vão para uma pilha de livres e são
+ * reaproveitados, de modo que os índices usados ficam próximos de 0 e percorrer o registro custa
+ * o pico de veículos simultâneos, não o total já inserido. Os índices ficam em segmentos de
+ * TAMANHO_SEGMENTO, criados sob demanda, como as primitivas dos gerenciadores.
+ */
+public class RegistroVeiculos {
+
+    public static final int TAMANHO_SEGMENTO = 1024;
+    private static final int MAXIMO_SEGMENTOS = 4096;
+
+    private final AtomicReferenceArray<Segmento> segmentos = new AtomicReferenceArray<>(MAXIMO_SEGMENTOS);
+    /** Quantos índices já foram entregues alguma vez; todo índice ocupado é menor que isso. */
+    private final AtomicInteger limite = new AtomicInteger();
+    private final AtomicInteger quantidade = new AtomicInteger();
+    /**
+     * Topo da pilha de índices livres: versão nos 32 bits altos (contra ABA) e índice + 1 nos
+     * baixos (0 = pilha vazia). O próximo de cada índice livre fica em Segmento.proximoLivre.
+     */
+    private final AtomicLong topoLivres = new AtomicLong();
+
+    /**
+     * Registra o veículo, que guarda o índice recebido para se remover depois.
+     *
+     * @throws IllegalStateException se o registro estiver cheio.
+     */
+    public void registrar(Veiculo veiculo) {
+        int indice = retirarLivre();
+        if (indice < 0) {
+            indice = limite.getAndIncrement();
+            if (indice >= MAXIMO_SEGMENTOS * TAMANHO_SEGMENTO) {
+                limite.decrementAndGet();
+                throw new IllegalStateException("Registro de veículos cheio");
+            }
+        }
+        veiculo.setIndiceRegistro(indice);
+        segmento(indice).veiculos.set(indice % TAMANHO_SEGMENTO, veiculo);
+        quantidade.incrementAndGet();
+    }
+
+    /**
+     * Remove o veículo, se ele ainda estiver registrado; chamadas repetidas não têm efeito.
+     */
+    public void remover(Veiculo veiculo) {
+        int indice = veiculo.getIndiceRegistro();
+        if (indice < 0)
+            return;
+        Segmento segmento = segmentos.get(indice / TAMANHO_SEGMENTO);
+        if (segmento != null && segmento.veiculos.compareAndSet(indice % TAMANHO_SEGMENTO, veiculo, null)) {
+            quantidade.decrementAndGet();
+            devolverLivre(segmento, indice);
+        }
+    }
+
+    public int getQuantidade() {
+        return quantidade.get();
+    }
+
+    /**
+     * @return limite superior (exclusivo) dos índices ocupados, para percorrer com get(int).
+     */
+    public int getLimite() {
+        return limite.get();
+    }
+
+    /**
+     * @return o veículo no índice, ou null se o índice estiver livre.
+     */
+    public Veiculo get(int indice) {
+        Segmento segmento = segmentos.get(indice / TAMANHO_SEGMENTO);
+        return segmento == null ? null : segmento.veiculos.get(indice % TAMANHO_SEGMENTO);
+    }
+
+    /**
+     * Aplica a ação a cada veículo registrado. Não bloqueia registros e remoções concorrentes: um
+     * veículo registrado ou removido durante a volta pode ou não ser visitado, os demais são
+     * visitados exatamente uma vez.
+     */
+    public void paraCada(Consumer<Veiculo> acao) {
+        int fim = limite.get();
+        for (int i = 0; i < fim; i++) {
+            Veiculo veiculo = get(i);
+            if (veiculo != null) {
+                acao.accept(veiculo);
+            }
+        }
+    }
+
+    /**
+     * Cópia dos veículos registrados neste momento.
+     */
+    public List<Veiculo> listar() {
+        List<Veiculo> lista = new ArrayList<>(quantidade.get());
+        paraCada(lista::add);
+        return lista;
+    }
+
+    private Segmento segmento(int indice) {
+        int s = indice / TAMANHO_SEGMENTO;
+        Segmento segmento = segmentos.get(s);
+        if (segmento == null) {
+            Segmento novo = new Segmento();
+            segmento = segmentos.compareAndExchange(s, null, novo);
+            if (segmento == null)
+                segmento = novo;
+        }
+        return segmento;
+    }
+
+    private int retirarLivre() {
+        while (true) {
+            long topo = topoLivres.get();
+            int indice = (int) topo - 1;
+            if (indice < 0)
+                return -1;
+            int proximo = segmentos.get(indice / TAMANHO_SEGMENTO).proximoLivre[indice % TAMANHO_SEGMENTO];
+            long novoTopo = ((topo >>> 32) + 1) << 32 | (proximo + 1L);
+            if (topoLivres.compareAndSet(topo, novoTopo))
+                return indice;
+        }
+    }
+
+    private void devolverLivre(Segmento segmento, int indice) {
+        while (true) {
+            long topo = topoLivres.get();
+            // Escrito antes do CAS que publica o índice; quem retirá-lo lê depois de ler o topo.
+            segmento.proximoLivre[indice % TAMANHO_SEGMENTO] = (int) topo - 1;
+            long novoTopo = ((topo >>> 32) + 1) << 32 | (indice + 1L);
+            if (topoLivres.compareAndSet(topo, novoTopo))
+                return;
+        }
+    }
+
+    private static final class Segmento {
+        final AtomicReferenceArray<Veiculo> veiculos = new AtomicReferenceArray<>(TAMANHO_SEGMENTO);
+        final int[] proximoLivre = new int[TAMANHO_SEGMENTO];
+    }
+}
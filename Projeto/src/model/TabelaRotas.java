@@ -0,0 +1,218 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Todas as rotas possíveis através dos cruzamentos, calculadas uma vez na carga da malha.
+ *
+ * Uma rota começa numa célula de cruzamento (a entrada) e segue as direções de saída de cada
+ * tipo de cruzamento, sem repetir células, até a primeira célula que não é cruzamento (ou até
+ * não haver como continuar). São exatamente os caminhos que o sorteio passo a passo do Veiculo
+ * produzia, e cada rota guarda a probabilidade que tinha nesse sorteio (1/n a cada bifurcação
+ * com n saídas válidas), para que escolher(...) mantenha a mesma distribuição.
+ *
+ * As rotas ficam concatenadas num único array de células, de modo que uma rota é o trecho
+ * {@code [getInicio(rota), getFim(rota))} de getCelulas(), no mesmo formato que os
+ * gerenciadores de sincronização recebem, sem cópia. As rotas de uma entrada têm identificadores
+ * consecutivos, e as entradas são indexadas pela posição entre as células de cruzamento
+ * (Cruzamentos.getIndice), não pela célula: a tabela não tem nada do tamanho da malha.
+ */
+public final class TabelaRotas {
+
+    /** Devolvido por escolher(...) quando a célula não tem rotas. */
+    public static final int SEM_ROTA = -1;
+
+    /** Limite de rotas por entrada, para cruzamentos muito grandes não explodirem a tabela. */
+    static final int MAX_ROTAS_POR_ENTRADA = 64;
+
+    private final Cruzamentos cruzamentos;
+    // Rotas da i-ésima célula de cruzamento: [primeiraRota[i], primeiraRota[i + 1]).
+    private final int[] primeiraRota;
+    // Células da rota r: celulas[inicioRota[r] .. inicioRota[r + 1]).
+    private final int[] inicioRota;
+    private final int[] celulas;
+    // Probabilidade acumulada da rota r entre as rotas da sua entrada; a última vale 1.
+    private final double[] probabilidadeAcumulada;
+
+    private TabelaRotas(Cruzamentos cruzamentos, int[] primeiraRota, int[] inicioRota, int[] celulas,
+            double[] probabilidadeAcumulada) {
+        this.cruzamentos = cruzamentos;
+        this.primeiraRota = primeiraRota;
+        this.inicioRota = inicioRota;
+        this.celulas = celulas;
+        this.probabilidadeAcumulada = probabilidadeAcumulada;
+    }
+
+    /**
+     * Escolhe uma rota que começa em {@code celulaEntrada}.
+     *
+     * @param sorteio número uniforme em [0, 1).
+     * @return o identificador da rota, ou SEM_ROTA.
+     */
+    public int escolher(int celulaEntrada, double sorteio) {
+        int entrada = cruzamentos.getIndice(celulaEntrada);
+        if (entrada < 0)
+            return SEM_ROTA;
+        int primeira = primeiraRota[entrada];
+        int ultima = primeiraRota[entrada + 1] - 1;
+        if (ultima < primeira)
+            return SEM_ROTA;
+        // Poucas rotas por entrada: a busca linear é mais barata que a binária.
+        int rota = primeira;
+        while (rota < ultima && sorteio >= probabilidadeAcumulada[rota]) {
+            rota++;
+        }
+        return rota;
+    }
+
+    public int getQuantidadeRotas(int celulaEntrada) {
+        int entrada = cruzamentos.getIndice(celulaEntrada);
+        return entrada < 0 ? 0 : primeiraRota[entrada + 1] - primeiraRota[entrada];
+    }
+
+    /**
+     * @param i de 0 a getQuantidadeRotas(celulaEntrada) - 1.
+     * @return o identificador da i-ésima rota que começa em {@code celulaEntrada}; as demais rotas
+     *         da entrada vêm logo depois da rota 0.
+     */
+    public int getRota(int celulaEntrada, int i) {
+        return primeiraRota[cruzamentos.getIndice(celulaEntrada)] + i;
+    }
+
+    public int getInicio(int rota) {
+        return inicioRota[rota];
+    }
+
+    public int getFim(int rota) {
+        return inicioRota[rota + 1];
+    }
+
+    /**
+     * @return as células de todas as rotas. O array é compartilhado e não deve ser alterado.
+     */
+    public int[] getCelulas() {
+        return celulas;
+    }
+
+    public int getTotalRotas() {
+        return inicioRota.length - 1;
+    }
+
+    static TabelaRotas calcular(Malha malha, Cruzamentos cruzamentos) {
+        int entradas = cruzamentos.getQuantidadeCelulas();
+        int[] primeiraRota = new int[entradas + 1];
+        Construtor construtor = new Construtor(malha);
+        for (int i = 0; i < entradas; i++) {
+            primeiraRota[i] = construtor.quantidadeRotas;
+            construtor.rotasDaEntrada = 0;
+            construtor.caminho[0] = cruzamentos.getCelula(i);
+            construtor.percorrer(1, 1.0);
+            construtor.acumular(primeiraRota[i]);
+        }
+        primeiraRota[entradas] = construtor.quantidadeRotas;
+        int rotas = construtor.quantidadeRotas;
+        return new TabelaRotas(cruzamentos, primeiraRota, Arrays.copyOf(construtor.inicioRota, rotas + 1),
+                Arrays.copyOf(construtor.celulas, construtor.quantidadeCelulas),
+                Arrays.copyOf(construtor.probabilidade, rotas));
+    }
+
+    /**
+     * Busca em profundidade que acumula as rotas em arrays que crescem conforme a necessidade.
+     */
+    private static final class Construtor {
+        final Malha malha;
+        int[] caminho = new int[8];
+        int[] inicioRota = new int[64];
+        int[] celulas = new int[256];
+        double[] probabilidade = new double[64];
+        int quantidadeRotas = 0;
+        int quantidadeCelulas = 0;
+        int rotasDaEntrada;
+
+        Construtor(Malha malha) {
+            this.malha = malha;
+        }
+
+        void percorrer(int tamanho, double probabilidadeCaminho) {
+            if (rotasDaEntrada >= MAX_ROTAS_POR_ENTRADA)
+                return;
+
+            int atual = caminho[tamanho - 1];
+            if (malha.getTipo(atual) < 5) {
+                registrar(tamanho, probabilidadeCaminho);
+                return;
+            }
+
+            int[] direcoes = Malha.getDirecoesDeSaida(malha.getTipo(atual));
+            int validas = 0;
+            for (int direcao : direcoes) {
+                if (isValida(malha.getVizinha(atual, direcao), tamanho))
+                    validas++;
+            }
+            // Sem saída válida: o caminho termina no próprio cruzamento, como no sorteio do Veiculo.
+            if (validas == 0) {
+                registrar(tamanho, probabilidadeCaminho);
+                return;
+            }
+
+            if (tamanho == caminho.length) {
+                caminho = Arrays.copyOf(caminho, tamanho * 2);
+            }
+            for (int direcao : direcoes) {
+                int proxima = malha.getVizinha(atual, direcao);
+                if (isValida(proxima, tamanho)) {
+                    caminho[tamanho] = proxima;
+                    percorrer(tamanho + 1, probabilidadeCaminho / validas);
+                }
+            }
+        }
+
+        private boolean isValida(int proxima, int tamanho) {
+            return proxima != Malha.SEM_CELULA && malha.getTipo(proxima) > 0 && !contem(caminho, tamanho, proxima);
+        }
+
+        /**
+         * Converte as probabilidades das rotas a partir de {@code primeira} em acumuladas,
+         * normalizando para o caso de a entrada ter atingido MAX_ROTAS_POR_ENTRADA.
+         */
+        void acumular(int primeira) {
+            double soma = 0;
+            for (int r = primeira; r < quantidadeRotas; r++) {
+                soma += probabilidade[r];
+            }
+            double acumulada = 0;
+            for (int r = primeira; r < quantidadeRotas; r++) {
+                acumulada += probabilidade[r] / soma;
+                probabilidade[r] = acumulada;
+            }
+            if (quantidadeRotas > primeira) {
+                probabilidade[quantidadeRotas - 1] = 1.0;
+            }
+        }
+
+        private void registrar(int tamanho, double probabilidadeCaminho) {
+            if (quantidadeRotas + 2 > inicioRota.length) {
+                inicioRota = Arrays.copyOf(inicioRota, inicioRota.length * 2);
+                probabilidade = Arrays.copyOf(probabilidade, inicioRota.length);
+            }
+            if (quantidadeCelulas + tamanho > celulas.length) {
+                celulas = Arrays.copyOf(celulas, Math.max(celulas.length * 2, quantidadeCelulas + tamanho));
+            }
+            inicioRota[quantidadeRotas] = quantidadeCelulas;
+            System.arraycopy(caminho, 0, celulas, quantidadeCelulas, tamanho);
+            probabilidade[quantidadeRotas] = probabilidadeCaminho;
+            quantidadeCelulas += tamanho;
+            quantidadeRotas++;
+            inicioRota[quantidadeRotas] = quantidadeCelulas;
+            rotasDaEntrada++;
+        }
+
+        private static boolean contem(int[] celulas, int tamanho, int celula) {
+            for (int i = 0; i < tamanho; i++) {
+                if (celulas[i] == celula)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
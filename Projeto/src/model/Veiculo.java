@@ -1,190 +1,433 @@
 package model;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
+import model.rastro.FormatoRastro;
+import model.rastro.GravadorRastro;
 import model.sincronizacao.GerenciadorSincronizacao;
-import view.PainelMalha;
+import model.sincronizacao.ModoEsperaCruzamento;
+import model.sincronizacao.ModoReserva;
 
-public class Veiculo extends Thread {
+/**
+ * Veículo que percorre a malha célula a célula.
+ * A posição e os caminhos são índices de célula (ver Malha) e o caminho do cruzamento é sorteado
+ * da TabelaRotas pré-calculada, de modo que um passo não cria nenhum objeto.
+ */
+public class Veiculo implements Runnable {
+
+	/** Menor tempo, em ms, que um veículo leva para atravessar uma célula. */
+	public static final int VELOCIDADE_MINIMA_MS = 500;
+	/** Primeira espera, em ms, depois de uma reserva de cruzamento que falhou (ModoEsperaCruzamento.NOTIFICADA). */
+	public static final int ESPERA_MINIMA_CRUZAMENTO_MS = 10;
 
 	private static int contadorId = 0;
 	private final int id;
-	private Point posicao;
+	// volatile: a thread de renderização lê a posição sem nenhuma trava (ver QuadroSimulacao).
+	private volatile int celula;
+	// Sequência própria do veículo (velocidade e rotas), derivada da semente da simulação.
+	private final SplittableRandom random;
 	private final int velocidade;
 	private final Malha malha;
-	private final PainelMalha painel;
+	private final ObservadorVeiculo observador;
 	private final GerenciadorSincronizacao gerenciadorSincronizacao;
-	private List<Point> caminhoReservado = null;
+	private final TabelaRotas rotas;
+	// Rota sorteada no cruzamento: rotas.getCelulas()[inicioCaminho..fimCaminho). Enquanto ela é
+	// percorrida, o trecho [reservadoDe, reservadoAte) ainda está reservado.
+	private int inicioCaminho = 0;
+	private int fimCaminho = 0;
+	private int reservadoDe = 0;
+	private int reservadoAte = 0;
+	private long instanteEntrada;
+	private boolean entrouNaMalha = false;
+	private boolean chegouNaSaida = false;
+	private Thread thread;
+	private ModoReserva modoReserva = ModoReserva.TENTATIVA;
+	private ModoEsperaCruzamento modoEsperaCruzamento = ModoEsperaCruzamento.FIXA;
+	// Reservas de cruzamento que falharam seguidas; dobra o limite da espera notificada.
+	private int falhasSeguidas = 0;
+	// Distância de cada célula ao destino do veículo (ver PerfilDemanda), ou null se ele não tiver destino.
+	private int[] distanciasAoDestino;
+	// Posição no RegistroVeiculos, ou -1 se o veículo não estiver registrado.
+	private int indiceRegistro = -1;
+	// Escala do tempo da simulação; null para tempo real.
+	private EscalaTempo escala;
+	// Recebe cada movimento, se a execução estiver sendo gravada; senão null.
+	private GravadorRastro rastro;
+	// Quando o veículo começou a tentar o cruzamento à frente (0 se não está tentando).
+	private long inicioEsperaCruzamento = 0;
+
+	/**
+	 * Veículo com uma sequência aleatória própria, sem semente; usado onde a reprodutibilidade
+	 * não importa (ex.: benchmarks).
+	 */
+	public Veiculo(int celulaInicial, Malha malha, ObservadorVeiculo observador,
+			GerenciadorSincronizacao gerenciador) {
+		this(celulaInicial, malha, observador, gerenciador, new SplittableRandom());
+	}
 
-	public Veiculo(Point posicaoInicial, Malha malha, PainelMalha painel, GerenciadorSincronizacao gerenciador) {
+	/**
+	 * @param random sequência exclusiva deste veículo, normalmente um split() da sequência da
+	 *               simulação, para que a mesma semente reproduza as mesmas escolhas.
+	 */
+	public Veiculo(int celulaInicial, Malha malha, ObservadorVeiculo observador,
+			GerenciadorSincronizacao gerenciador, SplittableRandom random) {
 		this.id = contadorId++;
-		this.setName(String.valueOf(this.id));
-		this.posicao = posicaoInicial;
+		this.random = random;
+		this.celula = celulaInicial;
 		this.malha = malha;
-		this.painel = painel;
-		this.velocidade = new Random().nextInt(500, 600);
+		this.rotas = malha.getRotas();
+		this.observador = observador;
+		this.velocidade = random.nextInt(VELOCIDADE_MINIMA_MS, 600);
 		this.gerenciadorSincronizacao = gerenciador;
 	}
 
+	/**
+	 * Define como o veículo reserva o caminho dos cruzamentos; deve ser chamado antes de iniciar().
+	 */
+	public void setModoReserva(ModoReserva modoReserva) {
+		this.modoReserva = modoReserva;
+	}
+
+	/**
+	 * Define o que o veículo faz quando a reserva de um cruzamento falha; deve ser chamado antes de iniciar().
+	 */
+	public void setModoEsperaCruzamento(ModoEsperaCruzamento modoEsperaCruzamento) {
+		this.modoEsperaCruzamento = modoEsperaCruzamento;
+	}
+
+	/**
+	 * Faz o veículo seguir, nos cruzamentos, a rota que mais o aproxima do destino; deve ser chamado
+	 * antes de iniciar().
+	 *
+	 * @param distancias resultado de Malha.calcularDistancias(destino), ou null para sortear as rotas.
+	 */
+	public void setDistanciasAoDestino(int[] distancias) {
+		this.distanciasAoDestino = distancias;
+	}
+
+	/**
+	 * Faz o tempo em cada célula, as esperas e as medidas seguirem a escala; deve ser chamado antes
+	 * de iniciar().
+	 */
+	public void setEscalaTempo(EscalaTempo escala) {
+		this.escala = escala;
+	}
+
+	/**
+	 * Grava a entrada, cada movimento e a saída do veículo; deve ser chamado antes de iniciar().
+	 */
+	public void setRastro(GravadorRastro rastro) {
+		this.rastro = rastro;
+	}
+
+	/**
+	 * Inicia o comportamento do veículo em uma thread do tipo indicado.
+	 */
+	public void iniciar(ModoExecucao modo) {
+		this.thread = modo.criarThread(this, String.valueOf(this.id));
+		this.thread.start();
+	}
+
+	public void interromper() {
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	int getIndiceRegistro() {
+		return indiceRegistro;
+	}
+
+	void setIndiceRegistro(int indiceRegistro) {
+		this.indiceRegistro = indiceRegistro;
+	}
+
+	public boolean isAtivo() {
+		return thread != null && thread.isAlive();
+	}
+
+	/**
+	 * Espera a thread do veículo terminar por até {@code timeoutMs} milissegundos.
+	 */
+	public void aguardar(long timeoutMs) throws InterruptedException {
+		if (thread != null) {
+			thread.join(timeoutMs);
+		}
+	}
+
 	@Override
 	public void run() {
+		long inicioEspera = rastro != null ? agoraNanos() : 0;
+		try {
+			gerenciadorSincronizacao.adquirir(this.celula, id);
+		} catch (InterruptedException e) {
+			// Interrompido antes de entrar na malha: não há nada a liberar.
+			observador.aoFinalizar(this);
+			return;
+		}
+		entrouNaMalha = true;
+		if (rastro != null) {
+			rastro.registrar(id, FormatoRastro.FORA, celula, agoraNanos() - inicioEspera);
+		}
+
 		try {
-			gerenciadorSincronizacao.adquirir(this.posicao);
+			this.instanteEntrada = agoraNanos();
 			while (!Thread.currentThread().isInterrupted()) {
-				if (malha.getPontosDeSaida().contains(posicao)) {
+				if (malha.isSaida(celula)) {
+					chegouNaSaida = true;
 					break;
 				}
 
-				Point proximaPosicao = calcularProximaPosicaoFisica();
-				if (!isPontoValido(proximaPosicao)) {
+				int proximaCelula = calcularProximaCelula();
+				if (proximaCelula == Malha.SEM_CELULA) {
 
 					break;
 				}
 
-				int tipoProximo = malha.getValor(proximaPosicao.y, proximaPosicao.x);
+				int tipoProximo = malha.getTipo(proximaCelula);
 
 				if (tipoProximo >= 5) {
-					atravessarCruzamento(proximaPosicao);
+					atravessarCruzamento(proximaCelula);
 				} else {
-					moverPara(proximaPosicao);
+					moverPara(proximaCelula);
 				}
 			}
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 		} finally {
-			gerenciadorSincronizacao.liberar(this.posicao);
+			gerenciadorSincronizacao.liberar(this.celula, id);
 
-			if (this.caminhoReservado != null && !this.caminhoReservado.isEmpty()) {
-				gerenciadorSincronizacao.liberarCaminho(this.caminhoReservado);
+			if (reservadoDe < reservadoAte) {
+				gerenciadorSincronizacao.liberarCaminho(rotas.getCelulas(), reservadoDe, reservadoAte, id);
+			}
+			if (rastro != null) {
+				rastro.registrar(id, celula, chegouNaSaida ? FormatoRastro.FORA : FormatoRastro.INTERROMPIDO, 0);
 			}
+			observador.aoFinalizar(this);
 		}
 	}
 
-	private void moverPara(Point proximaPosicao) throws InterruptedException {
-		gerenciadorSincronizacao.adquirir(proximaPosicao);
-		Point posicaoAntiga = this.posicao;
-		this.posicao = proximaPosicao;
-		painel.repaint();
-		gerenciadorSincronizacao.liberar(posicaoAntiga);
-		Thread.sleep(velocidade);
+	private void moverPara(int proximaCelula) throws InterruptedException {
+		long inicioEspera = rastro != null ? agoraNanos() : 0;
+		gerenciadorSincronizacao.adquirir(proximaCelula, id);
+		int celulaAntiga = this.celula;
+		this.celula = proximaCelula;
+		if (rastro != null) {
+			rastro.registrar(id, celulaAntiga, proximaCelula, agoraNanos() - inicioEspera);
+		}
+		observador.aoMover(this);
+		gerenciadorSincronizacao.liberar(celulaAntiga, id);
+		dormir(velocidade);
 	}
 
-	private void atravessarCruzamento(Point pontoEntrada) throws InterruptedException {
-		List<Point> caminhoCompleto = planejarCaminhoCompleto(pontoEntrada);
-
-		if (caminhoCompleto.isEmpty()) {
-			Thread.sleep(velocidade);
+	private void atravessarCruzamento(int celulaEntrada) throws InterruptedException {
+		if (planejarCaminho(celulaEntrada) == 0) {
+			pausar(velocidade);
 			return;
 		}
 
-		if (gerenciadorSincronizacao.tentarAdquirirCaminho(caminhoCompleto)) {
-			this.caminhoReservado = caminhoCompleto;
+		int[] celulas = rotas.getCelulas();
+		if (rastro != null && inicioEsperaCruzamento == 0) {
+			inicioEsperaCruzamento = agoraNanos();
+		}
+		if (modoReserva == ModoReserva.ORDENADA) {
+			// Bloqueia até ter o caminho inteiro; não há tentativas repetidas.
+			gerenciadorSincronizacao.adquirirCaminho(celulas, inicioCaminho, fimCaminho, id);
+			percorrerCaminho();
+			return;
+		}
 
-			for (Point proximoPasso : caminhoCompleto) {
-				Point posicaoAntiga = this.posicao;
-				this.posicao = proximoPasso;
-				painel.repaint();
+		// Lida antes da tentativa, para não perder uma liberação que aconteça entre a falha e a espera.
+		long versao = modoEsperaCruzamento == ModoEsperaCruzamento.NOTIFICADA
+				? gerenciadorSincronizacao.getVersaoCruzamento(celulaEntrada)
+				: 0;
+		if (gerenciadorSincronizacao.tentarAdquirirCaminho(celulas, inicioCaminho, fimCaminho, id)) {
+			falhasSeguidas = 0;
+			percorrerCaminho();
+		} else if (modoEsperaCruzamento == ModoEsperaCruzamento.NOTIFICADA) {
+			long limite = Math.min(velocidade, (long) ESPERA_MINIMA_CRUZAMENTO_MS << Math.min(falhasSeguidas, 16));
+			falhasSeguidas++;
+			gerenciadorSincronizacao.aguardarCruzamento(celulaEntrada, versao, limiteEsperaMs(limite));
+		} else {
+			pausar(velocidade);
+		}
+	}
 
-				gerenciadorSincronizacao.liberar(posicaoAntiga);
-				Thread.sleep(velocidade);
+	private void percorrerCaminho() throws InterruptedException {
+		int[] celulas = rotas.getCelulas();
+		reservadoAte = fimCaminho;
+		// A espera pelo caminho inteiro vai no primeiro passo; os demais já estavam reservados.
+		long esperaNanos = rastro != null ? agoraNanos() - inicioEsperaCruzamento : 0;
+		inicioEsperaCruzamento = 0;
+		for (int i = inicioCaminho; i < fimCaminho; i++) {
+			int celulaAntiga = this.celula;
+			this.celula = celulas[i];
+			// Apenas o trecho ainda não percorrido continua reservado; se a thread for
+			// interrompida, o finally libera a posição atual e este restante.
+			this.reservadoDe = i + 1;
+			if (rastro != null) {
+				rastro.registrar(id, celulaAntiga, celulas[i], esperaNanos);
+				esperaNanos = 0;
 			}
-			this.caminhoReservado = null;
+			observador.aoMover(this);
+
+			gerenciadorSincronizacao.liberar(celulaAntiga, id);
+			dormir(velocidade);
+		}
+		reservadoDe = reservadoAte = 0;
+	}
+
+	/**
+	 * Tempo em que o veículo fica na célula (ou parado depois de uma reserva que falhou), na escala.
+	 */
+	private void dormir(long ms) throws InterruptedException {
+		if (escala != null) {
+			escala.dormir(ms);
 		} else {
-			Thread.sleep(velocidade);
+			Thread.sleep(ms);
 		}
 	}
 
-	private List<Point> planejarCaminhoCompleto(Point pontoEntrada) {
-		List<Point> caminho = new ArrayList<>();
-		caminho.add(pontoEntrada);
+	/**
+	 * Pausa antes de tentar o cruzamento de novo; ver EscalaTempo.pausar.
+	 */
+	private void pausar(long ms) throws InterruptedException {
+		if (escala != null) {
+			escala.pausar(ms);
+		} else {
+			Thread.sleep(ms);
+		}
+	}
 
-		Point pontoAtual = pontoEntrada;
-		Point pontoAnterior = this.posicao;
+	/**
+	 * Limite, em ms reais, de uma espera notificada de {@code ms} ms simulados. Fica em pelo menos
+	 * 1 ms, também na velocidade máxima: a espera termina com o aviso de liberação, e o limite só
+	 * cobre os avisos que não vêm.
+	 */
+	private long limiteEsperaMs(long ms) {
+		if (escala == null)
+			return ms;
+		return escala.isVelocidadeMaxima() ? 1 : Math.max(1, escala.paraNanosReais(ms * 1_000_000L) / 1_000_000);
+	}
 
-		while (pontoAtual != null && malha.getValor(pontoAtual.y, pontoAtual.x) >= 5) {
-			int tipoAtual = malha.getValor(pontoAtual.y, pontoAtual.x);
-			List<Integer> direcoesPossiveis = obterDirecoesDeSaida(tipoAtual);
-			Point proximoPonto = escolherProximoPasso(pontoAtual, direcoesPossiveis, caminho, pontoAnterior);
+	private long agoraNanos() {
+		return escala != null ? escala.agoraNanos() : System.nanoTime();
+	}
 
-			if (proximoPonto == null)
-				break;
+	/**
+	 * Sorteia o caminho completo através do cruzamento que começa em {@code celulaEntrada},
+	 * terminando na primeira célula que não é cruzamento.
+	 *
+	 * @return cópia do caminho; usado pelos benchmarks.
+	 */
+	public int[] planejarCaminhoCompleto(int celulaEntrada) {
+		int tamanho = planejarCaminho(celulaEntrada);
+		return Arrays.copyOfRange(rotas.getCelulas(), inicioCaminho, inicioCaminho + tamanho);
+	}
 
-			caminho.add(proximoPonto);
-			pontoAnterior = pontoAtual;
-			pontoAtual = proximoPonto;
+	/**
+	 * Como planejarCaminhoCompleto, mas sem cópia: apenas escolhe uma das rotas pré-calculadas.
+	 * Com destino, é a rota que termina mais perto dele; sem destino (ou se nenhuma rota o
+	 * alcança), a rota é sorteada. As células ficam disponíveis em getCelulaDoCaminho até o
+	 * próximo planejamento.
+	 *
+	 * @return tamanho do caminho (0 se não houver rota).
+	 */
+	public int planejarCaminho(int celulaEntrada) {
+		int rota = distanciasAoDestino != null ? rotaMaisProxima(celulaEntrada) : TabelaRotas.SEM_ROTA;
+		if (rota == TabelaRotas.SEM_ROTA) {
+			rota = rotas.escolher(celulaEntrada, random.nextDouble());
 		}
-		return caminho;
+		if (rota == TabelaRotas.SEM_ROTA) {
+			inicioCaminho = fimCaminho = 0;
+			return 0;
+		}
+		inicioCaminho = rotas.getInicio(rota);
+		fimCaminho = rotas.getFim(rota);
+		return fimCaminho - inicioCaminho;
 	}
 
-	private Point escolherProximoPasso(Point pontoAtual, List<Integer> direcoes, List<Point> caminhoJaConstruido,
-			Point pontoAnterior) {
-		Collections.shuffle(direcoes);
-		for (int direcao : direcoes) {
-			Point proximo = calcularProximoPonto(pontoAtual, direcao);
-			if (isPontoValido(proximo) && !caminhoJaConstruido.contains(proximo)
-					&& malha.getValor(proximo.y, proximo.x) > 0) {
-				return proximo;
+	/**
+	 * @return a rota de {@code celulaEntrada} cuja última célula está mais perto do destino (empates
+	 *         sorteados), ou SEM_ROTA se nenhuma alcança o destino.
+	 */
+	private int rotaMaisProxima(int celulaEntrada) {
+		int[] celulas = rotas.getCelulas();
+		int melhor = TabelaRotas.SEM_ROTA;
+		int menorDistancia = Malha.SEM_DISTANCIA;
+		int empates = 0;
+		int quantidade = rotas.getQuantidadeRotas(celulaEntrada);
+		int primeira = quantidade > 0 ? rotas.getRota(celulaEntrada, 0) : TabelaRotas.SEM_ROTA;
+		for (int rota = primeira; rota < primeira + quantidade; rota++) {
+			int distancia = distanciasAoDestino[celulas[rotas.getFim(rota) - 1]];
+			if (distancia == Malha.SEM_DISTANCIA || distancia > menorDistancia)
+				continue;
+			if (distancia < menorDistancia) {
+				menorDistancia = distancia;
+				melhor = rota;
+				empates = 1;
+			} else if (random.nextInt(++empates) == 0) {
+				melhor = rota;
 			}
 		}
-		return null;
+		return melhor;
 	}
 
-	private Point calcularProximaPosicaoFisica() {
-		int direcaoAtual = malha.getValor(this.posicao.y, this.posicao.x);
-		return calcularProximoPonto(this.posicao, direcaoAtual);
+	public int getCelulaDoCaminho(int i) {
+		return rotas.getCelulas()[inicioCaminho + i];
 	}
 
-	private List<Integer> obterDirecoesDeSaida(int tipoCruzamento) {
-		List<Integer> direcoes = new ArrayList<>();
-		if (tipoCruzamento == 5 || tipoCruzamento == 9 || tipoCruzamento == 10)
-			direcoes.add(1); // Cima
-		if (tipoCruzamento == 6 || tipoCruzamento == 9 || tipoCruzamento == 11)
-			direcoes.add(2); // Direita
-		if (tipoCruzamento == 7 || tipoCruzamento == 11 || tipoCruzamento == 12)
-			direcoes.add(3); // Baixo
-		if (tipoCruzamento == 8 || tipoCruzamento == 10 || tipoCruzamento == 12)
-			direcoes.add(4); // Esquerda
-		return direcoes;
+	/**
+	 * Próxima célula seguindo a direção da via em que o veículo está.
+	 *
+	 * @return o índice da célula, ou Malha.SEM_CELULA se ela cair fora da malha.
+	 */
+	public int calcularProximaCelula() {
+		return malha.getVizinha(this.celula, malha.getTipo(this.celula));
 	}
 
-	private Point calcularProximoPonto(Point origem, int direcao) {
-		if (origem == null)
-			return null;
-		int x = origem.x;
-		int y = origem.y;
-		switch (direcao) {
-		case 1:
-			y--;
-			break;
-		case 2:
-			x++;
-			break;
-		case 3:
-			y++;
-			break;
-		case 4:
-			x--;
-			break;
-		default:
-			return null;
-		}
-		return new Point(x, y);
+	public long getId() {
+		return this.id;
 	}
 
-	private boolean isPontoValido(Point p) {
-		return p != null && p.y >= 0 && p.y < malha.getLinhas() && p.x >= 0 && p.x < malha.getColunas();
+	public int getCelula() {
+		return celula;
 	}
 
-	public long getId() {
-		return this.id;
+	/**
+	 * Usado pelos motores que avançam o veículo sem a sua própria thread (ex.: eventos discretos).
+	 */
+	public void setCelula(int celula) {
+		this.celula = celula;
+	}
+
+	/**
+	 * @return tempo, em ms, que o veículo leva para atravessar uma célula.
+	 */
+	public int getVelocidade() {
+		return velocidade;
+	}
+
+	/**
+	 * @return true se o veículo chegou a ocupar a célula de entrada; false se terminou (interrompido)
+	 *         ainda esperando por ela.
+	 */
+	public boolean entrouNaMalha() {
+		return entrouNaMalha;
+	}
+
+	/**
+	 * @return true se o veículo terminou por ter alcançado um ponto de saída.
+	 */
+	public boolean chegouNaSaida() {
+		return chegouNaSaida;
 	}
 
-	public Point getPosicao() {
-		return posicao;
+	/**
+	 * @return tempo (ns, no relógio da escala) desde a entrada na malha até agora.
+	 */
+	public long getTempoDeViagemNanos() {
+		return agoraNanos() - instanteEntrada;
 	}
 }
\ No newline at end of file
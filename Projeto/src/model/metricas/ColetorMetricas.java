@@ -0,0 +1,134 @@
+package model.metricas;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Acumula as métricas globais da simulação.
+ * Os contadores são LongAdder para que as threads dos veículos não disputem a mesma variável.
+ */
+public class ColetorMetricas {
+
+    private final LongAdder veiculosInseridos = new LongAdder();
+    private final LongAdder veiculosSaidos = new LongAdder();
+    private final LongAdder veiculosInterrompidos = new LongAdder();
+    private final LongAdder passos = new LongAdder();
+    private final Histograma latencia = new Histograma();
+    private final AtomicInteger veiculosAtivos = new AtomicInteger();
+    private final AtomicInteger picoVeiculosAtivos = new AtomicInteger();
+    private final LongSupplier relogio;
+    private volatile long inicioNanos;
+
+    public ColetorMetricas() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param relogio de onde vêm a duração e os instantes das medidas (ex.: EscalaTempo::agoraNanos,
+     *                para medir em tempo simulado).
+     */
+    public ColetorMetricas(LongSupplier relogio) {
+        this.relogio = relogio;
+        this.inicioNanos = relogio.getAsLong();
+    }
+
+    /**
+     * Recomeça a contagem da duração no instante atual; chamado quando a simulação começa, já que
+     * o coletor costuma ser criado antes (e, numa escala alta, a preparação contaria como tempo
+     * simulado).
+     */
+    public void iniciar() {
+        inicioNanos = relogio.getAsLong();
+    }
+
+    public void registrarInsercao() {
+        veiculosInseridos.increment();
+        picoVeiculosAtivos.accumulateAndGet(veiculosAtivos.incrementAndGet(), Math::max);
+    }
+
+    public void registrarPasso() {
+        passos.increment();
+    }
+
+    /**
+     * Registra um veículo que chegou a um ponto de saída.
+     *
+     * @param latenciaNanos tempo entre a entrada na malha e a saída.
+     */
+    public void registrarSaida(long latenciaNanos) {
+        veiculosSaidos.increment();
+        veiculosAtivos.decrementAndGet();
+        latencia.registrar(latenciaNanos);
+    }
+
+    public void registrarInterrupcao() {
+        veiculosInterrompidos.increment();
+        veiculosAtivos.decrementAndGet();
+    }
+
+    public long getVeiculosInseridos() {
+        return veiculosInseridos.sum();
+    }
+
+    public long getVeiculosSaidos() {
+        return veiculosSaidos.sum();
+    }
+
+    public long getVeiculosInterrompidos() {
+        return veiculosInterrompidos.sum();
+    }
+
+    public int getVeiculosAtivos() {
+        return veiculosAtivos.get();
+    }
+
+    public int getPicoVeiculosAtivos() {
+        return picoVeiculosAtivos.get();
+    }
+
+    public long getPassos() {
+        return passos.sum();
+    }
+
+    public double getLatenciaMediaMs() {
+        return latencia.getMediaMs();
+    }
+
+    public double getLatenciaMaximaMs() {
+        return latencia.getMaximoMs();
+    }
+
+    /**
+     * @return distribuição do tempo de viagem (entrada até saída) dos veículos que saíram.
+     */
+    public Histograma getLatencia() {
+        return latencia;
+    }
+
+    public long getDuracaoNanos() {
+        return relogio.getAsLong() - inicioNanos;
+    }
+
+    /**
+     * @return instante atual do relógio das medidas, em ns.
+     */
+    public long agoraNanos() {
+        return relogio.getAsLong();
+    }
+
+    /**
+     * Imprime o resumo de vazão e latência no formato usado pelo modo headless.
+     */
+    public void imprimirResumo(PrintStream saida) {
+        imprimirResumo(saida, getDuracaoNanos());
+    }
+
+    /**
+     * Imprime o resumo usando uma duração explícita (ex.: o tempo simulado do motor de eventos discretos).
+     */
+    public void imprimirResumo(PrintStream saida, long duracaoNanos) {
+        InstantaneoMetricas.capturar(this, null, null, 0).imprimirResumo(saida, duracaoNanos);
+    }
+}
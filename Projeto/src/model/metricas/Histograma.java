@@ -0,0 +1,98 @@
+package model.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma concorrente de durações em nanossegundos, com faixas log-lineares no estilo do
+ * HdrHistogram: cada potência de 2 é dividida em SUBFAIXAS faixas iguais, o que dá erro relativo
+ * de no máximo 1/SUBFAIXAS (12,5%) em qualquer escala, de nanossegundos a horas.
+ * Cada faixa é um LongAdder, então threads que registram ao mesmo tempo não disputam a mesma variável.
+ */
+public class Histograma {
+
+    private static final int BITS_SUBFAIXA = 3;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int TOTAL_FAIXAS = (64 - BITS_SUBFAIXA) * SUBFAIXAS;
+
+    private final LongAdder[] faixas = new LongAdder[TOTAL_FAIXAS];
+    private final LongAdder contagem = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public Histograma() {
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            faixas[i] = new LongAdder();
+        }
+    }
+
+    public void registrar(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        faixas[faixa(nanos)].increment();
+        contagem.increment();
+        soma.add(nanos);
+        if (nanos > maximo.get()) {
+            maximo.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    public long getContagem() {
+        return contagem.sum();
+    }
+
+    public double getMediaMs() {
+        long n = getContagem();
+        return n == 0 ? 0.0 : soma.sum() / (n * 1_000_000.0);
+    }
+
+    public double getMaximoMs() {
+        return maximo.get() / 1_000_000.0;
+    }
+
+    /**
+     * @param percentil de 0 a 100.
+     * @return limite superior (ms) da faixa que contém o percentil, ou 0 se não houver registros.
+     */
+    public double getPercentilMs(double percentil) {
+        long[] contagens = new long[TOTAL_FAIXAS];
+        long total = 0;
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            contagens[i] = faixas[i].sum();
+            total += contagens[i];
+        }
+        if (total == 0)
+            return 0.0;
+
+        long alvo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get()) / 1_000_000.0;
+            }
+        }
+        return getMaximoMs();
+    }
+
+    /**
+     * Valores abaixo de SUBFAIXAS têm faixa própria; acima, a faixa é dada pelo bit mais alto
+     * e pelos BITS_SUBFAIXA bits seguintes.
+     */
+    static int faixa(long valor) {
+        if (valor < SUBFAIXAS)
+            return (int) valor;
+        int bitMaisAlto = 63 - Long.numberOfLeadingZeros(valor);
+        int subfaixa = (int) (valor >>> (bitMaisAlto - BITS_SUBFAIXA)) & (SUBFAIXAS - 1);
+        return (bitMaisAlto - BITS_SUBFAIXA + 1) * SUBFAIXAS + subfaixa;
+    }
+
+    static long limiteSuperior(int faixa) {
+        if (faixa < SUBFAIXAS)
+            return faixa;
+        int bitMaisAlto = faixa / SUBFAIXAS + BITS_SUBFAIXA - 1;
+        long subfaixa = faixa % SUBFAIXAS;
+        long largura = 1L << (bitMaisAlto - BITS_SUBFAIXA);
+        return ((SUBFAIXAS + subfaixa) << (bitMaisAlto - BITS_SUBFAIXA)) + largura - 1;
+    }
+}
@@ -0,0 +1,357 @@
+package model.metricas;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import model.sincronizacao.ContadoresReserva;
+
+/**
+ * Retrato imutável das métricas num instante, lido pelo painel de métricas e pelo modo headless.
+ * Os contadores são acumulados desde o início; as taxas por segundo saem da diferença entre
+ * dois retratos (ver getEntradasPorSegundo).
+ */
+public final class InstantaneoMetricas {
+
+    /** Quantas células mais disputadas entram no retrato. */
+    public static final int CELULAS_MAIS_DISPUTADAS = 5;
+
+    private final long instanteNanos;
+    private final long duracaoNanos;
+    private final long inseridos;
+    private final long saidos;
+    private final long interrompidos;
+    private final int ativos;
+    private final int picoAtivos;
+    private final long passos;
+    private final double latenciaMediaMs;
+    private final double latenciaP50Ms;
+    private final double latenciaP95Ms;
+    private final double latenciaP99Ms;
+    private final double latenciaMaximaMs;
+    private final long esperas;
+    private final double esperaP50Ms;
+    private final double esperaP95Ms;
+    private final double esperaP99Ms;
+    private final double esperaMaximaMs;
+    private final long tentativasCaminho;
+    private final long falhasCaminho;
+    private final long rollbacks;
+    private final long celulasDesfeitas;
+    private final long reservasOrdenadas;
+    private final long travessias;
+    private final double esperaCruzamentoMediaMs;
+    private final double esperaCruzamentoP95Ms;
+    private final double utilizacaoCruzamentos;
+    private final int colunas;
+    private final int[] celulasDisputadas;
+    private final long[] disputas;
+    private final long[] aquisicoes;
+    private final double[] esperaCelulaMs;
+
+    private InstantaneoMetricas(ColetorMetricas coletor, MetricasSincronizacao sincronizacao,
+            ContadoresReserva reservas, int colunas) {
+        this.instanteNanos = coletor.agoraNanos();
+        this.duracaoNanos = coletor.getDuracaoNanos();
+        this.inseridos = coletor.getVeiculosInseridos();
+        this.saidos = coletor.getVeiculosSaidos();
+        this.interrompidos = coletor.getVeiculosInterrompidos();
+        this.ativos = coletor.getVeiculosAtivos();
+        this.picoAtivos = coletor.getPicoVeiculosAtivos();
+        this.passos = coletor.getPassos();
+
+        Histograma latencia = coletor.getLatencia();
+        this.latenciaMediaMs = latencia.getMediaMs();
+        this.latenciaP50Ms = latencia.getPercentilMs(50);
+        this.latenciaP95Ms = latencia.getPercentilMs(95);
+        this.latenciaP99Ms = latencia.getPercentilMs(99);
+        this.latenciaMaximaMs = latencia.getMaximoMs();
+
+        Histograma espera = sincronizacao != null ? sincronizacao.getEspera() : null;
+        this.esperas = espera != null ? espera.getContagem() : 0;
+        this.esperaP50Ms = espera != null ? espera.getPercentilMs(50) : 0;
+        this.esperaP95Ms = espera != null ? espera.getPercentilMs(95) : 0;
+        this.esperaP99Ms = espera != null ? espera.getPercentilMs(99) : 0;
+        this.esperaMaximaMs = espera != null ? espera.getMaximoMs() : 0;
+
+        this.tentativasCaminho = reservas != null ? reservas.getTentativas() : 0;
+        this.falhasCaminho = reservas != null ? reservas.getFalhas() : 0;
+        this.rollbacks = reservas != null ? reservas.getRollbacks() : 0;
+        this.celulasDesfeitas = reservas != null ? reservas.getCelulasDesfeitas() : 0;
+        this.reservasOrdenadas = reservas != null ? reservas.getReservasOrdenadas() : 0;
+
+        Histograma esperaCruzamento = sincronizacao != null ? sincronizacao.getEsperaCruzamento() : null;
+        this.travessias = esperaCruzamento != null ? esperaCruzamento.getContagem() : 0;
+        this.esperaCruzamentoMediaMs = esperaCruzamento != null ? esperaCruzamento.getMediaMs() : 0;
+        this.esperaCruzamentoP95Ms = esperaCruzamento != null ? esperaCruzamento.getPercentilMs(95) : 0;
+        this.utilizacaoCruzamentos = sincronizacao != null ? sincronizacao.getUtilizacaoCruzamentos() : 0;
+
+        this.colunas = colunas;
+        this.celulasDisputadas = new int[CELULAS_MAIS_DISPUTADAS];
+        this.disputas = new long[CELULAS_MAIS_DISPUTADAS];
+        this.aquisicoes = new long[CELULAS_MAIS_DISPUTADAS];
+        this.esperaCelulaMs = new double[CELULAS_MAIS_DISPUTADAS];
+        Arrays.fill(celulasDisputadas, -1);
+        if (sincronizacao != null) {
+            selecionarMaisDisputadas(sincronizacao);
+        }
+    }
+
+    /**
+     * @param sincronizacao pode ser null (ex.: motor de eventos discretos, que não usa gerenciadores).
+     * @param reservas      pode ser null.
+     */
+    public static InstantaneoMetricas capturar(ColetorMetricas coletor, MetricasSincronizacao sincronizacao,
+            ContadoresReserva reservas, int colunas) {
+        return new InstantaneoMetricas(coletor, sincronizacao, reservas, colunas);
+    }
+
+    /**
+     * Mantém as CELULAS_MAIS_DISPUTADAS células com mais disputas, por inserção num array pequeno.
+     */
+    private void selecionarMaisDisputadas(MetricasSincronizacao sincronizacao) {
+        if (!sincronizacao.isPorCelula())
+            return;
+        for (int c = 0; c < sincronizacao.getTotalCelulas(); c++) {
+            long n = sincronizacao.getDisputas(c);
+            if (n == 0 || n <= disputas[CELULAS_MAIS_DISPUTADAS - 1])
+                continue;
+            int i = CELULAS_MAIS_DISPUTADAS - 1;
+            while (i > 0 && disputas[i - 1] < n) {
+                disputas[i] = disputas[i - 1];
+                celulasDisputadas[i] = celulasDisputadas[i - 1];
+                aquisicoes[i] = aquisicoes[i - 1];
+                esperaCelulaMs[i] = esperaCelulaMs[i - 1];
+                i--;
+            }
+            disputas[i] = n;
+            celulasDisputadas[i] = c;
+            aquisicoes[i] = sincronizacao.getAquisicoes(c);
+            esperaCelulaMs[i] = sincronizacao.getEsperaNanos(c) / 1_000_000.0;
+        }
+    }
+
+    public double getEntradasPorSegundo(InstantaneoMetricas anterior) {
+        return taxa(inseridos, anterior == null ? 0 : anterior.inseridos, anterior);
+    }
+
+    public double getSaidasPorSegundo(InstantaneoMetricas anterior) {
+        return taxa(saidos, anterior == null ? 0 : anterior.saidos, anterior);
+    }
+
+    public double getPassosPorSegundo(InstantaneoMetricas anterior) {
+        return taxa(passos, anterior == null ? 0 : anterior.passos, anterior);
+    }
+
+    /**
+     * Taxa entre este retrato e o anterior; sem anterior, a média desde o início.
+     */
+    private double taxa(long atual, long antes, InstantaneoMetricas anterior) {
+        long nanos = anterior == null ? duracaoNanos : instanteNanos - anterior.instanteNanos;
+        return nanos <= 0 ? 0.0 : (atual - antes) * 1_000_000_000.0 / nanos;
+    }
+
+    public long getInseridos() {
+        return inseridos;
+    }
+
+    public long getSaidos() {
+        return saidos;
+    }
+
+    public long getInterrompidos() {
+        return interrompidos;
+    }
+
+    public int getAtivos() {
+        return ativos;
+    }
+
+    public int getPicoAtivos() {
+        return picoAtivos;
+    }
+
+    public long getPassos() {
+        return passos;
+    }
+
+    public double getLatenciaMediaMs() {
+        return latenciaMediaMs;
+    }
+
+    public double getLatenciaP50Ms() {
+        return latenciaP50Ms;
+    }
+
+    public double getLatenciaP95Ms() {
+        return latenciaP95Ms;
+    }
+
+    public double getLatenciaP99Ms() {
+        return latenciaP99Ms;
+    }
+
+    public double getLatenciaMaximaMs() {
+        return latenciaMaximaMs;
+    }
+
+    public long getEsperas() {
+        return esperas;
+    }
+
+    public double getEsperaP50Ms() {
+        return esperaP50Ms;
+    }
+
+    public double getEsperaP95Ms() {
+        return esperaP95Ms;
+    }
+
+    public double getEsperaP99Ms() {
+        return esperaP99Ms;
+    }
+
+    public double getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    public long getTentativasCaminho() {
+        return tentativasCaminho;
+    }
+
+    public long getFalhasCaminho() {
+        return falhasCaminho;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getCelulasDesfeitas() {
+        return celulasDesfeitas;
+    }
+
+    public long getReservasOrdenadas() {
+        return reservasOrdenadas;
+    }
+
+    public long getTravessias() {
+        return travessias;
+    }
+
+    public double getEsperaCruzamentoMediaMs() {
+        return esperaCruzamentoMediaMs;
+    }
+
+    public double getEsperaCruzamentoP95Ms() {
+        return esperaCruzamentoP95Ms;
+    }
+
+    /**
+     * @return fração (0 a 1) do tempo em que as células de cruzamento estiveram reservadas.
+     */
+    public double getUtilizacaoCruzamentos() {
+        return utilizacaoCruzamentos;
+    }
+
+    /**
+     * @return quantas das CELULAS_MAIS_DISPUTADAS posições estão preenchidas.
+     */
+    public int getQuantidadeCelulasDisputadas() {
+        int n = 0;
+        while (n < CELULAS_MAIS_DISPUTADAS && celulasDisputadas[n] >= 0) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @param i posição no ranking, 0 = mais disputada.
+     */
+    public int getCelulaDisputada(int i) {
+        return celulasDisputadas[i];
+    }
+
+    public long getDisputas(int i) {
+        return disputas[i];
+    }
+
+    public long getAquisicoes(int i) {
+        return aquisicoes[i];
+    }
+
+    public double getEsperaCelulaMs(int i) {
+        return esperaCelulaMs[i];
+    }
+
+    /**
+     * Descrição "(linha, coluna)" da i-ésima célula mais disputada.
+     */
+    public String getDescricaoCelulaDisputada(int i) {
+        int c = celulasDisputadas[i];
+        return "(" + c / colunas + ", " + c % colunas + ")";
+    }
+
+    /**
+     * Linha curta com as taxas desde o retrato anterior, para relatórios periódicos.
+     */
+    public String getLinhaResumo(InstantaneoMetricas anterior) {
+        return String.format("ativos %d | entradas %.2f/s | saídas %.2f/s | passos %.1f/s | espera p99 %.1f ms"
+                + " | falhas de reserva %d", ativos, getEntradasPorSegundo(anterior), getSaidasPorSegundo(anterior),
+                getPassosPorSegundo(anterior), esperaP99Ms, falhasCaminho);
+    }
+
+    /**
+     * Imprime o resumo de vazão e latência deste retrato, no formato usado pelo modo headless.
+     */
+    public void imprimirResumo(PrintStream saida) {
+        imprimirResumo(saida, duracaoNanos);
+    }
+
+    /**
+     * Como imprimirResumo(saida), com uma duração explícita (ex.: o tempo simulado do motor de
+     * eventos discretos).
+     */
+    public void imprimirResumo(PrintStream saida, long duracaoNanos) {
+        double segundos = duracaoNanos / 1_000_000_000.0;
+        saida.println("===== Resumo da simulação =====");
+        saida.printf("Duração:                %.2f s%n", segundos);
+        saida.printf("Veículos inseridos:     %d%n", inseridos);
+        saida.printf("Veículos que saíram:    %d%n", saidos);
+        saida.printf("Veículos interrompidos: %d%n", interrompidos);
+        saida.printf("Pico de simultâneos:    %d%n", picoAtivos);
+        saida.printf("Vazão:                  %.3f veículos/s%n", saidos / segundos);
+        saida.printf("Passos:                 %d (%.1f passos/s)%n", passos, passos / segundos);
+        saida.printf("Latência média:         %.1f ms%n", latenciaMediaMs);
+        saida.printf("Latência p50/p95/p99:   %.1f / %.1f / %.1f ms%n", latenciaP50Ms, latenciaP95Ms, latenciaP99Ms);
+        saida.printf("Latência máxima:        %.1f ms%n", latenciaMaximaMs);
+    }
+
+    /**
+     * Imprime os contadores de reserva deste retrato, como ContadoresReserva.imprimirResumo.
+     */
+    public void imprimirReservas(PrintStream saida) {
+        ContadoresReserva.imprimirResumo(saida, tentativasCaminho, falhasCaminho, rollbacks, celulasDesfeitas,
+                reservasOrdenadas);
+    }
+
+    public void imprimir(PrintStream saida) {
+        saida.println("===== Espera e disputa =====");
+        saida.printf("Esperas por células:    %d%n", esperas);
+        saida.printf("Espera p50/p95/p99:     %.3f / %.3f / %.3f ms%n", esperaP50Ms, esperaP95Ms, esperaP99Ms);
+        saida.printf("Espera máxima:          %.1f ms%n", esperaMaximaMs);
+        saida.printf("Reservas que falharam:  %d de %d%n", falhasCaminho, tentativasCaminho);
+        saida.printf("Travessias:             %d, espera média %.1f ms (p95 %.1f ms)%n", travessias,
+                esperaCruzamentoMediaMs, esperaCruzamentoP95Ms);
+        saida.printf("Utilização cruzamentos: %.1f%%%n", utilizacaoCruzamentos * 100);
+        int n = getQuantidadeCelulasDisputadas();
+        if (n == 0) {
+            saida.println("Nenhuma célula disputada.");
+            return;
+        }
+        saida.println("Células mais disputadas (linha, coluna):");
+        for (int i = 0; i < n; i++) {
+            saida.printf("  %-12s %6d disputas em %7d aquisições, %10.1f ms de espera%n",
+                    getDescricaoCelulaDisputada(i), disputas[i], aquisicoes[i], esperaCelulaMs[i]);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package model.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Tempo que os veículos passam bloqueados esperando células e a disputa por cada célula.
+ * Preenchido pelo GerenciadorInstrumentado. Os contadores por célula ficam em arrays atômicos
+ * planos, indexados pela célula, criados só quando a instrumentação é ligada (alocarPorCelula);
+ * os de disputa só são tocados quando há disputa.
+ *
+ * Dos cruzamentos, mede a espera de cada travessia (da primeira tentativa de reserva até a
+ * reserva) e a utilização: a fração do tempo em que as células de cruzamento ficaram reservadas.
+ */
+public class MetricasSincronizacao {
+
+    private final Histograma espera = new Histograma();
+    private final int totalCelulas;
+    // null até alocarPorCelula.
+    private AtomicLongArray aquisicoesPorCelula;
+    private AtomicLongArray disputasPorCelula;
+    private AtomicLongArray esperaPorCelulaNanos;
+    private final Histograma esperaCruzamento = new Histograma();
+    private final LongAdder ocupacaoCruzamentosNanos = new LongAdder();
+    private final int celulasDeCruzamento;
+    private final LongSupplier relogio;
+    private final long inicioNanos;
+
+    public MetricasSincronizacao(int totalCelulas, int celulasDeCruzamento) {
+        this(totalCelulas, celulasDeCruzamento, System::nanoTime);
+    }
+
+    /**
+     * @param relogio o mesmo relógio das medidas de espera e ocupação (ver GerenciadorInstrumentado).
+     */
+    public MetricasSincronizacao(int totalCelulas, int celulasDeCruzamento, LongSupplier relogio) {
+        this.relogio = relogio;
+        this.inicioNanos = relogio.getAsLong();
+        this.totalCelulas = totalCelulas;
+        this.celulasDeCruzamento = celulasDeCruzamento;
+    }
+
+    /**
+     * Cria os contadores por célula; chamado pelo GerenciadorInstrumentado ao ser ligado, antes de
+     * qualquer registro.
+     */
+    public void alocarPorCelula() {
+        if (aquisicoesPorCelula != null)
+            return;
+        aquisicoesPorCelula = new AtomicLongArray(totalCelulas);
+        disputasPorCelula = new AtomicLongArray(totalCelulas);
+        esperaPorCelulaNanos = new AtomicLongArray(totalCelulas);
+    }
+
+    /**
+     * @return false enquanto os contadores por célula não existem (instrumentação desligada).
+     */
+    public boolean isPorCelula() {
+        return aquisicoesPorCelula != null;
+    }
+
+    /**
+     * Registra o tempo de uma chamada bloqueante (adquirir ou adquirirCaminho).
+     */
+    public void registrarEspera(long nanos) {
+        espera.registrar(nanos);
+    }
+
+    public void registrarAquisicao(int celula) {
+        aquisicoesPorCelula.incrementAndGet(celula);
+    }
+
+    /**
+     * Registra que um veículo encontrou {@code celula} ocupada.
+     *
+     * @param esperaNanos quanto tempo ele ficou bloqueado por ela (0 numa tentativa que falhou).
+     */
+    public void registrarDisputa(int celula, long esperaNanos) {
+        disputasPorCelula.incrementAndGet(celula);
+        if (esperaNanos > 0) {
+            esperaPorCelulaNanos.addAndGet(celula, esperaNanos);
+        }
+    }
+
+    /**
+     * Registra uma travessia de cruzamento e quanto ela esperou (0 se a primeira tentativa deu certo).
+     */
+    public void registrarEsperaCruzamento(long nanos) {
+        esperaCruzamento.registrar(nanos);
+    }
+
+    /**
+     * Registra por quanto tempo uma célula de cruzamento ficou reservada.
+     */
+    public void registrarOcupacaoCruzamento(long nanos) {
+        ocupacaoCruzamentosNanos.add(nanos);
+    }
+
+    public Histograma getEspera() {
+        return espera;
+    }
+
+    public Histograma getEsperaCruzamento() {
+        return esperaCruzamento;
+    }
+
+    /**
+     * @return fração (0 a 1) do tempo desde a criação em que as células de cruzamento estiveram
+     *         reservadas, em média; reservas ainda abertas não entram.
+     */
+    public double getUtilizacaoCruzamentos() {
+        long decorrido = relogio.getAsLong() - inicioNanos;
+        if (celulasDeCruzamento == 0 || decorrido <= 0)
+            return 0.0;
+        return ocupacaoCruzamentosNanos.sum() / ((double) celulasDeCruzamento * decorrido);
+    }
+
+    public int getTotalCelulas() {
+        return totalCelulas;
+    }
+
+    public long getAquisicoes(int celula) {
+        return aquisicoesPorCelula != null ? aquisicoesPorCelula.get(celula) : 0;
+    }
+
+    public long getDisputas(int celula) {
+        return disputasPorCelula != null ? disputasPorCelula.get(celula) : 0;
+    }
+
+    public long getEsperaNanos(int celula) {
+        return esperaPorCelulaNanos != null ? esperaPorCelulaNanos.get(celula) : 0;
+    }
+
+    /**
+     * Retrato compacto da disputa de cada célula, para o mapa de calor: um byte por célula,
+     * de 0 (nenhuma disputa) a 255 (a célula mais disputada). A escala é logarítmica para que
+     * células com pouca disputa ainda apareçam ao lado de um gargalo.
+     */
+    public byte[] capturarMapaDeCalor() {
+        int total = totalCelulas;
+        byte[] intensidades = new byte[total];
+        if (disputasPorCelula == null)
+            return intensidades;
+        long maximo = 0;
+        for (int c = 0; c < total; c++) {
+            maximo = Math.max(maximo, disputasPorCelula.get(c));
+        }
+        if (maximo == 0)
+            return intensidades;
+
+        double escala = 255.0 / Math.log1p(maximo);
+        for (int c = 0; c < total; c++) {
+            long n = disputasPorCelula.get(c);
+            if (n > 0) {
+                intensidades[c] = (byte) Math.max(1, Math.round(Math.log1p(n) * escala));
+            }
+        }
+        return intensidades;
+    }
+}
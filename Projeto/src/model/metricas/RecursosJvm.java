@@ -0,0 +1,68 @@
+package model.metricas;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Lê os picos de threads e memória mantidos pela própria JVM (e pelo kernel, no Linux).
+ * Usado para comparar os modos de execução com threads de plataforma e virtuais.
+ */
+public final class RecursosJvm {
+
+    private RecursosJvm() {
+    }
+
+    /**
+     * Soma dos picos de uso de todos os pools de heap desde o início da JVM.
+     */
+    public static long getPicoHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Pico de memória residente do processo (VmHWM), que inclui as pilhas nativas das threads
+     * de plataforma. Retorna -1 fora do Linux.
+     */
+    public static long getPicoResidenteBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status))
+            return -1;
+        try {
+            for (String linha : Files.readAllLines(status)) {
+                if (linha.startsWith("VmHWM:")) {
+                    String[] partes = linha.trim().split("\\s+");
+                    return Long.parseLong(partes[1]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    public static void imprimirResumo(PrintStream saida) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        saida.println("===== Recursos da JVM =====");
+        // O ThreadMXBean conta apenas threads de plataforma; threads virtuais não aparecem aqui.
+        saida.printf("Threads de plataforma:  %d (pico %d)%n", threads.getThreadCount(),
+                threads.getPeakThreadCount());
+        saida.printf("Pico de heap:           %.1f MB%n", getPicoHeapBytes() / (1024.0 * 1024.0));
+        long rss = getPicoResidenteBytes();
+        if (rss >= 0) {
+            saida.printf("Pico de memória (RSS):  %.1f MB%n", rss / (1024.0 * 1024.0));
+        }
+    }
+}
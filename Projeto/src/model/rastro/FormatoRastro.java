@@ -0,0 +1,58 @@
+package model.rastro;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout do arquivo de rastro, compartilhado pelo GravadorRastro e pelo LeitorRastro.
+ *
+ * O arquivo é um cabeçalho de TAMANHO_CABECALHO bytes seguido de registros de TAMANHO_REGISTRO
+ * bytes, todos little-endian, só acrescentados ao fim:
+ *
+ * <pre>
+ * cabeçalho: int mágico, short versão, short tamanho do registro, int linhas, int colunas,
+ *            long início (ms desde a época), long reservado
+ * registro:  long instante (ns desde o início), int veículo, int célula de origem,
+ *            int célula de destino, int espera (µs)
+ * </pre>
+ *
+ * A entrada de um veículo na malha é um registro com origem FORA; a saída, um registro com destino
+ * FORA (chegou a uma saída) ou INTERROMPIDO. Um registro incompleto no fim do arquivo (gravação
+ * interrompida) é ignorado na leitura.
+ */
+public final class FormatoRastro {
+
+    /** "RSTR" em ASCII. */
+    public static final int MAGICO = 0x52535452;
+    public static final short VERSAO = 1;
+    public static final int TAMANHO_CABECALHO = 32;
+    public static final int TAMANHO_REGISTRO = 24;
+    public static final ByteOrder ORDEM = ByteOrder.LITTLE_ENDIAN;
+
+    /** Origem de uma entrada na malha e destino de uma saída. */
+    public static final int FORA = -1;
+    /** Destino de um veículo que foi interrompido antes de chegar a uma saída. */
+    public static final int INTERROMPIDO = -2;
+
+    private FormatoRastro() {
+    }
+
+    static void escreverCabecalho(ByteBuffer buffer, int linhas, int colunas, long inicioEpochMs) {
+        buffer.putInt(MAGICO);
+        buffer.putShort(VERSAO);
+        buffer.putShort((short) TAMANHO_REGISTRO);
+        buffer.putInt(linhas);
+        buffer.putInt(colunas);
+        buffer.putLong(inicioEpochMs);
+        buffer.putLong(0);
+    }
+
+    static void escreverRegistro(ByteBuffer buffer, long instanteNanos, int veiculo, int de, int para,
+            int esperaMicros) {
+        buffer.putLong(instanteNanos);
+        buffer.putInt(veiculo);
+        buffer.putInt(de);
+        buffer.putInt(para);
+        buffer.putInt(esperaMicros);
+    }
+}
@@ -0,0 +1,250 @@
+package model.rastro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Grava o rastro dos movimentos dos veículos (ver FormatoRastro) numa thread própria, para que o
+ * veículo não espere pelo disco.
+ *
+ * São dois buffers diretos: os veículos preenchem o atual, sob uma trava curta, enquanto a thread
+ * do gravador escreve o outro no FileChannel. Quando o atual enche, os dois trocam de papel; só se
+ * o gravador ainda estiver escrevendo o outro o veículo espera (contado em getEsperasPorBuffer).
+ * O gravador também descarrega o buffer atual a cada INTERVALO_DESCARGA_MS, para que o arquivo
+ * acompanhe uma simulação lenta. A trava é ReentrantLock, e não synchronized, para não prender a
+ * thread portadora das threads virtuais.
+ *
+ * Se a escrita falhar, o erro é impresso e os registros seguintes são descartados; a simulação
+ * continua.
+ */
+public class GravadorRastro implements Runnable {
+
+    /** Tamanho de cada um dos dois buffers, múltiplo do registro. */
+    public static final int TAMANHO_BUFFER = (1 << 20) / FormatoRastro.TAMANHO_REGISTRO * FormatoRastro.TAMANHO_REGISTRO;
+    public static final long INTERVALO_DESCARGA_MS = 200;
+
+    private final FileChannel canal;
+    private final LongSupplier relogio;
+    private final long inicioNanos;
+    private final ReentrantLock trava = new ReentrantLock();
+    /** Sinalizado quando há um buffer cheio para escrever, ou no fechamento. */
+    private final Condition cheio = trava.newCondition();
+    /** Sinalizado quando o gravador devolve o buffer que escreveu. */
+    private final Condition livre = trava.newCondition();
+    // Protegidos pela trava: o buffer que os veículos preenchem, o que espera ser escrito e o que
+    // está livre (null enquanto o gravador o escreve).
+    private ByteBuffer atual;
+    private ByteBuffer pendente;
+    private ByteBuffer reserva;
+    private boolean fechado = false;
+    private Thread thread;
+    private volatile long registros = 0;
+    private volatile long descartados = 0;
+    private volatile long esperasPorBuffer = 0;
+    private volatile long bytesEscritos = 0;
+
+    private GravadorRastro(FileChannel canal, LongSupplier relogio) {
+        this.canal = canal;
+        this.relogio = relogio;
+        this.inicioNanos = relogio.getAsLong();
+        this.atual = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(FormatoRastro.ORDEM);
+        this.reserva = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(FormatoRastro.ORDEM);
+    }
+
+    /**
+     * Cria (ou sobrescreve) o arquivo, escreve o cabeçalho e inicia a thread do gravador. Os
+     * instantes dos registros contam a partir desta chamada.
+     */
+    public static GravadorRastro abrir(Path arquivo, int linhas, int colunas) throws IOException {
+        return abrir(arquivo, linhas, colunas, System::nanoTime);
+    }
+
+    /**
+     * Como abrir(arquivo, linhas, colunas), com os instantes tirados de {@code relogio} (ex.:
+     * EscalaTempo::agoraNanos, para que o rastro fique em tempo simulado).
+     */
+    public static GravadorRastro abrir(Path arquivo, int linhas, int colunas, LongSupplier relogio)
+            throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer cabecalho = ByteBuffer.allocate(FormatoRastro.TAMANHO_CABECALHO).order(FormatoRastro.ORDEM);
+        FormatoRastro.escreverCabecalho(cabecalho, linhas, colunas, System.currentTimeMillis());
+        cabecalho.flip();
+        try {
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho);
+            }
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+
+        GravadorRastro gravador = new GravadorRastro(canal, relogio);
+        gravador.bytesEscritos = FormatoRastro.TAMANHO_CABECALHO;
+        gravador.thread = new Thread(gravador, "gravador-rastro");
+        gravador.thread.setDaemon(true);
+        gravador.thread.start();
+        return gravador;
+    }
+
+    /**
+     * Acrescenta um movimento ao rastro; pode ser chamado de qualquer thread. Não lança exceção nem
+     * responde a interrupções, para poder ser chamado no finally do veículo.
+     *
+     * @param de          célula de origem, ou FormatoRastro.FORA na entrada.
+     * @param para        célula de destino, ou FormatoRastro.FORA / INTERROMPIDO na saída.
+     * @param esperaNanos quanto o veículo esperou pela célula (ou pelo caminho do cruzamento).
+     */
+    public void registrar(int veiculo, int de, int para, long esperaNanos) {
+        int esperaMicros = (int) Math.min(Integer.MAX_VALUE, esperaNanos / 1000);
+        trava.lock();
+        try {
+            if (atual == null || atual.remaining() < FormatoRastro.TAMANHO_REGISTRO && !trocar()) {
+                descartados++;
+                return;
+            }
+            // Lido com a trava e depois da troca, em que a trava é solta enquanto se espera o buffer
+            // livre: assim os instantes ficam em ordem no arquivo.
+            long instante = relogio.getAsLong() - inicioNanos;
+            FormatoRastro.escreverRegistro(atual, instante, veiculo, de, para, esperaMicros);
+            registros++;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Entrega o buffer atual ao gravador e passa a preencher o livre, esperando por ele se preciso.
+     * Chamado com a trava.
+     *
+     * @return false se o gravador foi fechado ou falhou.
+     */
+    private boolean trocar() {
+        if (reserva == null && !fechado) {
+            esperasPorBuffer++;
+            do {
+                livre.awaitUninterruptibly();
+            } while (reserva == null && !fechado);
+        }
+        if (fechado)
+            return false;
+        pendente = atual;
+        atual = reserva;
+        reserva = null;
+        cheio.signal();
+        return true;
+    }
+
+    /**
+     * Escreve o que falta, fecha o arquivo e espera a thread do gravador terminar. Registros
+     * pedidos depois disso são descartados.
+     */
+    public void fechar() throws InterruptedException {
+        trava.lock();
+        try {
+            fechado = true;
+            cheio.signal();
+            livre.signalAll();
+        } finally {
+            trava.unlock();
+        }
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                ByteBuffer buffer;
+                boolean ultimo = false;
+                trava.lock();
+                try {
+                    while (pendente == null && !fechado) {
+                        long restante = cheio.awaitNanos(TimeUnit.MILLISECONDS.toNanos(INTERVALO_DESCARGA_MS));
+                        // Passou o intervalo sem encher: descarrega o que houver.
+                        if (restante <= 0 && pendente == null && reserva != null && atual.position() > 0) {
+                            pendente = atual;
+                            atual = reserva;
+                            reserva = null;
+                        }
+                    }
+                    if (pendente != null) {
+                        buffer = pendente;
+                        pendente = null;
+                    } else {
+                        // Fechado e sem nada pendente: resta o buffer atual.
+                        buffer = atual;
+                        atual = null;
+                        ultimo = true;
+                    }
+                } finally {
+                    trava.unlock();
+                }
+
+                escrever(buffer);
+                if (ultimo)
+                    break;
+
+                trava.lock();
+                try {
+                    reserva = buffer;
+                    livre.signalAll();
+                } finally {
+                    trava.unlock();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Erro ao gravar o rastro: " + e.getMessage());
+            trava.lock();
+            try {
+                fechado = true;
+                atual = null;
+                livre.signalAll();
+            } finally {
+                trava.unlock();
+            }
+        } finally {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o rastro: " + e.getMessage());
+            }
+        }
+    }
+
+    private void escrever(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+        bytesEscritos += bytes;
+    }
+
+    public long getRegistros() {
+        return registros;
+    }
+
+    public long getDescartados() {
+        return descartados;
+    }
+
+    /**
+     * @return quantas vezes um veículo encontrou os dois buffers ocupados e esperou o disco.
+     */
+    public long getEsperasPorBuffer() {
+        return esperasPorBuffer;
+    }
+
+    public long getBytesEscritos() {
+        return bytesEscritos;
+    }
+}
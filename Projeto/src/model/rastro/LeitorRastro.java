@@ -0,0 +1,170 @@
+package model.rastro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lê um arquivo de rastro (ver FormatoRastro) do início ao fim, mapeado em memória.
+ *
+ * Um MappedByteBuffer não passa de 2 GB, então o arquivo é mapeado em janelas de até
+ * TAMANHO_JANELA bytes, sempre em fronteira de registro; a próxima janela só é mapeada quando a
+ * anterior termina. É um cursor: proximo() avança e os getters leem o registro atual, sem criar
+ * nenhum objeto por registro.
+ */
+public final class LeitorRastro implements Closeable {
+
+    /** Tamanho máximo de cada janela mapeada, múltiplo do registro. */
+    public static final long TAMANHO_JANELA = (256L << 20) / FormatoRastro.TAMANHO_REGISTRO
+            * FormatoRastro.TAMANHO_REGISTRO;
+
+    private final FileChannel canal;
+    private final int linhas;
+    private final int colunas;
+    private final long inicioEpochMs;
+    private final long quantidade;
+    private MappedByteBuffer janela;
+    // Índice do registro atual (-1 antes do primeiro).
+    private long indice = -1;
+    private long instanteNanos;
+    private int veiculo;
+    private int de;
+    private int para;
+    private int esperaMicros;
+
+    private LeitorRastro(FileChannel canal, int linhas, int colunas, long inicioEpochMs, long quantidade) {
+        this.canal = canal;
+        this.linhas = linhas;
+        this.colunas = colunas;
+        this.inicioEpochMs = inicioEpochMs;
+        this.quantidade = quantidade;
+    }
+
+    /**
+     * Abre o arquivo e confere o cabeçalho.
+     *
+     * @throws IOException se o arquivo não puder ser lido ou não for um rastro desta versão.
+     */
+    public static LeitorRastro abrir(Path arquivo) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            ByteBuffer cabecalho = ByteBuffer.allocate(FormatoRastro.TAMANHO_CABECALHO).order(FormatoRastro.ORDEM);
+            while (cabecalho.hasRemaining() && canal.read(cabecalho) >= 0) {
+                // lê até completar o cabeçalho ou o arquivo acabar
+            }
+            if (cabecalho.hasRemaining() || cabecalho.getInt(0) != FormatoRastro.MAGICO) {
+                throw new IOException("Não é um arquivo de rastro: " + arquivo);
+            }
+            cabecalho.flip();
+            cabecalho.getInt();
+            short versao = cabecalho.getShort();
+            short tamanhoRegistro = cabecalho.getShort();
+            if (versao != FormatoRastro.VERSAO || tamanhoRegistro != FormatoRastro.TAMANHO_REGISTRO) {
+                throw new IOException("Versão de rastro não suportada: " + versao);
+            }
+            int linhas = cabecalho.getInt();
+            int colunas = cabecalho.getInt();
+            long inicioEpochMs = cabecalho.getLong();
+            long quantidade = (canal.size() - FormatoRastro.TAMANHO_CABECALHO) / FormatoRastro.TAMANHO_REGISTRO;
+            return new LeitorRastro(canal, linhas, colunas, inicioEpochMs, quantidade);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Avança para o próximo registro.
+     *
+     * @return false se não há mais registros.
+     */
+    public boolean proximo() throws IOException {
+        if (indice + 1 >= quantidade)
+            return false;
+        indice++;
+        if (janela == null || !janela.hasRemaining()) {
+            mapearJanela();
+        }
+        instanteNanos = janela.getLong();
+        veiculo = janela.getInt();
+        de = janela.getInt();
+        para = janela.getInt();
+        esperaMicros = janela.getInt();
+        return true;
+    }
+
+    private void mapearJanela() throws IOException {
+        long inicio = FormatoRastro.TAMANHO_CABECALHO + indice * FormatoRastro.TAMANHO_REGISTRO;
+        long tamanho = Math.min(TAMANHO_JANELA, (quantidade - indice) * FormatoRastro.TAMANHO_REGISTRO);
+        janela = canal.map(FileChannel.MapMode.READ_ONLY, inicio, tamanho);
+        janela.order(FormatoRastro.ORDEM);
+    }
+
+    public int getLinhas() {
+        return linhas;
+    }
+
+    public int getColunas() {
+        return colunas;
+    }
+
+    /**
+     * @return instante (ms desde a época) em que a gravação começou.
+     */
+    public long getInicioEpochMs() {
+        return inicioEpochMs;
+    }
+
+    /**
+     * @return registros completos no arquivo.
+     */
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return posição do registro atual (0 a getQuantidade() - 1).
+     */
+    public long getIndice() {
+        return indice;
+    }
+
+    /**
+     * @return instante do registro atual, em ns desde o início da gravação.
+     */
+    public long getInstanteNanos() {
+        return instanteNanos;
+    }
+
+    public int getVeiculo() {
+        return veiculo;
+    }
+
+    /**
+     * @return célula de origem, ou FormatoRastro.FORA numa entrada.
+     */
+    public int getDe() {
+        return de;
+    }
+
+    /**
+     * @return célula de destino, ou FormatoRastro.FORA / INTERROMPIDO numa saída.
+     */
+    public int getPara() {
+        return para;
+    }
+
+    public long getEsperaNanos() {
+        return esperaMicros * 1000L;
+    }
+
+    @Override
+    public void close() throws IOException {
+        janela = null;
+        canal.close();
+    }
+}
@@ -0,0 +1,76 @@
+package model.sincronizacao;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores das reservas de caminho feitas num gerenciador, para medir tentativas
+ * repetidas e rollbacks de cada modo de reserva.
+ */
+public class ContadoresReserva {
+
+    private final LongAdder tentativas = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder celulasDesfeitas = new LongAdder();
+    private final LongAdder reservasOrdenadas = new LongAdder();
+
+    /**
+     * Registra uma chamada a tentarAdquirirCaminho.
+     *
+     * @param sucesso          se o caminho inteiro foi reservado.
+     * @param celulasDesfeitas quantas células já adquiridas tiveram de ser liberadas na falha.
+     */
+    public void registrarTentativa(boolean sucesso, int celulasDesfeitas) {
+        tentativas.increment();
+        if (!sucesso) {
+            falhas.increment();
+            if (celulasDesfeitas > 0) {
+                rollbacks.increment();
+                this.celulasDesfeitas.add(celulasDesfeitas);
+            }
+        }
+    }
+
+    public void registrarReservaOrdenada() {
+        reservasOrdenadas.increment();
+    }
+
+    public long getTentativas() {
+        return tentativas.sum();
+    }
+
+    /** Tentativas que falharam; cada uma obriga o veículo a tentar de novo. */
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    /** Falhas em que parte do caminho já tinha sido adquirida e precisou ser desfeita. */
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    public long getCelulasDesfeitas() {
+        return celulasDesfeitas.sum();
+    }
+
+    public long getReservasOrdenadas() {
+        return reservasOrdenadas.sum();
+    }
+
+    public void imprimirResumo(PrintStream saida) {
+        imprimirResumo(saida, getTentativas(), getFalhas(), getRollbacks(), getCelulasDesfeitas(),
+                getReservasOrdenadas());
+    }
+
+    /**
+     * Como imprimirResumo(saida), com os valores de um retrato (ver InstantaneoMetricas.imprimirReservas).
+     */
+    public static void imprimirResumo(PrintStream saida, long tentativas, long falhas, long rollbacks,
+            long celulasDesfeitas, long reservasOrdenadas) {
+        saida.println("===== Reservas de cruzamento =====");
+        saida.printf("Tentativas:             %d (%d falhas/retentativas)%n", tentativas, falhas);
+        saida.printf("Rollbacks:              %d (%d células desfeitas)%n", rollbacks, celulasDesfeitas);
+        saida.printf("Reservas ordenadas:     %d%n", reservasOrdenadas);
+    }
+}
@@ -0,0 +1,52 @@
+package model.sincronizacao;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Como uma thread espera entre tentativas de CAS no GerenciadorAtomico.
+ */
+public enum EstrategiaEspera {
+
+    /** Espera ativa (Thread.onSpinWait): menor latência, mas ocupa um núcleo enquanto espera. */
+    GIRAR,
+    /** Cede o processador (Thread.yield) a cada tentativa. */
+    CEDER,
+    /** Estaciona a thread por um tempo que dobra a cada falha, de 1 µs até 1 ms. */
+    ESTACIONAR;
+
+    private static final long ESPERA_MINIMA_NANOS = 1_000;
+    private static final long ESPERA_MAXIMA_NANOS = 1_000_000;
+
+    /**
+     * Aguarda antes da próxima tentativa.
+     *
+     * @param tentativa número de falhas consecutivas até agora (começa em 0).
+     */
+    public void aguardar(int tentativa) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        switch (this) {
+        case GIRAR:
+            Thread.onSpinWait();
+            break;
+        case CEDER:
+            Thread.yield();
+            break;
+        case ESTACIONAR:
+        default:
+            long espera = ESPERA_MINIMA_NANOS << Math.min(tentativa, 10);
+            LockSupport.parkNanos(Math.min(espera, ESPERA_MAXIMA_NANOS));
+            break;
+        }
+    }
+
+    public static EstrategiaEspera porNome(String nome) {
+        for (EstrategiaEspera e : values()) {
+            if (e.name().equalsIgnoreCase(nome.trim())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("Estratégia de espera desconhecida: " + nome);
+    }
+}
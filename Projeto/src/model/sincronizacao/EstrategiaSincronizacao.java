@@ -0,0 +1,54 @@
+package model.sincronizacao;
+
+import model.Malha;
+
+/**
+ * Estratégias de exclusão mútua disponíveis para a simulação.
+ */
+public enum EstrategiaSincronizacao {
+
+    SEMAFORO("Semáforos"),
+    MONITOR("Monitores"),
+    ATOMICO("Atômico");
+
+    private final String descricao;
+
+    EstrategiaSincronizacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public GerenciadorSincronizacao criar(Malha malha) {
+        return criar(malha, EstrategiaEspera.ESTACIONAR);
+    }
+
+    /**
+     * @param espera usada apenas pela estratégia ATOMICO, no adquirir bloqueante.
+     */
+    public GerenciadorSincronizacao criar(Malha malha, EstrategiaEspera espera) {
+        switch (this) {
+        case MONITOR:
+            return new GerenciadorMonitor(malha);
+        case ATOMICO:
+            return new GerenciadorAtomico(malha, espera);
+        case SEMAFORO:
+        default:
+            return new GerenciadorSemaforo(malha);
+        }
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    /**
+     * Converte o nome recebido na linha de comando (ex.: "semaforo", "monitor").
+     */
+    public static EstrategiaSincronizacao porNome(String nome) {
+        for (EstrategiaSincronizacao e : values()) {
+            if (e.name().equalsIgnoreCase(nome.trim())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("Estratégia de sincronização desconhecida: " + nome);
+    }
+}
@@ -0,0 +1,271 @@
+package model.sincronizacao;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import model.Cruzamentos;
+import model.Malha;
+
+/**
+ * Decorador que reserva os cruzamentos por aglomerado (ModoReserva.AGLOMERADO), em vez de célula
+ * a célula.
+ *
+ * Cada aglomerado de até MAXIMO_CELULAS_AGLOMERADO células (ver Cruzamentos) tem um long com um
+ * bit por célula, ligado enquanto a célula está reservada. Um caminho pelo cruzamento vira uma
+ * máscara, e a admissão é um único CAS que liga a máscara inteira se nenhum dos seus bits estiver
+ * ligado: rotas que não compartilham células entram juntas, rotas em conflito não. A célula de
+ * saída do caminho, que não é cruzamento, continua no gerenciador decorado. Sem rollback de
+ * células no cruzamento: ou a máscara entra inteira, ou nada muda.
+ *
+ * Liberar uma célula de cruzamento desliga o seu bit; o veículo continua liberando as células à
+ * medida que avança, para que a próxima rota possa entrar assim que as suas células ficarem livres.
+ * As células de aglomerados maiores, e os caminhos que passam por mais de um aglomerado, são
+ * reservados célula a célula, com os mesmos bits quando a célula cabe numa máscara.
+ *
+ * Inativo, repassa tudo ao gerenciador decorado; o modo deve ser escolhido antes de qualquer
+ * célula ser adquirida.
+ */
+public class GerenciadorAdmissaoCruzamento implements GerenciadorSincronizacao {
+
+    /** Tamanho máximo de um aglomerado reservado por máscara. */
+    public static final int MAXIMO_CELULAS_AGLOMERADO = Long.SIZE;
+    /** Intervalo entre tentativas do adquirir bloqueante numa célula de cruzamento. */
+    private static final long ESPERA_ADQUIRIR_NANOS = 100_000;
+
+    private final GerenciadorSincronizacao gerenciador;
+    private final Malha malha;
+    private final Cruzamentos cruzamentos;
+    private final AtomicLongArray ocupacao;
+    // Por célula: aglomerado * 64 + posição no aglomerado, ou -1 se a célula não é reservada por
+    // máscara. Montado ao ativar, para que cada passo não precise de busca em Cruzamentos.
+    private int[] codigos;
+    private volatile boolean ativo = false;
+
+    public GerenciadorAdmissaoCruzamento(GerenciadorSincronizacao gerenciador, Malha malha) {
+        this.gerenciador = gerenciador;
+        this.malha = malha;
+        this.cruzamentos = malha.getCruzamentos();
+        this.ocupacao = new AtomicLongArray(cruzamentos.getQuantidadeAglomerados());
+    }
+
+    /**
+     * Liga ou desliga a reserva por aglomerado; deve ser chamado antes de os veículos começarem.
+     */
+    public void setAtivo(boolean ativo) {
+        if (ativo && codigos == null) {
+            codigos = montarCodigos();
+        }
+        this.ativo = ativo;
+    }
+
+    private int[] montarCodigos() {
+        int[] codigos = new int[malha.getTotalCelulas()];
+        Arrays.fill(codigos, -1);
+        for (int i = 0; i < cruzamentos.getQuantidadeCelulas(); i++) {
+            int aglomerado = cruzamentos.getAglomeradoPorIndice(i);
+            if (cruzamentos.getTamanho(aglomerado) <= MAXIMO_CELULAS_AGLOMERADO) {
+                codigos[cruzamentos.getCelula(i)] = aglomerado * Long.SIZE + cruzamentos.getPosicao(i);
+            }
+        }
+        return codigos;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    @Override
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        int codigo = codigo(celula);
+        if (codigo < 0)
+            return gerenciador.tentarAdquirir(celula, idVeiculo);
+        return ocupar(codigo / Long.SIZE, 1L << codigo);
+    }
+
+    @Override
+    public void liberar(int celula, int idVeiculo) {
+        int codigo = codigo(celula);
+        if (codigo < 0) {
+            gerenciador.liberar(celula, idVeiculo);
+            return;
+        }
+        desocupar(codigo / Long.SIZE, 1L << codigo);
+    }
+
+    @Override
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        if (!ativo)
+            return gerenciador.tentarAdquirirCaminho(caminho, de, ate, idVeiculo);
+        long mascara = mascaraDoCaminho(caminho, de, ate);
+        if (mascara == 0)
+            return tentarCelulaACelula(caminho, de, ate, idVeiculo);
+
+        ContadoresReserva contadores = gerenciador.getContadoresReserva();
+        int aglomerado = aglomeradoDoCaminho(caminho, de, ate);
+        if (!ocupar(aglomerado, mascara)) {
+            contadores.registrarTentativa(false, 0);
+            return false;
+        }
+        // A via de saída fica no gerenciador decorado; normalmente é uma célula só.
+        for (int k = de; k < ate; k++) {
+            if (malha.getTipo(caminho[k]) < 5 && !gerenciador.tentarAdquirir(caminho[k], idVeiculo)) {
+                int desfeitas = 0;
+                for (int r = de; r < k; r++) {
+                    if (malha.getTipo(caminho[r]) < 5) {
+                        gerenciador.liberar(caminho[r], idVeiculo);
+                        desfeitas++;
+                    }
+                }
+                desocupar(aglomerado, mascara);
+                desfeitas += Long.bitCount(mascara);
+                contadores.registrarTentativa(false, desfeitas);
+                return false;
+            }
+        }
+        contadores.registrarTentativa(true, 0);
+        return true;
+    }
+
+    @Override
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        if (!ativo) {
+            gerenciador.liberarCaminho(caminho, de, ate, idVeiculo);
+            return;
+        }
+        long mascara = mascaraDoCaminho(caminho, de, ate);
+        if (mascara == 0) {
+            for (int k = de; k < ate; k++) {
+                liberar(caminho[k], idVeiculo);
+            }
+            return;
+        }
+        desocupar(aglomeradoDoCaminho(caminho, de, ate), mascara);
+        for (int k = de; k < ate; k++) {
+            if (malha.getTipo(caminho[k]) < 5) {
+                gerenciador.liberar(caminho[k], idVeiculo);
+            }
+        }
+    }
+
+    @Override
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        int codigo = codigo(celula);
+        if (codigo < 0) {
+            gerenciador.adquirir(celula, idVeiculo);
+            return;
+        }
+        // Os veículos só pegam células de cruzamento pelos caminhos; aqui basta tentar de novo.
+        while (!ocupar(codigo / Long.SIZE, 1L << codigo)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(this, ESPERA_ADQUIRIR_NANOS);
+        }
+    }
+
+    @Override
+    public boolean isOcupado(int celula) {
+        int codigo = codigo(celula);
+        if (codigo < 0)
+            return gerenciador.isOcupado(celula);
+        return (ocupacao.get(codigo / Long.SIZE) & 1L << codigo) != 0;
+    }
+
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return gerenciador.getContadoresReserva();
+    }
+
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        if (!ativo) {
+            gerenciador.adquirirCaminho(caminho, de, ate, idVeiculo);
+            return;
+        }
+        ReservaOrdenada.adquirir(this, malha, caminho, de, ate, idVeiculo);
+    }
+
+    @Override
+    public long getVersaoCruzamento(int celula) {
+        return gerenciador.getVersaoCruzamento(celula);
+    }
+
+    @Override
+    public void aguardarCruzamento(int celula, long versao, long timeoutMs) throws InterruptedException {
+        gerenciador.aguardarCruzamento(celula, versao, timeoutMs);
+    }
+
+    /**
+     * @return aglomerado * 64 + posição, se o modo estiver ativo e a célula for reservada por
+     *         máscara; senão -1. O deslocamento 1L &lt;&lt; codigo usa só os 6 bits da posição.
+     */
+    private int codigo(int celula) {
+        return ativo ? codigos[celula] : -1;
+    }
+
+    /**
+     * @return a máscara das células de cruzamento do caminho, ou 0 se não houver nenhuma ou se
+     *         elas não couberem numa máscara só (aglomerado grande ou mais de um aglomerado).
+     */
+    private long mascaraDoCaminho(int[] caminho, int de, int ate) {
+        long mascara = 0;
+        int aglomerado = Cruzamentos.SEM_AGLOMERADO;
+        for (int k = de; k < ate; k++) {
+            if (malha.getTipo(caminho[k]) < 5)
+                continue;
+            int codigo = codigos[caminho[k]];
+            if (codigo < 0 || (aglomerado != Cruzamentos.SEM_AGLOMERADO && codigo / Long.SIZE != aglomerado))
+                return 0;
+            aglomerado = codigo / Long.SIZE;
+            mascara |= 1L << codigo;
+        }
+        return mascara;
+    }
+
+    /**
+     * @return o aglomerado da primeira célula de cruzamento do caminho (o de todas, se
+     *         mascaraDoCaminho deu uma máscara).
+     */
+    private int aglomeradoDoCaminho(int[] caminho, int de, int ate) {
+        for (int k = de; k < ate; k++) {
+            if (malha.getTipo(caminho[k]) >= 5)
+                return codigos[caminho[k]] / Long.SIZE;
+        }
+        return Cruzamentos.SEM_AGLOMERADO;
+    }
+
+    private boolean tentarCelulaACelula(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            if (!tentarAdquirir(caminho[k], idVeiculo)) {
+                for (int r = de; r < k; r++) {
+                    liberar(caminho[r], idVeiculo);
+                }
+                gerenciador.getContadoresReserva().registrarTentativa(false, k - de);
+                return false;
+            }
+        }
+        gerenciador.getContadoresReserva().registrarTentativa(true, 0);
+        return true;
+    }
+
+    /**
+     * Liga todos os bits da máscara de uma vez, se nenhum deles estiver ligado.
+     */
+    private boolean ocupar(int aglomerado, long mascara) {
+        while (true) {
+            long estado = ocupacao.get(aglomerado);
+            if ((estado & mascara) != 0)
+                return false;
+            if (ocupacao.compareAndSet(aglomerado, estado, estado | mascara))
+                return true;
+        }
+    }
+
+    private void desocupar(int aglomerado, long mascara) {
+        while (true) {
+            long estado = ocupacao.get(aglomerado);
+            if (ocupacao.compareAndSet(aglomerado, estado, estado & ~mascara))
+                return;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package model.sincronizacao;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import model.Malha;
+
+/**
+ * Gerenciador sem locks: a ocupação de cada célula fica num AtomicIntegerArray plano,
+ * indexado pela célula (ver Malha), onde 0 significa livre e qualquer outro valor é
+ * o id do veículo dono + 1. Aquisição e liberação são um único compareAndSet.
+ *
+ * O adquirir bloqueante repete o CAS usando a EstrategiaEspera escolhida; não há fila,
+ * então, ao contrário do semáforo e do lock justos, não há garantia de ordem de chegada
+ * (a reserva ordenada continua livre de deadlock, mas não de preterição).
+ */
+public class GerenciadorAtomico implements GerenciadorSincronizacao {
+
+    private static final int LIVRE = 0;
+
+    private final Malha malha;
+    private final AtomicIntegerArray donos;
+    private final EstrategiaEspera espera;
+    private final ContadoresReserva contadores = new ContadoresReserva();
+
+    public GerenciadorAtomico(Malha malha) {
+        this(malha, EstrategiaEspera.ESTACIONAR);
+    }
+
+    public GerenciadorAtomico(Malha malha, EstrategiaEspera espera) {
+        this.malha = malha;
+        this.donos = new AtomicIntegerArray(malha.getTotalCelulas());
+        this.espera = espera;
+    }
+
+    @Override
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        // Células vazias não têm controle de ocupação, como nos outros gerenciadores.
+        if (!isVia(celula))
+            return true;
+        return donos.compareAndSet(celula, LIVRE, idVeiculo + 1);
+    }
+
+    @Override
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        if (!isVia(celula))
+            return;
+        int tentativa = 0;
+        while (!donos.compareAndSet(celula, LIVRE, idVeiculo + 1)) {
+            espera.aguardar(tentativa++);
+        }
+    }
+
+    @Override
+    public void liberar(int celula, int idVeiculo) {
+        if (!isVia(celula))
+            return;
+        // Só o dono libera; uma liberação indevida não apaga a posse de outro veículo.
+        donos.compareAndSet(celula, idVeiculo + 1, LIVRE);
+    }
+
+    @Override
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            if (!tentarAdquirir(caminho[k], idVeiculo)) {
+                // Rollback das células já adquiridas nesta tentativa.
+                for (int r = de; r < k; r++) {
+                    liberar(caminho[r], idVeiculo);
+                }
+                contadores.registrarTentativa(false, k - de);
+                return false;
+            }
+        }
+        contadores.registrarTentativa(true, 0);
+        return true;
+    }
+
+    @Override
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            liberar(caminho[k], idVeiculo);
+        }
+    }
+
+    @Override
+    public boolean isOcupado(int celula) {
+        return isVia(celula) && donos.get(celula) != LIVRE;
+    }
+
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        ReservaOrdenada.adquirir(this, malha, caminho, de, ate, idVeiculo);
+    }
+
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return contadores;
+    }
+
+    private boolean isVia(int celula) {
+        return malha.getTipo(celula) > 0;
+    }
+}
@@ -0,0 +1,181 @@
+package model.sincronizacao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.Cruzamentos;
+import model.Malha;
+
+/**
+ * Decorador que deixa os veículos esperarem por um cruzamento em vez de dormir um tempo fixo
+ * depois de uma reserva que falhou (ver ModoEsperaCruzamento).
+ *
+ * Cada aglomerado de cruzamento (ver Cruzamentos) tem uma versão, incrementada a cada liberar ou
+ * liberarCaminho de uma célula dele, e uma fila de espera (trava e condição, criadas sob demanda).
+ * Quem falhou lê a versão antes da tentativa e espera só enquanto ela não mudar; quem libera só
+ * pega a trava se houver alguém esperando naquele aglomerado. É ReentrantLock, e não synchronized,
+ * para não prender a thread portadora das threads virtuais.
+ *
+ * As células que o gerenciador decorado libera por conta própria (o rollback de uma reserva que
+ * falhou) não geram aviso; por isso a espera sempre tem um limite.
+ *
+ * Só é ligado (setAtivo) no ModoEsperaCruzamento.NOTIFICADA. Desligado, ninguém espera aviso, e
+ * cada liberação apenas repassa a chamada, sem procurar o aglomerado nem mexer na versão; as
+ * versões e filas só são criadas na primeira vez que ele é ligado.
+ */
+public class GerenciadorEsperaCruzamento implements GerenciadorSincronizacao {
+
+    private final GerenciadorSincronizacao gerenciador;
+    private final Malha malha;
+    private final Cruzamentos cruzamentos;
+    // Criados ao ligar (setAtivo).
+    private AtomicLongArray versoes;
+    private AtomicIntegerArray esperando;
+    private AtomicReferenceArray<Espera> esperas;
+    private volatile boolean ativo = false;
+
+    public GerenciadorEsperaCruzamento(GerenciadorSincronizacao gerenciador, Malha malha) {
+        this.gerenciador = gerenciador;
+        this.malha = malha;
+        this.cruzamentos = malha.getCruzamentos();
+    }
+
+    /**
+     * Liga ou desliga os avisos; ligado no ModoEsperaCruzamento.NOTIFICADA. Pode mudar com os
+     * veículos andando: quem já espera sem aviso sai pelo limite da espera.
+     */
+    public void setAtivo(boolean ativo) {
+        if (ativo && versoes == null) {
+            int n = cruzamentos.getQuantidadeAglomerados();
+            versoes = new AtomicLongArray(n);
+            esperando = new AtomicIntegerArray(n);
+            esperas = new AtomicReferenceArray<>(n);
+        }
+        this.ativo = ativo;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    @Override
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        return gerenciador.tentarAdquirir(celula, idVeiculo);
+    }
+
+    @Override
+    public void liberar(int celula, int idVeiculo) {
+        gerenciador.liberar(celula, idVeiculo);
+        if (ativo && malha.getTipo(celula) >= 5) {
+            avisar(cruzamentos.getAglomerado(celula));
+        }
+    }
+
+    @Override
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        return gerenciador.tentarAdquirirCaminho(caminho, de, ate, idVeiculo);
+    }
+
+    @Override
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        gerenciador.liberarCaminho(caminho, de, ate, idVeiculo);
+        if (!ativo)
+            return;
+        int anterior = Cruzamentos.SEM_AGLOMERADO;
+        for (int k = de; k < ate; k++) {
+            int aglomerado = cruzamentos.getAglomerado(caminho[k]);
+            // Um caminho costuma ficar num só aglomerado: um aviso por trecho basta.
+            if (aglomerado != anterior && aglomerado != Cruzamentos.SEM_AGLOMERADO) {
+                avisar(aglomerado);
+                anterior = aglomerado;
+            }
+        }
+    }
+
+    @Override
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        gerenciador.adquirir(celula, idVeiculo);
+    }
+
+    @Override
+    public boolean isOcupado(int celula) {
+        return gerenciador.isOcupado(celula);
+    }
+
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return gerenciador.getContadoresReserva();
+    }
+
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        gerenciador.adquirirCaminho(caminho, de, ate, idVeiculo);
+    }
+
+    @Override
+    public long getVersaoCruzamento(int celula) {
+        if (!ativo)
+            return 0;
+        int aglomerado = cruzamentos.getAglomerado(celula);
+        return aglomerado == Cruzamentos.SEM_AGLOMERADO ? 0 : versoes.get(aglomerado);
+    }
+
+    @Override
+    public void aguardarCruzamento(int celula, long versao, long timeoutMs) throws InterruptedException {
+        int aglomerado = ativo ? cruzamentos.getAglomerado(celula) : Cruzamentos.SEM_AGLOMERADO;
+        if (aglomerado == Cruzamentos.SEM_AGLOMERADO) {
+            Thread.sleep(timeoutMs);
+            return;
+        }
+        Espera espera = espera(aglomerado);
+        // Conta-se como esperando antes de reler a versão: quem liberar depois disso vê o contador
+        // e avisa; quem liberou antes já mudou a versão, e a espera nem começa.
+        esperando.incrementAndGet(aglomerado);
+        try {
+            espera.trava.lockInterruptibly();
+            try {
+                long restante = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                while (versoes.get(aglomerado) == versao && restante > 0) {
+                    restante = espera.condicao.awaitNanos(restante);
+                }
+            } finally {
+                espera.trava.unlock();
+            }
+        } finally {
+            esperando.decrementAndGet(aglomerado);
+        }
+    }
+
+    private void avisar(int aglomerado) {
+        versoes.incrementAndGet(aglomerado);
+        if (esperando.get(aglomerado) == 0)
+            return;
+        Espera espera = espera(aglomerado);
+        espera.trava.lock();
+        try {
+            espera.condicao.signalAll();
+        } finally {
+            espera.trava.unlock();
+        }
+    }
+
+    private Espera espera(int aglomerado) {
+        Espera espera = esperas.get(aglomerado);
+        if (espera == null) {
+            Espera nova = new Espera();
+            espera = esperas.compareAndExchange(aglomerado, null, nova);
+            if (espera == null)
+                espera = nova;
+        }
+        return espera;
+    }
+
+    private static final class Espera {
+        final ReentrantLock trava = new ReentrantLock();
+        final Condition condicao = trava.newCondition();
+    }
+}
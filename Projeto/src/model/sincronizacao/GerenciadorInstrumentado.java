@@ -0,0 +1,341 @@
+package model.sincronizacao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+import model.Cruzamentos;
+import model.Malha;
+import model.metricas.MetricasSincronizacao;
+
+/**
+ * Decorador que mede qualquer GerenciadorSincronizacao sem alterar o seu comportamento:
+ * quantas vezes cada célula foi adquirida, o tempo bloqueado em adquirir/adquirirCaminho e
+ * quais células estavam ocupadas quando um veículo as pediu. A ocupação é consultada com
+ * isOcupado antes da chamada; a leitura pode estar um pouco atrasada em relação ao estado real,
+ * o que basta para uma métrica.
+ *
+ * Nos cruzamentos, guarda o instante da primeira tentativa de reserva que falhou de cada veículo
+ * (a espera da travessia vai dela até a reserva) e o instante em que cada célula de cruzamento foi
+ * reservada (a ocupação vai dele até a célula ser liberada).
+ *
+ * Para o VigiaBloqueios, guarda ainda o dono de cada célula e a célula pela qual cada veículo
+ * está bloqueado em adquirir/adquirirCaminho: as arestas do grafo de espera. A aresta é gravada
+ * antes de bloquear, esteja a célula ocupada ou não na chamada, já que quem perde a corrida por
+ * uma célula livre também fica esperando. Uma reserva de cruzamento que falhou em
+ * tentarAdquirirCaminho também conta como espera, pela primeira célula ocupada do caminho, até
+ * a tentativa seguinte dar certo ou o veículo liberar a célula: quem repete tentativas sem sair do
+ * lugar fecha um ciclo tanto quanto quem bloqueia.
+ *
+ * Todo esse estado fica em arrays atômicos planos, sem nada alocado por passo. O que é de um
+ * veículo (a primeira falha e a espera) fica na posição da célula que ele ocupa: enquanto espera,
+ * um veículo segura só a célula em que está, vizinha da que pede (ver celulaDoVeiculo). Os arrays
+ * só são criados quando a instrumentação é ligada (setAtivo); desligado, o decorador apenas repassa
+ * as chamadas e avisa o observador de liberação.
+ */
+public class GerenciadorInstrumentado implements GerenciadorSincronizacao {
+
+    private final GerenciadorSincronizacao gerenciador;
+    private final MetricasSincronizacao metricas;
+    private final Malha malha;
+    private final Cruzamentos cruzamentos;
+    private final LongSupplier relogio;
+    // Criados ao ligar a instrumentação (setAtivo), antes de os veículos começarem.
+    // Instante em que cada célula de cruzamento (por Cruzamentos.getIndice) foi reservada; 0 se livre.
+    private AtomicLongArray inicioOcupacao;
+    // Por célula ocupada: instante da primeira reserva de cruzamento que falhou do veículo nela; 0 se nenhuma.
+    private AtomicLongArray primeiraFalha;
+    // Id do veículo + 1 que tem cada célula (0 = livre), como no GerenciadorAtomico.
+    private AtomicIntegerArray donos;
+    // Por célula ocupada: célula + 1 pela qual o veículo nela está bloqueado (0 = nenhuma).
+    private AtomicIntegerArray esperas;
+    private volatile boolean ativo = false;
+    private volatile IntConsumer observadorLiberacao;
+
+    public GerenciadorInstrumentado(GerenciadorSincronizacao gerenciador, Malha malha) {
+        this(gerenciador, malha, System::nanoTime);
+    }
+
+    /**
+     * @param relogio de onde vêm os instantes das esperas e ocupações medidas (ex.:
+     *                EscalaTempo::agoraNanos, para medir em tempo simulado).
+     */
+    public GerenciadorInstrumentado(GerenciadorSincronizacao gerenciador, Malha malha, LongSupplier relogio) {
+        this.relogio = relogio;
+        this.gerenciador = gerenciador;
+        this.malha = malha;
+        this.cruzamentos = malha.getCruzamentos();
+        this.metricas = new MetricasSincronizacao(malha.getTotalCelulas(), cruzamentos.getQuantidadeCelulas(), relogio);
+    }
+
+    /**
+     * Liga ou desliga a instrumentação; deve ser chamado antes de os veículos começarem. Os arrays
+     * por célula (aqui e em MetricasSincronizacao) são criados na primeira vez que ela é ligada.
+     */
+    public void setAtivo(boolean ativo) {
+        if (ativo && donos == null) {
+            int total = malha.getTotalCelulas();
+            inicioOcupacao = new AtomicLongArray(cruzamentos.getQuantidadeCelulas());
+            primeiraFalha = new AtomicLongArray(total);
+            donos = new AtomicIntegerArray(total);
+            esperas = new AtomicIntegerArray(total);
+            metricas.alocarPorCelula();
+        }
+        this.ativo = ativo;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public MetricasSincronizacao getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Define quem é avisado, com a célula, a cada liberar (ex.: o GeradorChegadas, para saber
+     * quando uma entrada fica livre). É chamado na thread do veículo, depois de a célula ser liberada.
+     */
+    public void setObservadorLiberacao(IntConsumer observador) {
+        this.observadorLiberacao = observador;
+    }
+
+    /**
+     * @return o id do veículo que tem a célula, ou -1 se ela estiver livre.
+     */
+    public int getDono(int celula) {
+        return ativo ? donos.get(celula) - 1 : -1;
+    }
+
+    /**
+     * Cópia das esperas em andamento: para cada veículo bloqueado, a célula que ele espera. Percorre
+     * todas as células, então é para o vigia, não para cada passo.
+     */
+    public Map<Integer, Integer> capturarEsperas() {
+        Map<Integer, Integer> copia = new HashMap<>();
+        if (!ativo)
+            return copia;
+        for (int c = 0; c < esperas.length(); c++) {
+            int espera = esperas.get(c);
+            int dono = donos.get(c) - 1;
+            if (espera > 0 && dono >= 0) {
+                copia.put(dono, espera - 1);
+            }
+        }
+        return copia;
+    }
+
+    @Override
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        if (!ativo)
+            return gerenciador.tentarAdquirir(celula, idVeiculo);
+        if (gerenciador.tentarAdquirir(celula, idVeiculo)) {
+            metricas.registrarAquisicao(celula);
+            iniciarOcupacao(celula, relogio.getAsLong());
+            donos.set(celula, idVeiculo + 1);
+            return true;
+        }
+        metricas.registrarDisputa(celula, 0);
+        return false;
+    }
+
+    @Override
+    public void liberar(int celula, int idVeiculo) {
+        if (ativo) {
+            donos.compareAndSet(celula, idVeiculo + 1, 0);
+            // Um veículo interrompido enquanto tentava o cruzamento não chega a limpar a sua falha.
+            if (primeiraFalha.get(celula) != 0) {
+                primeiraFalha.set(celula, 0);
+            }
+            if (esperas.get(celula) != 0) {
+                esperas.set(celula, 0);
+            }
+            gerenciador.liberar(celula, idVeiculo);
+            encerrarOcupacao(celula, relogio.getAsLong());
+        } else {
+            gerenciador.liberar(celula, idVeiculo);
+        }
+        IntConsumer observador = observadorLiberacao;
+        if (observador != null) {
+            observador.accept(celula);
+        }
+    }
+
+    @Override
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        if (!ativo)
+            return gerenciador.tentarAdquirirCaminho(caminho, de, ate, idVeiculo);
+        int atual = celulaDoVeiculo(caminho[de], idVeiculo);
+        if (gerenciador.tentarAdquirirCaminho(caminho, de, ate, idVeiculo)) {
+            long agora = relogio.getAsLong();
+            registrarAquisicoes(caminho, de, ate, agora, idVeiculo);
+            long falha = 0;
+            if (atual >= 0) {
+                falha = primeiraFalha.getAndSet(atual, 0);
+                esperas.set(atual, 0);
+            }
+            metricas.registrarEsperaCruzamento(falha == 0 ? 0 : agora - falha);
+            return true;
+        }
+        if (atual >= 0) {
+            primeiraFalha.compareAndSet(atual, 0, relogio.getAsLong());
+        }
+        // Só na falha: atribui a disputa às células do caminho que estão ocupadas.
+        int primeiraOcupada = -1;
+        for (int k = de; k < ate; k++) {
+            if (gerenciador.isOcupado(caminho[k])) {
+                metricas.registrarDisputa(caminho[k], 0);
+                if (primeiraOcupada < 0) {
+                    primeiraOcupada = caminho[k];
+                }
+            }
+        }
+        // Até a próxima tentativa, o veículo espera pela célula que o barrou (ou pela primeira do
+        // caminho, se ela já foi liberada entre a falha e a leitura).
+        if (atual >= 0) {
+            esperas.set(atual, (primeiraOcupada >= 0 ? primeiraOcupada : caminho[de]) + 1);
+        }
+        return false;
+    }
+
+    @Override
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        if (!ativo) {
+            gerenciador.liberarCaminho(caminho, de, ate, idVeiculo);
+            return;
+        }
+        for (int k = de; k < ate; k++) {
+            donos.compareAndSet(caminho[k], idVeiculo + 1, 0);
+        }
+        gerenciador.liberarCaminho(caminho, de, ate, idVeiculo);
+        long agora = relogio.getAsLong();
+        for (int k = de; k < ate; k++) {
+            encerrarOcupacao(caminho[k], agora);
+        }
+    }
+
+    @Override
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        if (!ativo) {
+            gerenciador.adquirir(celula, idVeiculo);
+            return;
+        }
+        boolean ocupada = gerenciador.isOcupado(celula);
+        long inicio = relogio.getAsLong();
+        // Sem célula (entrando na malha), o veículo não segura nada e não pode fechar um ciclo.
+        int atual = celulaDoVeiculo(celula, idVeiculo);
+        if (atual >= 0) {
+            esperas.set(atual, celula + 1);
+        }
+        try {
+            gerenciador.adquirir(celula, idVeiculo);
+        } finally {
+            if (atual >= 0) {
+                esperas.set(atual, 0);
+            }
+        }
+        long espera = relogio.getAsLong() - inicio;
+        donos.set(celula, idVeiculo + 1);
+        metricas.registrarEspera(espera);
+        metricas.registrarAquisicao(celula);
+        iniciarOcupacao(celula, inicio + espera);
+        if (ocupada) {
+            metricas.registrarDisputa(celula, espera);
+        }
+    }
+
+    @Override
+    public boolean isOcupado(int celula) {
+        return gerenciador.isOcupado(celula);
+    }
+
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return gerenciador.getContadoresReserva();
+    }
+
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        if (!ativo) {
+            gerenciador.adquirirCaminho(caminho, de, ate, idVeiculo);
+            return;
+        }
+        int primeiraOcupada = -1;
+        for (int k = de; k < ate && primeiraOcupada < 0; k++) {
+            if (gerenciador.isOcupado(caminho[k])) {
+                primeiraOcupada = caminho[k];
+            }
+        }
+        long inicio = relogio.getAsLong();
+        // Sem célula ocupada na chamada, a espera (se houver) é pela primeira que outro pegar antes.
+        int atual = celulaDoVeiculo(caminho[de], idVeiculo);
+        if (atual >= 0) {
+            esperas.set(atual, (primeiraOcupada >= 0 ? primeiraOcupada : caminho[de]) + 1);
+        }
+        try {
+            gerenciador.adquirirCaminho(caminho, de, ate, idVeiculo);
+        } finally {
+            if (atual >= 0) {
+                esperas.set(atual, 0);
+            }
+        }
+        long espera = relogio.getAsLong() - inicio;
+        metricas.registrarEspera(espera);
+        metricas.registrarEsperaCruzamento(espera);
+        registrarAquisicoes(caminho, de, ate, inicio + espera, idVeiculo);
+        if (primeiraOcupada >= 0) {
+            metricas.registrarDisputa(primeiraOcupada, espera);
+        }
+    }
+
+    @Override
+    public long getVersaoCruzamento(int celula) {
+        return gerenciador.getVersaoCruzamento(celula);
+    }
+
+    @Override
+    public void aguardarCruzamento(int celula, long versao, long timeoutMs) throws InterruptedException {
+        gerenciador.aguardarCruzamento(celula, versao, timeoutMs);
+    }
+
+    /**
+     * Célula que o veículo ocupa ao pedir {@code alvo}: a vizinha de {@code alvo} da qual ele é dono.
+     * Ao pedir uma célula ou um caminho, o veículo segura só a célula em que está, que leva a ela.
+     *
+     * @return a célula, ou -1 se o veículo ainda não entrou na malha.
+     */
+    private int celulaDoVeiculo(int alvo, int idVeiculo) {
+        for (int direcao = 1; direcao <= 4; direcao++) {
+            int vizinha = malha.getVizinha(alvo, direcao);
+            if (vizinha != Malha.SEM_CELULA && donos.get(vizinha) == idVeiculo + 1)
+                return vizinha;
+        }
+        return -1;
+    }
+
+    private void registrarAquisicoes(int[] caminho, int de, int ate, long agora, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            donos.set(caminho[k], idVeiculo + 1);
+            metricas.registrarAquisicao(caminho[k]);
+            iniciarOcupacao(caminho[k], agora);
+        }
+    }
+
+    private void iniciarOcupacao(int celula, long agora) {
+        if (malha.getTipo(celula) >= 5) {
+            inicioOcupacao.set(cruzamentos.getIndice(celula), agora);
+        }
+    }
+
+    private void encerrarOcupacao(int celula, long agora) {
+        if (malha.getTipo(celula) < 5)
+            return;
+        long inicio = inicioOcupacao.getAndSet(cruzamentos.getIndice(celula), 0);
+        if (inicio != 0) {
+            metricas.registrarOcupacaoCruzamento(agora - inicio);
+        }
+    }
+}
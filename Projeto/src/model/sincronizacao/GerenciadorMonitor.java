@@ -1,28 +1,51 @@
 package model.sincronizacao;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 import model.Malha;
 
 public class GerenciadorMonitor implements GerenciadorSincronizacao {
 
-    // associação do Point com seu Monitor.
-    private final Map<Point, Lock> monitores;
+    // Monitor de cada célula, indexado pela célula. Criado na primeira vez que a célula é pedida
+    // (ver monitor); células vazias nunca têm monitor.
+    private final AtomicReferenceArray<ReentrantLock> monitores;
+    private final ContadoresReserva contadores = new ContadoresReserva();
+    private final Malha malha;
 
     public GerenciadorMonitor(Malha malha) {
-        // Recebe o mapa de monitores que o LeitorMalha já criou.
-        this.monitores = malha.getMonitoresDaMalha();
+        this.malha = malha;
+        this.monitores = new AtomicReferenceArray<>(malha.getTotalCelulas());
+    }
+
+    /**
+     * Monitor da célula, criando-o se ainda não existe; null para células vazias.
+     */
+    private ReentrantLock monitor(int celula) {
+        ReentrantLock m = monitores.get(celula);
+        if (m != null || malha.getTipo(celula) == 0)
+            return m;
+        // Lock justo (fair); se outra thread criou antes, usa o dela.
+        ReentrantLock novo = new ReentrantLock(true);
+        return monitores.compareAndSet(celula, null, novo) ? novo : monitores.get(celula);
+    }
+
+    /**
+     * Quantas células já têm monitor criado.
+     */
+    public int getPrimitivasCriadas() {
+        int n = 0;
+        for (int c = 0; c < monitores.length(); c++) {
+            if (monitores.get(c) != null)
+                n++;
+        }
+        return n;
     }
 
     @Override
-    public void adquirir(Point p) throws InterruptedException {
-        // Obtém o objeto de lock específico para este Ponto.
-        Lock m = monitores.get(p);
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        // Obtém o objeto de lock específico para esta célula.
+        ReentrantLock m = monitor(celula);
         if (m != null) {
             // espera pelo lock, bloqueando a thread até que ele esteja disponível.
             m.lockInterruptibly();
@@ -30,10 +53,10 @@ public class GerenciadorMonitor implements GerenciadorSincronizacao {
     }
 
     @Override
-    public boolean tentarAdquirir(Point p) {
-        Lock m = monitores.get(p);
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        ReentrantLock m = monitor(celula);
 
-        // Se não há monitor para este ponto (célula vazia), considera "adquirido".
+        // Se não há monitor para esta célula (célula vazia), considera "adquirido".
         if (m == null)
             return true;
 
@@ -50,66 +73,68 @@ public class GerenciadorMonitor implements GerenciadorSincronizacao {
     }
 
     @Override
-    public void liberar(Point p) {
-        Lock m = monitores.get(p);
+    public void liberar(int celula, int idVeiculo) {
+        ReentrantLock m = monitores.get(celula);
         if (m != null) {
             m.unlock();
         }
     }
 
     @Override
-    public boolean tentarAdquirirCaminho(List<Point> caminho) {
-        // Lista temporária para rastrear quais locks conseguimos pegar nesta tentativa.
-        List<Lock> locksAdquiridos = new ArrayList<>();
-
-        for (Point p : caminho) {
-            Lock m = monitores.get(p);
-            if (m != null) {
-                if (tentarAdquirir(p)) {
-                    locksAdquiridos.add(m);
-                } else {
-                    // Falha - Não conseguiu o lock para 'p' (outra thread o tem).
-                    // Rollback - Libera todos os locks adquirido nesta tentativa.
-                    for (Lock adquirido : locksAdquiridos) {
-                        adquirido.unlock();
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            if (!tentarAdquirir(caminho[k], idVeiculo)) {
+                // Falha - Não conseguiu o lock para a célula k (outra thread o tem).
+                // Rollback - Libera todos os locks adquiridos nesta tentativa.
+                int desfeitas = 0;
+                for (int r = de; r < k; r++) {
+                    ReentrantLock m = monitores.get(caminho[r]);
+                    if (m != null) {
+                        m.unlock();
+                        desfeitas++;
                     }
-                    // Retorna 'false', indicando ao Veículo que ele NÃO deve
-                    // entrar no cruzamento.
-                    return false;
                 }
+                contadores.registrarTentativa(false, desfeitas);
+                // Retorna 'false', indicando ao Veículo que ele NÃO deve
+                // entrar no cruzamento.
+                return false;
             }
         }
 
         // adquirimos TODOS os locks do caminho.
+        contadores.registrarTentativa(true, 0);
         return true;
     }
 
     /**
-     * Recebe a lista de Points a serem liberados.
-     * Libera cada um deles.
+     * Libera cada célula do trecho [de, ate) do caminho.
      */
     @Override
-    public void liberarCaminho(List<Point> caminho) {
-        for (Point p : caminho) {
-            liberar(p); // Reutiliza o método de liberação simples.
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            liberar(caminho[k], idVeiculo); // Reutiliza o método de liberação simples.
         }
     }
 
     /*
-     * @param p O Ponto (x,y) a ser verificado.
-     * 
+     * @param celula A célula a ser verificada.
+     *
      * @return true se o lock estiver em uso, false caso contrário.
      */
     @Override
-    public boolean isOcupado(Point p) {
-        Lock lock = monitores.get(p);
+    public boolean isOcupado(int celula) {
+        // Não cria o monitor: célula sem monitor (vazia ou nunca pedida) não está ocupada.
+        ReentrantLock lock = monitores.get(celula);
+        return lock != null && lock.isLocked();
+    }
 
-        if (lock instanceof ReentrantLock) {
-            return ((ReentrantLock) lock).isLocked();
-        }
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        ReservaOrdenada.adquirir(this, malha, caminho, de, ate, idVeiculo);
+    }
 
-        // Se não for um ReentrantLock ou for nulo (célula vazia),
-        // assume que não está ocupado.
-        return false;
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return contadores;
     }
-}
\ No newline at end of file
+}
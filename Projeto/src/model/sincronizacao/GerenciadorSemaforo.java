@@ -1,72 +1,113 @@
 package model.sincronizacao;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import model.Malha;
 
 public class GerenciadorSemaforo implements GerenciadorSincronizacao {
 
-    private final Map<Point, Semaphore> semaforos;
+    // Semáforo de cada célula, indexado pela célula. É criado na primeira vez que a célula é
+    // pedida (ver semaforo), então só as células por onde algum veículo passou têm um semáforo;
+    // as células vazias nunca têm.
+    private final AtomicReferenceArray<Semaphore> semaforos;
+    private final ContadoresReserva contadores = new ContadoresReserva();
+    private final Malha malha;
 
     public GerenciadorSemaforo(Malha malha) {
-        this.semaforos = malha.getSemaforosDaMalha();
+        this.malha = malha;
+        this.semaforos = new AtomicReferenceArray<>(malha.getTotalCelulas());
+    }
+
+    /**
+     * Semáforo da célula, criando-o se ainda não existe; null para células vazias.
+     */
+    private Semaphore semaforo(int celula) {
+        Semaphore s = semaforos.get(celula);
+        if (s != null || malha.getTipo(celula) == 0)
+            return s;
+        // Cria um semáforo binário e justo (fair); se outra thread criou antes, usa o dela.
+        Semaphore novo = new Semaphore(1, true);
+        return semaforos.compareAndSet(celula, null, novo) ? novo : semaforos.get(celula);
+    }
+
+    /**
+     * Quantas células já têm semáforo criado.
+     */
+    public int getPrimitivasCriadas() {
+        int n = 0;
+        for (int c = 0; c < semaforos.length(); c++) {
+            if (semaforos.get(c) != null)
+                n++;
+        }
+        return n;
     }
 
     @Override
-    public boolean tentarAdquirir(Point p) {
-        Semaphore s = semaforos.get(p);
+    public boolean tentarAdquirir(int celula, int idVeiculo) {
+        Semaphore s = semaforo(celula);
         return s == null || s.tryAcquire();
     }
 
     @Override
-    public void liberar(Point p) {
-        Semaphore s = semaforos.get(p);
+    public void liberar(int celula, int idVeiculo) {
+        // Uma célula adquirida sempre tem semáforo; sem ele não há o que liberar.
+        Semaphore s = semaforos.get(celula);
         if (s != null) {
             s.release();
         }
     }
 
     @Override
-    public boolean tentarAdquirirCaminho(List<Point> caminho) {
-        List<Semaphore> locksAdquiridos = new ArrayList<>();
-        for (Point p : caminho) {
-            Semaphore s = semaforos.get(p);
-            if (s != null) {
-                if (s.tryAcquire()) {
-                    locksAdquiridos.add(s);
-                } else {
-                    for (Semaphore adquirido : locksAdquiridos) {
-                        adquirido.release();
+    public boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            if (!tentarAdquirir(caminho[k], idVeiculo)) {
+                // Rollback das células já adquiridas nesta tentativa.
+                int desfeitas = 0;
+                for (int r = de; r < k; r++) {
+                    Semaphore s = semaforos.get(caminho[r]);
+                    if (s != null) {
+                        s.release();
+                        desfeitas++;
                     }
-                    return false;
                 }
+                contadores.registrarTentativa(false, desfeitas);
+                return false;
             }
         }
+        contadores.registrarTentativa(true, 0);
         return true;
     }
 
     @Override
-    public void liberarCaminho(List<Point> caminho) {
-        for (Point p : caminho) {
-            liberar(p);
+    public void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo) {
+        for (int k = de; k < ate; k++) {
+            liberar(caminho[k], idVeiculo);
         }
     }
 
     @Override
-    public void adquirir(Point p) throws InterruptedException {
-        Semaphore s = semaforos.get(p);
+    public void adquirir(int celula, int idVeiculo) throws InterruptedException {
+        Semaphore s = semaforo(celula);
         if (s != null) {
             s.acquire();
         }
     }
 
     @Override
-    public boolean isOcupado(Point p) {
-        Semaphore s = semaforos.get(p);
+    public boolean isOcupado(int celula) {
+        // Não cria o semáforo: célula sem semáforo nunca foi adquirida.
+        Semaphore s = semaforos.get(celula);
         // Retorna true se o semáforo existir e não tiver permissões disponíveis
         return s != null && s.availablePermits() == 0;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException {
+        ReservaOrdenada.adquirir(this, malha, caminho, de, ate, idVeiculo);
+    }
+
+    @Override
+    public ContadoresReserva getContadoresReserva() {
+        return contadores;
+    }
+}
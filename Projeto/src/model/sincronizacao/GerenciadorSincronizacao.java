@@ -1,19 +1,49 @@
 package model.sincronizacao;
 
-import java.awt.Point;
-import java.util.List;
-
+/**
+ * Controla a ocupação das células da malha.
+ * As células são identificadas pelo índice {@code linha * colunas + coluna} (ver Malha), e os
+ * caminhos são trechos {@code [de, ate)} de um array de células, para que nenhum passo aloque objetos.
+ * O id do veículo identifica o dono de cada célula; as estratégias baseadas em semáforo ou
+ * lock podem ignorá-lo, mas a atômica o grava como dono da célula.
+ */
 public interface GerenciadorSincronizacao {
 
-    boolean tentarAdquirir(Point p);
+    boolean tentarAdquirir(int celula, int idVeiculo);
+
+    void liberar(int celula, int idVeiculo);
+
+    boolean tentarAdquirirCaminho(int[] caminho, int de, int ate, int idVeiculo);
+
+    void liberarCaminho(int[] caminho, int de, int ate, int idVeiculo);
+
+    void adquirir(int celula, int idVeiculo) throws InterruptedException;
 
-    void liberar(Point p);
+    boolean isOcupado(int celula);
 
-    boolean tentarAdquirirCaminho(List<Point> caminho);
+    ContadoresReserva getContadoresReserva();
 
-    void liberarCaminho(List<Point> caminho);
+    /**
+     * Reserva todas as células do caminho, bloqueando até conseguir (ModoReserva.ORDENADA).
+     * As células são adquiridas na ordem canônica de ReservaOrdenada; se a thread for
+     * interrompida, o que já foi adquirido é liberado antes de propagar a exceção.
+     */
+    void adquirirCaminho(int[] caminho, int de, int ate, int idVeiculo) throws InterruptedException;
 
-    void adquirir(Point proximaPosicao) throws InterruptedException;
+    /**
+     * Versão do cruzamento de {@code celula}, que muda sempre que uma célula dele é liberada.
+     * Lida antes de uma tentativa de reserva, permite esperar em aguardarCruzamento só até o
+     * cruzamento mudar. Sem suporte a notificação, é sempre 0.
+     */
+    default long getVersaoCruzamento(int celula) {
+        return 0;
+    }
 
-    boolean isOcupado(Point p);
-}
\ No newline at end of file
+    /**
+     * Espera até a versão do cruzamento de {@code celula} deixar de ser {@code versao} ou até
+     * {@code timeoutMs}. Sem suporte a notificação, simplesmente dorme {@code timeoutMs}.
+     */
+    default void aguardarCruzamento(int celula, long versao, long timeoutMs) throws InterruptedException {
+        Thread.sleep(timeoutMs);
+    }
+}
@@ -0,0 +1,27 @@
+package model.sincronizacao;
+
+/**
+ * O que o veículo faz depois de uma tentativa de reserva de cruzamento que falhou
+ * (ModoReserva.TENTATIVA).
+ */
+public enum ModoEsperaCruzamento {
+
+    /** Dorme {@code velocidade} ms e tenta de novo (comportamento original). */
+    FIXA,
+    /**
+     * Espera até uma célula do cruzamento ser liberada (GerenciadorSincronizacao.aguardarCruzamento),
+     * com um limite que começa em Veiculo.ESPERA_MINIMA_CRUZAMENTO_MS e dobra a cada falha seguida,
+     * até {@code velocidade} ms. O limite cobre as liberações que não geram aviso (ex.: o rollback
+     * de outra tentativa) e evita que muitos veículos acordados juntos tentem sem parar.
+     */
+    NOTIFICADA;
+
+    public static ModoEsperaCruzamento porNome(String nome) {
+        for (ModoEsperaCruzamento m : values()) {
+            if (m.name().equalsIgnoreCase(nome.trim())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Modo de espera de cruzamento desconhecido: " + nome);
+    }
+}
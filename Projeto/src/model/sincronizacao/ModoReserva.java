@@ -0,0 +1,33 @@
+package model.sincronizacao;
+
+/**
+ * Como o veículo reserva as células do caminho de um cruzamento.
+ */
+public enum ModoReserva {
+
+    /**
+     * Tenta pegar todas as células na ordem do caminho, sem bloquear; se falhar, desfaz o que
+     * pegou e o veículo tenta de novo depois de {@code velocidade} ms (comportamento original).
+     */
+    TENTATIVA,
+    /**
+     * Pega as células em ordem canônica (ver ReservaOrdenada), bloqueando em cada uma.
+     * A ordem global impede deadlock entre reservas, e a fila justa de cada célula impede
+     * que um veículo seja preterido indefinidamente: não há tentativas repetidas.
+     */
+    ORDENADA,
+    /**
+     * Como TENTATIVA, mas o cruzamento é reservado de uma vez, com um CAS na máscara de ocupação
+     * do seu aglomerado (ver GerenciadorAdmissaoCruzamento), em vez de uma operação por célula.
+     */
+    AGLOMERADO;
+
+    public static ModoReserva porNome(String nome) {
+        for (ModoReserva m : values()) {
+            if (m.name().equalsIgnoreCase(nome.trim())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Modo de reserva desconhecido: " + nome);
+    }
+}
@@ -0,0 +1,52 @@
+package model.sincronizacao;
+
+import model.Malha;
+
+/**
+ * Reserva bloqueante de caminhos em ordem canônica global, compartilhada pelos gerenciadores.
+ *
+ * A ordem é: primeiro as células de via comum do caminho (a célula de saída do cruzamento),
+ * depois as células de cruzamento; dentro de cada grupo, pelo índice da célula.
+ * Como todas as reservas seguem a mesma ordem, duas reservas nunca esperam uma pela outra em ciclo.
+ * Deixar o cruzamento por último garante ainda que um veículo nunca segura células do cruzamento
+ * enquanto espera pela via de saída, que pode estar ocupada justamente por quem quer entrar nele.
+ */
+final class ReservaOrdenada {
+
+    private ReservaOrdenada() {
+    }
+
+    static void adquirir(GerenciadorSincronizacao gerenciador, Malha malha, int[] caminho, int de, int ate,
+            int idVeiculo) throws InterruptedException {
+        // Os caminhos têm poucas células: em vez de ordenar uma cópia, cada rodada escolhe
+        // a menor chave ainda não adquirida, sem alocar nada.
+        long ultimaChave = -1;
+        try {
+            for (int k = de; k < ate; k++) {
+                int proxima = Malha.SEM_CELULA;
+                long menorChave = Long.MAX_VALUE;
+                for (int i = de; i < ate; i++) {
+                    long chave = chave(malha, caminho[i]);
+                    if (chave > ultimaChave && chave < menorChave) {
+                        menorChave = chave;
+                        proxima = caminho[i];
+                    }
+                }
+                gerenciador.adquirir(proxima, idVeiculo);
+                ultimaChave = menorChave;
+            }
+        } catch (InterruptedException e) {
+            for (int i = de; i < ate; i++) {
+                if (chave(malha, caminho[i]) <= ultimaChave) {
+                    gerenciador.liberar(caminho[i], idVeiculo);
+                }
+            }
+            throw e;
+        }
+        gerenciador.getContadoresReserva().registrarReservaOrdenada();
+    }
+
+    private static long chave(Malha malha, int celula) {
+        return malha.getTipo(celula) >= 5 ? (long) malha.getTotalCelulas() + celula : celula;
+    }
+}
@@ -0,0 +1,103 @@
+package util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+
+import model.Malha;
+
+/**
+ * Converte uma malha do formato texto para o binário lido por LeitorMalha (cabeçalho de 13 bytes
+ * e um byte por célula) e compara o carregamento dos dois arquivos.
+ *
+ * Uso: java util.ConversorMalha &lt;entrada.txt&gt; &lt;saida.malha&gt;
+ */
+public class ConversorMalha {
+
+    // Quantas vezes cada arquivo é carregado na comparação; a primeira carga aquece o JIT.
+    private static final int REPETICOES = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: java util.ConversorMalha <entrada.txt> <saida.malha>");
+            System.exit(1);
+        }
+
+        Malha malha = LeitorMalha.lerArquivo(args[0]);
+        if (malha == null) {
+            System.err.println("Erro ao ler o arquivo da malha: " + args[0]);
+            System.exit(1);
+        }
+        escreverBinario(malha, Path.of(args[1]));
+        System.out.printf("Malha %dx%d gravada em %s%n", malha.getLinhas(), malha.getColunas(), args[1]);
+
+        compararCarregamento(args[0]);
+        compararCarregamento(args[1]);
+    }
+
+    /**
+     * Grava a malha no formato binário, em blocos, sem montar o arquivo inteiro na memória.
+     */
+    public static void escreverBinario(Malha malha, Path destino) throws IOException {
+        escreverBinario(malha.getLinhas(), malha.getColunas(), malha::getTipo, destino);
+    }
+
+    /**
+     * @param tipoDaCelula tipo de cada célula, pelo índice {@code linha * colunas + coluna}.
+     */
+    public static void escreverBinario(int linhas, int colunas, IntUnaryOperator tipoDaCelula, Path destino)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(LeitorMalha.MAGICA);
+            buffer.put(LeitorMalha.VERSAO_BINARIA);
+            buffer.putInt(linhas);
+            buffer.putInt(colunas);
+            for (int celula = 0; celula < linhas * colunas; celula++) {
+                if (!buffer.hasRemaining()) {
+                    gravar(canal, buffer);
+                }
+                buffer.put((byte) tipoDaCelula.applyAsInt(celula));
+            }
+            gravar(canal, buffer);
+        }
+    }
+
+    private static void gravar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Imprime o tamanho do arquivo, o melhor tempo de carregamento entre REPETICOES cargas e o heap
+     * ocupado pela malha carregada (diferença do heap usado, após coleta, com e sem a malha).
+     */
+    private static void compararCarregamento(String caminho) throws IOException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        long melhorNanos = Long.MAX_VALUE;
+        long heapMalha = 0;
+        for (int i = 0; i < REPETICOES; i++) {
+            memoria.gc();
+            long heapAntes = memoria.getHeapMemoryUsage().getUsed();
+            long inicio = System.nanoTime();
+            Malha malha = LeitorMalha.lerArquivo(caminho);
+            melhorNanos = Math.min(melhorNanos, System.nanoTime() - inicio);
+            memoria.gc();
+            heapMalha = memoria.getHeapMemoryUsage().getUsed() - heapAntes;
+            if (malha == null)
+                return;
+        }
+        System.out.printf("%-40s %10.1f KiB  carga %8.1f ms  heap da malha %8.1f MiB%n", caminho,
+                Files.size(Path.of(caminho)) / 1024.0, melhorNanos / 1_000_000.0, heapMalha / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,364 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import model.Malha;
+
+/**
+ * Gera malhas sintéticas em grade, de qualquer tamanho, para os testes de escala.
+ *
+ * As ruas atravessam a malha de borda a borda, separadas por quarteirões de
+ * {@code tamanhoQuarteirao} células. Cada rua é de mão dupla (duas faixas, com o sentido das
+ * malhas de exemplo: descendo à esquerda e subindo à direita, indo para a esquerda em cima e para
+ * a direita embaixo) com probabilidade {@code densidadeMaoDupla}, ou de mão única, com sentido
+ * sorteado. Onde uma faixa vertical cruza uma horizontal, a célula é um cruzamento cujas saídas são
+ * os sentidos das duas faixas (tipos 9 a 12); uma fração {@code fracaoCruzamentosSimples} deles
+ * tem uma única saída, a de uma das duas faixas (tipos 5 a 8), o que obriga quem chega pela outra
+ * a converter.
+ *
+ * Depois de gerada, a malha é verificada com uma busca reversa a partir das saídas: todo ponto de
+ * entrada (pelas mesmas regras do LeitorMalha) precisa alcançar uma saída. Cruzamentos simples que
+ * criam ciclos sem saída voltam a ter as duas saídas, o que garante o alcance, já que cada faixa
+ * sozinha vai de uma borda à outra.
+ *
+ * Uso: java util.GeradorMalha &lt;saida.txt|saida.malha&gt; [opções]
+ *   --linhas N               linhas da malha (padrão 100)
+ *   --colunas N              colunas da malha (padrão 100)
+ *   --quarteirao N           células entre duas ruas (padrão 8)
+ *   --mao-dupla D            probabilidade de uma rua ser de mão dupla, de 0 a 1 (padrão 0.5)
+ *   --cruzamentos-simples F  fração dos cruzamentos com uma única saída, de 0 a 1 (padrão 0)
+ *   --semente N              semente do sorteio (padrão 42)
+ * Arquivos terminados em .malha são gravados no formato binário (ver ConversorMalha).
+ */
+public class GeradorMalha {
+
+    private final int linhas;
+    private final int colunas;
+    private final int tamanhoQuarteirao;
+    private final double densidadeMaoDupla;
+    private final double fracaoCruzamentosSimples;
+    private final Random random;
+    private int cruzamentosReparados;
+
+    public GeradorMalha(int linhas, int colunas, int tamanhoQuarteirao, double densidadeMaoDupla,
+            double fracaoCruzamentosSimples, long semente) {
+        if (linhas < 3 || colunas < 3) {
+            throw new IllegalArgumentException("A malha precisa de pelo menos 3x3 células: " + linhas + "x" + colunas);
+        }
+        if ((long) linhas * colunas > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Malha grande demais: " + linhas + "x" + colunas);
+        }
+        if (tamanhoQuarteirao < 1) {
+            throw new IllegalArgumentException("Quarteirão deve ter pelo menos 1 célula: " + tamanhoQuarteirao);
+        }
+        if (densidadeMaoDupla < 0 || densidadeMaoDupla > 1 || fracaoCruzamentosSimples < 0
+                || fracaoCruzamentosSimples > 1) {
+            throw new IllegalArgumentException("Densidade e fração devem estar entre 0 e 1");
+        }
+        this.linhas = linhas;
+        this.colunas = colunas;
+        this.tamanhoQuarteirao = tamanhoQuarteirao;
+        this.densidadeMaoDupla = densidadeMaoDupla;
+        this.fracaoCruzamentosSimples = fracaoCruzamentosSimples;
+        this.random = new Random(semente);
+    }
+
+    /**
+     * @return o tipo de cada célula, indexado por {@code linha * colunas + coluna}.
+     */
+    public byte[] gerar() {
+        // Sentido da faixa que passa em cada linha (2 ou 4) e em cada coluna (1 ou 3); 0 = nenhuma.
+        int[] sentidoDaLinha = distribuirRuas(linhas, 4, 2);
+        int[] sentidoDaColuna = distribuirRuas(colunas, 3, 1);
+
+        byte[] tipos = new byte[linhas * colunas];
+        for (int i = 0; i < linhas; i++) {
+            for (int j = 0; j < colunas; j++) {
+                int horizontal = sentidoDaLinha[i];
+                int vertical = sentidoDaColuna[j];
+                int celula = i * colunas + j;
+                if (horizontal != 0 && vertical != 0) {
+                    tipos[celula] = (byte) (random.nextDouble() < fracaoCruzamentosSimples
+                            ? cruzamentoSimples(random.nextBoolean() ? vertical : horizontal)
+                            : cruzamento(vertical, horizontal));
+                } else {
+                    tipos[celula] = (byte) (horizontal + vertical);
+                }
+            }
+        }
+
+        cruzamentosReparados = 0;
+        BitSet alcancaSaida = calcularAlcance(tipos);
+        if (!todasEntradasAlcancam(tipos, alcancaSaida)) {
+            // Devolve a segunda saída aos cruzamentos simples que não levam a nenhuma saída.
+            for (int celula = 0; celula < tipos.length; celula++) {
+                int tipo = tipos[celula];
+                if (tipo >= 5 && tipo <= 8 && !alcancaSaida.get(celula)) {
+                    tipos[celula] = (byte) cruzamento(sentidoDaColuna[celula % colunas], sentidoDaLinha[celula / colunas]);
+                    cruzamentosReparados++;
+                }
+            }
+            if (!todasEntradasAlcancam(tipos, calcularAlcance(tipos))) {
+                throw new IllegalStateException("Malha gerada tem entradas sem caminho até uma saída");
+            }
+        }
+        return tipos;
+    }
+
+    /**
+     * Gera a malha e a monta diretamente em memória, sem passar por arquivo.
+     */
+    public Malha criarMalha() {
+        byte[] tipos = gerar();
+        BitSet entradas = new BitSet(tipos.length);
+        BitSet saidas = new BitSet(tipos.length);
+        LeitorMalha.identificarPontos(tipos, linhas, colunas, entradas, saidas);
+        return new Malha(linhas, colunas, tipos, entradas.stream().toArray(), saidas);
+    }
+
+    /**
+     * Quantos cruzamentos simples tiveram que voltar a ter duas saídas na última geração.
+     */
+    public int getCruzamentosReparados() {
+        return cruzamentosReparados;
+    }
+
+    /**
+     * Sorteia as ruas ao longo de uma dimensão. Ruas de mão dupla ocupam duas faixas
+     * ({@code primeiraFaixa}, depois {@code segundaFaixa}); as de mão única, uma faixa com um dos dois
+     * sentidos. A primeira e a última faixa ficam afastadas da borda para que os cruzamentos nunca
+     * caiam nela.
+     */
+    private int[] distribuirRuas(int tamanho, int primeiraFaixa, int segundaFaixa) {
+        int[] sentidos = new int[tamanho];
+        int margem = Math.max(1, tamanhoQuarteirao / 2);
+        int posicao = margem;
+        while (true) {
+            boolean maoDupla = random.nextDouble() < densidadeMaoDupla;
+            int largura = maoDupla ? 2 : 1;
+            if (posicao + largura > tamanho - margem)
+                break;
+            if (maoDupla) {
+                sentidos[posicao] = primeiraFaixa;
+                sentidos[posicao + 1] = segundaFaixa;
+            } else {
+                sentidos[posicao] = random.nextBoolean() ? primeiraFaixa : segundaFaixa;
+            }
+            posicao += largura + tamanhoQuarteirao;
+        }
+        if (posicao == margem) {
+            throw new IllegalArgumentException("Quarteirão de " + tamanhoQuarteirao + " não cabe numa dimensão de "
+                    + tamanho + " células");
+        }
+        return sentidos;
+    }
+
+    /** Cruzamento com uma única saída: 5 cima, 6 direita, 7 baixo, 8 esquerda. */
+    private static int cruzamentoSimples(int sentido) {
+        return 4 + sentido;
+    }
+
+    /** Cruzamento que deixa seguir nas duas faixas: 9 a 12, conforme Malha.getDirecoesDeSaida. */
+    private static int cruzamento(int vertical, int horizontal) {
+        if (vertical == 1)
+            return horizontal == 2 ? 9 : 10;
+        return horizontal == 2 ? 11 : 12;
+    }
+
+    /**
+     * Busca reversa a partir das saídas: marca toda célula de onde se chega a uma saída.
+     */
+    private BitSet calcularAlcance(byte[] tipos) {
+        // Cada célula entra na fila uma única vez, então a fila só cresce até o total de vias.
+        BitSet alcanca = new BitSet(tipos.length);
+        int[] fila = new int[1024];
+        int inicio = 0;
+        int fim = 0;
+        for (int celula : celulasDaBorda()) {
+            if (apontaParaFora(tipos[celula], celula) && !alcanca.get(celula)) {
+                alcanca.set(celula);
+                fila = colocar(fila, fim++, celula);
+            }
+        }
+        while (inicio < fim) {
+            int celula = fila[inicio++];
+            for (int direcao = 1; direcao <= 4; direcao++) {
+                // Vizinho na direção indicada que, ao sair no sentido oposto, chega nesta célula.
+                int vizinha = vizinha(celula, direcao);
+                if (vizinha < 0 || alcanca.get(vizinha) || !saiPara(tipos[vizinha], oposta(direcao)))
+                    continue;
+                alcanca.set(vizinha);
+                fila = colocar(fila, fim++, vizinha);
+            }
+        }
+        return alcanca;
+    }
+
+    private static int[] colocar(int[] fila, int posicao, int celula) {
+        if (posicao == fila.length) {
+            fila = Arrays.copyOf(fila, fila.length * 2);
+        }
+        fila[posicao] = celula;
+        return fila;
+    }
+
+    private boolean todasEntradasAlcancam(byte[] tipos, BitSet alcancaSaida) {
+        BitSet entradas = new BitSet(tipos.length);
+        LeitorMalha.identificarPontos(tipos, linhas, colunas, entradas, new BitSet(tipos.length));
+        for (int c = entradas.nextSetBit(0); c >= 0; c = entradas.nextSetBit(c + 1)) {
+            if (!alcancaSaida.get(c))
+                return false;
+        }
+        return !entradas.isEmpty();
+    }
+
+    private int[] celulasDaBorda() {
+        int[] borda = new int[2 * colunas + 2 * (linhas - 2)];
+        int n = 0;
+        for (int j = 0; j < colunas; j++) {
+            borda[n++] = j;
+            borda[n++] = (linhas - 1) * colunas + j;
+        }
+        for (int i = 1; i < linhas - 1; i++) {
+            borda[n++] = i * colunas;
+            borda[n++] = i * colunas + colunas - 1;
+        }
+        return borda;
+    }
+
+    /** Via (1 a 4) na borda cujo sentido leva para fora da malha: uma saída. */
+    private boolean apontaParaFora(int tipo, int celula) {
+        return tipo >= 1 && tipo <= 4 && vizinha(celula, tipo) < 0;
+    }
+
+    private static boolean saiPara(int tipo, int direcao) {
+        if (tipo >= 1 && tipo <= 4)
+            return tipo == direcao;
+        for (int d : Malha.getDirecoesDeSaida(tipo)) {
+            if (d == direcao)
+                return true;
+        }
+        return false;
+    }
+
+    private static int oposta(int direcao) {
+        return (direcao + 1) % 4 + 1;
+    }
+
+    private int vizinha(int celula, int direcao) {
+        int linha = celula / colunas;
+        int coluna = celula % colunas;
+        switch (direcao) {
+        case 1:
+            return linha > 0 ? celula - colunas : -1;
+        case 2:
+            return coluna < colunas - 1 ? celula + 1 : -1;
+        case 3:
+            return linha < linhas - 1 ? celula + colunas : -1;
+        default:
+            return coluna > 0 ? celula - 1 : -1;
+        }
+    }
+
+    /**
+     * Grava os tipos no formato texto do LeitorMalha (uma linha da malha por linha do arquivo, valores
+     * separados por tabulação) ou, se o nome terminar em .malha, no formato binário.
+     */
+    public void escrever(byte[] tipos, Path destino) throws IOException {
+        if (destino.toString().endsWith(".malha")) {
+            ConversorMalha.escreverBinario(linhas, colunas, c -> tipos[c], destino);
+            return;
+        }
+        try (BufferedWriter saida = Files.newBufferedWriter(destino, StandardCharsets.US_ASCII)) {
+            saida.write(linhas + "\n" + colunas + "\n");
+            for (int i = 0; i < linhas; i++) {
+                for (int j = 0; j < colunas; j++) {
+                    if (j > 0)
+                        saida.write('\t');
+                    int tipo = tipos[i * colunas + j];
+                    if (tipo >= 10)
+                        saida.write('1');
+                    saida.write('0' + tipo % 10);
+                }
+                saida.write('\n');
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            imprimirUso();
+            System.exit(1);
+        }
+
+        Path destino = Path.of(args[0]);
+        int linhas = 100;
+        int colunas = 100;
+        int quarteirao = 8;
+        double maoDupla = 0.5;
+        double cruzamentosSimples = 0.0;
+        long semente = 42;
+
+        GeradorMalha gerador = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                case "--linhas":
+                    linhas = Integer.parseInt(args[++i]);
+                    break;
+                case "--colunas":
+                    colunas = Integer.parseInt(args[++i]);
+                    break;
+                case "--quarteirao":
+                    quarteirao = Integer.parseInt(args[++i]);
+                    break;
+                case "--mao-dupla":
+                    maoDupla = Double.parseDouble(args[++i]);
+                    break;
+                case "--cruzamentos-simples":
+                    cruzamentosSimples = Double.parseDouble(args[++i]);
+                    break;
+                case "--semente":
+                    semente = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+            gerador = new GeradorMalha(linhas, colunas, quarteirao, maoDupla, cruzamentosSimples, semente);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : "Argumentos inválidos.");
+            imprimirUso();
+            System.exit(1);
+        }
+
+        long inicio = System.nanoTime();
+        byte[] tipos = gerador.gerar();
+        gerador.escrever(tipos, destino);
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        BitSet entradas = new BitSet(tipos.length);
+        BitSet saidas = new BitSet(tipos.length);
+        LeitorMalha.identificarPontos(tipos, linhas, colunas, entradas, saidas);
+        int cruzamentos = 0;
+        for (int tipo : tipos) {
+            if (tipo >= 5)
+                cruzamentos++;
+        }
+        System.out.printf("Malha %dx%d gravada em %s (%.2f s)%n", linhas, colunas, destino, segundos);
+        System.out.printf("Entradas: %d, saídas: %d, células de cruzamento: %d, cruzamentos simples reparados: %d%n",
+                entradas.cardinality(), saidas.cardinality(), cruzamentos, gerador.getCruzamentosReparados());
+    }
+
+    private static void imprimirUso() {
+        System.err.println("Uso: java util.GeradorMalha <saida.txt|saida.malha> [--linhas N] [--colunas N]"
+                + " [--quarteirao N] [--mao-dupla D] [--cruzamentos-simples F] [--semente N]");
+    }
+}
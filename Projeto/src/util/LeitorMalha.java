@@ -1,99 +1,211 @@
 package util;
 
-import java.awt.Point;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
 import model.Malha;
-import java.util.concurrent.locks.Lock;
 
+/**
+ * Carrega malhas em dois formatos:
+ * <ul>
+ * <li>texto (.txt): número de linhas, número de colunas e o tipo de cada célula, separados por
+ * espaços, tabulações ou quebras de linha;</li>
+ * <li>binário (.malha, ver ConversorMalha): cabeçalho com MAGICA, versão, linhas e colunas, seguido
+ * de um byte por célula.</li>
+ * </ul>
+ * O formato é reconhecido pelos primeiros bytes, não pela extensão. Os dois são lidos de um
+ * FileChannel mapeado em memória, em janelas, sem criar uma String por linha ou por célula.
+ */
 public class LeitorMalha {
 
+    /** "MALH" em ASCII: início de todo arquivo binário de malha. */
+    public static final int MAGICA = 0x4D414C48;
+    public static final byte VERSAO_BINARIA = 1;
+    /** Bytes do cabeçalho binário: mágica (4), versão (1), linhas (4) e colunas (4). */
+    public static final int TAMANHO_CABECALHO = 13;
+    public static final int MAIOR_TIPO = 12;
+
+    // Tamanho de cada janela mapeada; arquivos maiores são lidos em várias janelas.
+    private static final long TAMANHO_JANELA = 64L * 1024 * 1024;
+
     public static Malha lerArquivo(String caminhoArquivo) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(caminhoArquivo))) {
-            int linhas = Integer.parseInt(reader.readLine().trim());
-            int colunas = Integer.parseInt(reader.readLine().trim());
-            int[][] grid = new int[linhas][colunas];
-
-            Map<Point, Semaphore> semaforos = new HashMap<>();
-            Map<Point, Lock> monitores = new HashMap<>();
-
-            for (int i = 0; i < linhas; i++) {
-                String[] valores = reader.readLine().trim().split("\\s+");
-                for (int j = 0; j < colunas; j++) {
-                    int tipo = Integer.parseInt(valores[j]);
-                    grid[i][j] = tipo;
-
-                    // Se a célula for qualquer parte da via (não for vazia),
-                    // cria um semáforo e um objeto monitor para ela.
-                    if (tipo > 0) {
-                        Point p = new Point(j, i);
-                        // Cria um semáforo binário e justo (fair)
-                        semaforos.put(p, new Semaphore(1, true));
-                        monitores.put(p, new java.util.concurrent.locks.ReentrantLock(true));
-                    }
+        try (FileChannel canal = FileChannel.open(Path.of(caminhoArquivo), StandardOpenOption.READ)) {
+            Leitura leitura = new Leitura(canal);
+            byte[] tipos;
+            int linhas;
+            int colunas;
+            if (canal.size() >= TAMANHO_CABECALHO && leitura.espiarInt() == MAGICA) {
+                leitura.proximoInt();
+                byte versao = leitura.proximoByte();
+                if (versao != VERSAO_BINARIA) {
+                    throw new IOException("Versão de malha binária não suportada: " + versao);
                 }
+                linhas = leitura.proximoInt();
+                colunas = leitura.proximoInt();
+                tipos = lerCelulasBinarias(leitura, linhas, colunas);
+            } else {
+                linhas = leitura.proximoNumero();
+                colunas = leitura.proximoNumero();
+                tipos = lerCelulasTexto(leitura, linhas, colunas);
             }
 
-            List<Point> entradas = new ArrayList<>();
-            List<Point> saidas = new ArrayList<>();
-            identificarPontos(grid, linhas, colunas, entradas, saidas);
+            BitSet entradas = new BitSet(linhas * colunas);
+            BitSet saidas = new BitSet(linhas * colunas);
+            identificarPontos(tipos, linhas, colunas, entradas, saidas);
 
-            return new Malha(grid, entradas, saidas, semaforos, monitores);
+            return new Malha(linhas, colunas, tipos, entradas.stream().toArray(), saidas);
 
-        } catch (IOException | NumberFormatException e) {
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    private static byte[] criarCelulas(int linhas, int colunas) throws IOException {
+        if (linhas <= 0 || colunas <= 0 || (long) linhas * colunas > Integer.MAX_VALUE - 8) {
+            throw new IOException("Dimensões de malha inválidas: " + linhas + "x" + colunas);
+        }
+        return new byte[linhas * colunas];
+    }
+
+    private static byte[] lerCelulasTexto(Leitura leitura, int linhas, int colunas) throws IOException {
+        byte[] tipos = criarCelulas(linhas, colunas);
+        for (int celula = 0; celula < tipos.length; celula++) {
+            tipos[celula] = validarTipo(leitura.proximoNumero(), celula, colunas);
+        }
+        return tipos;
+    }
+
+    private static byte[] lerCelulasBinarias(Leitura leitura, int linhas, int colunas) throws IOException {
+        byte[] tipos = criarCelulas(linhas, colunas);
+        for (int celula = 0; celula < tipos.length; celula++) {
+            tipos[celula] = validarTipo(leitura.proximoByte() & 0xFF, celula, colunas);
+        }
+        return tipos;
+    }
+
+    private static byte validarTipo(int tipo, int celula, int colunas) throws IOException {
+        if (tipo > MAIOR_TIPO) {
+            throw new IOException("Tipo " + tipo + " inválido na célula (" + celula / colunas + ", "
+                    + celula % colunas + ")");
+        }
+        return (byte) tipo;
+    }
+
     /**
      * Identifica os pontos de entrada e saída nas bordas da malha.
-     * A lógica baseia-se na direção da via na borda.
+     * A lógica baseia-se na direção da via na borda; só as células da borda são visitadas.
+     * Também usado pelo GeradorMalha.
      */
-    private static void identificarPontos(int[][] grid, int linhas, int colunas, List<Point> entradas,
-            List<Point> saidas) {
+    static void identificarPontos(byte[] tipos, int linhas, int colunas, BitSet entradas,
+            BitSet saidas) {
+        for (int j = 0; j < colunas; j++) {
+            // Borda superior: Estrada para Baixo é entrada, para Cima é saída
+            marcar(tipos, j, 3, 1, entradas, saidas);
+            // Borda inferior: Estrada para Cima é entrada, para Baixo é saída
+            marcar(tipos, (linhas - 1) * colunas + j, 1, 3, entradas, saidas);
+        }
         for (int i = 0; i < linhas; i++) {
-            for (int j = 0; j < colunas; j++) {
-                // Verifica apenas as células que estão nas bordas
-                if (i == 0 || i == linhas - 1 || j == 0 || j == colunas - 1) {
-                    int tipo = grid[i][j];
-
-                    // Borda superior (i=0)
-                    if (i == 0) {
-                        if (tipo == 3)
-                            entradas.add(new Point(j, i)); // Estrada para Baixo é entrada
-                        if (tipo == 1)
-                            saidas.add(new Point(j, i)); // Estrada para Cima é saída
-                    }
-                    // Borda inferior (i=linhas-1)
-                    if (i == linhas - 1) {
-                        if (tipo == 1)
-                            entradas.add(new Point(j, i)); // Estrada para Cima é entrada
-                        if (tipo == 3)
-                            saidas.add(new Point(j, i)); // Estrada para Baixo é saída
-                    }
-                    // Borda esquerda (j=0)
-                    if (j == 0) {
-                        if (tipo == 2)
-                            entradas.add(new Point(j, i)); // Estrada para Direita é entrada
-                        if (tipo == 4)
-                            saidas.add(new Point(j, i)); // Estrada para Esquerda é saída
-                    }
-                    // Borda direita (j=colunas-1)
-                    if (j == colunas - 1) {
-                        if (tipo == 4)
-                            entradas.add(new Point(j, i)); // Estrada para Esquerda é entrada
-                        if (tipo == 2)
-                            saidas.add(new Point(j, i)); // Estrada para Direita é saída
-                    }
-                }
+            // Borda esquerda: Estrada para Direita é entrada, para Esquerda é saída
+            marcar(tipos, i * colunas, 2, 4, entradas, saidas);
+            // Borda direita: Estrada para Esquerda é entrada, para Direita é saída
+            marcar(tipos, i * colunas + colunas - 1, 4, 2, entradas, saidas);
+        }
+    }
+
+    private static void marcar(byte[] tipos, int celula, int tipoEntrada, int tipoSaida, BitSet entradas,
+            BitSet saidas) {
+        if (tipos[celula] == tipoEntrada)
+            entradas.set(celula);
+        if (tipos[celula] == tipoSaida)
+            saidas.set(celula);
+    }
+
+    /**
+     * Percorre o arquivo por janelas mapeadas em memória, byte a byte. Serve tanto aos números em
+     * texto (proximoNumero) quanto aos campos binários (proximoInt, proximoByte).
+     */
+    private static final class Leitura {
+
+        private final FileChannel canal;
+        private final long tamanho;
+        private ByteBuffer janela;
+        private long inicioJanela = 0;
+
+        Leitura(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.tamanho = canal.size();
+            mapear(0);
+        }
+
+        private void mapear(long posicao) throws IOException {
+            inicioJanela = posicao;
+            janela = canal.map(FileChannel.MapMode.READ_ONLY, posicao, Math.min(TAMANHO_JANELA, tamanho - posicao));
+        }
+
+        /** @return o próximo byte (0 a 255), ou -1 no fim do arquivo. */
+        private int ler() throws IOException {
+            if (!janela.hasRemaining()) {
+                long proxima = inicioJanela + janela.limit();
+                if (proxima >= tamanho)
+                    return -1;
+                mapear(proxima);
             }
+            return janela.get() & 0xFF;
+        }
+
+        byte proximoByte() throws IOException {
+            int b = ler();
+            if (b < 0)
+                throw new EOFException("Fim inesperado do arquivo de malha");
+            return (byte) b;
+        }
+
+        int proximoInt() throws IOException {
+            int valor = 0;
+            for (int i = 0; i < 4; i++) {
+                valor = (valor << 8) | (proximoByte() & 0xFF);
+            }
+            return valor;
+        }
+
+        /** Lê os 4 primeiros bytes sem consumi-los (só no início do arquivo). */
+        int espiarInt() {
+            return janela.getInt(0);
+        }
+
+        /**
+         * Próximo inteiro não negativo em texto, pulando espaços, tabulações e quebras de linha.
+         */
+        int proximoNumero() throws IOException {
+            int b = ler();
+            while (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                b = ler();
+            }
+            if (b < 0)
+                throw new EOFException("Fim inesperado do arquivo de malha");
+            if (b < '0' || b > '9')
+                throw new IOException("Caractere inesperado '" + (char) b + "' na posição " + posicao());
+
+            long valor = 0;
+            do {
+                valor = valor * 10 + (b - '0');
+                if (valor > Integer.MAX_VALUE)
+                    throw new IOException("Número grande demais na posição " + posicao());
+                b = ler();
+            } while (b >= '0' && b <= '9');
+
+            if (b >= 0 && b != ' ' && b != '\t' && b != '\n' && b != '\r')
+                throw new IOException("Caractere inesperado '" + (char) b + "' na posição " + posicao());
+            return (int) valor;
+        }
+
+        private long posicao() {
+            return inicioJanela + janela.position() - 1;
         }
     }
-}
\ No newline at end of file
+}
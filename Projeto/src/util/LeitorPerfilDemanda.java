@@ -0,0 +1,92 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import model.Malha;
+import model.PerfilDemanda;
+
+/**
+ * Carrega um perfil de demanda em texto, uma regra por linha ('#' inicia um comentário):
+ *
+ * <pre>
+ * taxa    &lt;entrada&gt; &lt;inicio_s&gt; &lt;fim_s&gt; &lt;veiculos_por_minuto&gt;
+ * destino &lt;entrada&gt; &lt;linha_saida&gt; &lt;coluna_saida&gt; &lt;peso&gt;
+ * </pre>
+ *
+ * onde &lt;entrada&gt; é "linha coluna" de um dos pontos de Malha.getPontosDeEntrada(), ou "*"
+ * para todas as entradas. Os instantes são em segundos de simulação, a partir do início.
+ */
+public class LeitorPerfilDemanda {
+
+    public static PerfilDemanda lerArquivo(String caminhoArquivo, Malha malha) {
+        try {
+            List<String> linhas = Files.readAllLines(Path.of(caminhoArquivo), StandardCharsets.UTF_8);
+            PerfilDemanda perfil = new PerfilDemanda(malha);
+            for (int n = 0; n < linhas.size(); n++) {
+                String linha = linhas.get(n);
+                int comentario = linha.indexOf('#');
+                if (comentario >= 0) {
+                    linha = linha.substring(0, comentario);
+                }
+                linha = linha.strip();
+                if (linha.isEmpty())
+                    continue;
+                try {
+                    lerRegra(linha.split("\\s+"), perfil, malha);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw new IOException("Linha " + (n + 1) + " do perfil: " + e.getMessage(), e);
+                }
+            }
+            return perfil;
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void lerRegra(String[] campos, PerfilDemanda perfil, Malha malha) {
+        int i = 1;
+        int[] entradas;
+        if (campos[i].equals("*")) {
+            entradas = malha.getCelulasDeEntrada();
+            i++;
+        } else {
+            entradas = new int[] { celula(malha, campos[i], campos[i + 1]) };
+            i += 2;
+        }
+
+        switch (campos[0]) {
+        case "taxa":
+            long inicioMs = (long) (Double.parseDouble(campos[i]) * 1000);
+            long fimMs = (long) (Double.parseDouble(campos[i + 1]) * 1000);
+            double taxa = Double.parseDouble(campos[i + 2]);
+            for (int entrada : entradas) {
+                perfil.adicionarTaxa(entrada, inicioMs, fimMs, taxa);
+            }
+            break;
+        case "destino":
+            int saida = celula(malha, campos[i], campos[i + 1]);
+            double peso = Double.parseDouble(campos[i + 2]);
+            for (int entrada : entradas) {
+                perfil.adicionarDestino(entrada, saida, peso);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Regra desconhecida: " + campos[0]);
+        }
+    }
+
+    private static int celula(Malha malha, String linha, String coluna) {
+        int l = Integer.parseInt(linha);
+        int c = Integer.parseInt(coluna);
+        if (l < 0 || l >= malha.getLinhas() || c < 0 || c >= malha.getColunas()) {
+            throw new IllegalArgumentException("Célula (" + l + ", " + c + ") fora da malha");
+        }
+        return l * malha.getColunas() + c;
+    }
+}
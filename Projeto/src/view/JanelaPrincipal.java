@@ -13,6 +13,7 @@ public class JanelaPrincipal extends JFrame {
 	private static final long serialVersionUID = 1L;
 	private PainelMalha painelMalha;
 	private PainelControle painelControle;
+	private PainelMetricas painelMetricas;
 
 	public JanelaPrincipal() {
 		
@@ -24,13 +25,18 @@ public class JanelaPrincipal extends JFrame {
 		// Instanciação dos painéis customizados
 		painelMalha = new PainelMalha();
 		painelControle = new PainelControle();
+		painelMetricas = new PainelMetricas();
 
 		// Adição dos painéis à janela
 		((JPanel) getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-		// Adiciona o painel da malha ao centro e o painel de controle à direita (leste)
+		// Adiciona o painel da malha ao centro e, à direita (leste), o painel de controle
+		// com o painel de métricas logo abaixo
+		JPanel painelLateral = new JPanel(new BorderLayout(0, 10));
+		painelLateral.add(painelControle, BorderLayout.CENTER);
+		painelLateral.add(painelMetricas, BorderLayout.SOUTH);
 		add(painelMalha, BorderLayout.CENTER);
-		add(painelControle, BorderLayout.EAST);
+		add(painelLateral, BorderLayout.EAST);
 
 		// 1. Permite que a janela seja redimensionada e maximizada
 		setResizable(true);
@@ -66,4 +72,8 @@ public class JanelaPrincipal extends JFrame {
 	public PainelControle getPainelControle() {
 		return this.painelControle;
 	}
+
+	public PainelMetricas getPainelMetricas() {
+		return this.painelMetricas;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import controller.ReproducaoRastro;
+import model.Malha;
+
+/**
+ * Janela do reprodutor de rastros: a malha, desenhada pelo mesmo PainelMalha da simulação, e uma
+ * barra com pausa, velocidade e o instante reproduzido.
+ */
+public class JanelaReproducao extends JFrame {
+
+	private static final long serialVersionUID = 1L;
+	private static final Double[] VELOCIDADES = { 0.25, 0.5, 1.0, 2.0, 5.0, 10.0, 50.0, 100.0, 1000.0 };
+
+	private final PainelMalha painelMalha;
+	private final JLabel lblSituacao;
+
+	public JanelaReproducao(String titulo, Malha malha, ReproducaoRastro reproducao) {
+		super("Reprodução: " + titulo);
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		setLayout(new BorderLayout(10, 10));
+		((JPanel) getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+		painelMalha = new PainelMalha();
+		painelMalha.setMalha(malha);
+		add(painelMalha, BorderLayout.CENTER);
+
+		JButton btnPausar = new JButton("Pausar");
+		btnPausar.addActionListener(e -> {
+			reproducao.setPausado(!reproducao.isPausado());
+			btnPausar.setText(reproducao.isPausado() ? "Continuar" : "Pausar");
+		});
+
+		JComboBox<Double> cbVelocidade = new JComboBox<>(VELOCIDADES);
+		cbVelocidade.setEditable(true);
+		cbVelocidade.setSelectedItem(reproducao.getVelocidade());
+		cbVelocidade.addActionListener(e -> {
+			Object item = cbVelocidade.getSelectedItem();
+			try {
+				reproducao.setVelocidade(item instanceof Double ? (Double) item : Double.parseDouble(item.toString()));
+			} catch (IllegalArgumentException ex) {
+				cbVelocidade.setSelectedItem(reproducao.getVelocidade());
+			}
+		});
+
+		lblSituacao = new JLabel();
+		JPanel barra = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		barra.add(btnPausar);
+		barra.add(new JLabel("Velocidade (x):"));
+		barra.add(cbVelocidade);
+		barra.add(lblSituacao);
+		add(barra, BorderLayout.SOUTH);
+
+		// O instante é só texto: quatro atualizações por segundo bastam.
+		new Timer(250, e -> lblSituacao.setText(String.format("%.1f s, %d veículos na malha, %d saídas%s",
+				reproducao.getInstanteNanos() / 1e9, reproducao.getAtivos(), reproducao.getSaidas(),
+				reproducao.isTerminada() ? " (fim do rastro)" : ""))).start();
+
+		setPreferredSize(new Dimension(1000, 800));
+		pack();
+		setMinimumSize(new Dimension(400, 300));
+		setLocationRelativeTo(null);
+	}
+
+	public PainelMalha getPainelMalha() {
+		return painelMalha;
+	}
+}
@@ -10,23 +10,41 @@ import java.awt.Insets;
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JTextField;
 import javax.swing.border.TitledBorder;
 
+import model.ModoExecucao;
+import model.sincronizacao.EstrategiaSincronizacao;
+import model.sincronizacao.ModoReserva;
+
 public class PainelControle extends JPanel {
 
 	
 	private static final long serialVersionUID = 1L;
+	private static final String[] ESCALAS = { "0.5x", "1x", "2x", "5x", "10x", "100x", "máxima" };
 	private JTextField txtQtdVeiculos;
 	private JTextField txtIntervalo;
+	private JTextField txtQuadrosPorSegundo;
+	private JTextField txtSemente;
+	private JComboBox<String> cbEscalaTempo;
 	private JRadioButton rbSemaforo;
 	private JRadioButton rbMonitor;
+	private JRadioButton rbAtomico;
+	private JRadioButton rbThreadsPlataforma;
+	private JRadioButton rbThreadsVirtuais;
+	private JRadioButton rbReservaTentativa;
+	private JRadioButton rbReservaOrdenada;
+	private JRadioButton rbReservaAglomerado;
+	private JCheckBox chkMapaDeCalor;
 	private JButton btnIniciar;
 	private JButton btnEncerrarInsercao;
 	private JButton btnEncerrarSimulacao;
+	private JButton btnCarregarPerfil;
 
 	public PainelControle() {
 		setLayout(new GridBagLayout());
@@ -67,10 +85,48 @@ public class PainelControle extends JPanel {
 		txtIntervalo = new JTextField("1");
 		add(txtIntervalo, gbc);
 
-		// Rótulo "Mecanismo de Exclusão"
+		// Rótulo "Quadros por segundo"
 		gbc.gridx = 0;
 		gbc.gridy = 2;
 		gbc.weightx = 0.0;
+		add(new JLabel("Quadros por segundo:"), gbc);
+
+		// Campo de Texto para a taxa de redesenho da malha
+		gbc.gridx = 1;
+		gbc.weightx = 1.0;
+		txtQuadrosPorSegundo = new JTextField("30");
+		add(txtQuadrosPorSegundo, gbc);
+
+		// Rótulo "Semente"
+		gbc.gridx = 0;
+		gbc.gridy = 3;
+		gbc.weightx = 0.0;
+		add(new JLabel("Semente (vazio = sorteada):"), gbc);
+
+		// Campo de Texto para a semente das sequências aleatórias
+		gbc.gridx = 1;
+		gbc.weightx = 1.0;
+		txtSemente = new JTextField("");
+		add(txtSemente, gbc);
+
+		// Rótulo "Escala de Tempo"
+		gbc.gridx = 0;
+		gbc.gridy = 4;
+		gbc.weightx = 0.0;
+		add(new JLabel("Escala de Tempo:"), gbc);
+
+		// Fator do tempo simulado, ou "máxima" (veículos sem dormir); pode ser mudado durante a simulação
+		gbc.gridx = 1;
+		gbc.weightx = 1.0;
+		cbEscalaTempo = new JComboBox<>(ESCALAS);
+		cbEscalaTempo.setEditable(true);
+		cbEscalaTempo.setSelectedItem("1x");
+		add(cbEscalaTempo, gbc);
+
+		// Rótulo "Mecanismo de Exclusão"
+		gbc.gridx = 0;
+		gbc.gridy = 5;
+		gbc.weightx = 0.0;
 		gbc.gridwidth = 2;
 		gbc.anchor = GridBagConstraints.CENTER;
 		gbc.insets = new Insets(15, 5, 0, 5);
@@ -79,34 +135,83 @@ public class PainelControle extends JPanel {
 		// Painel para os Botões (JRadioButton)
 		rbSemaforo = new JRadioButton("Semáforos", true);
 		rbMonitor = new JRadioButton("Monitores");
+		rbAtomico = new JRadioButton("Atômico");
 		ButtonGroup grupoExclusao = new ButtonGroup();
 		grupoExclusao.add(rbSemaforo);
 		grupoExclusao.add(rbMonitor);
+		grupoExclusao.add(rbAtomico);
 		JPanel painelRadios = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
 		painelRadios.add(rbSemaforo);
 		painelRadios.add(rbMonitor);
-		gbc.gridy = 3;
+		painelRadios.add(rbAtomico);
+		gbc.gridy = 6;
 		gbc.gridwidth = 2;
 		gbc.insets = new Insets(5, 5, 5, 5);
 		add(painelRadios, gbc);
 
+		// Rótulo "Execução dos Veículos"
+		gbc.gridy = 7;
+		gbc.insets = new Insets(15, 5, 0, 5);
+		add(new JLabel("Execução dos Veículos:"), gbc);
+
+		// Tipo de thread usado por veículo (plataforma ou virtual)
+		rbThreadsPlataforma = new JRadioButton("Plataforma", true);
+		rbThreadsVirtuais = new JRadioButton("Virtuais");
+		ButtonGroup grupoExecucao = new ButtonGroup();
+		grupoExecucao.add(rbThreadsPlataforma);
+		grupoExecucao.add(rbThreadsVirtuais);
+		JPanel painelExecucao = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+		painelExecucao.add(rbThreadsPlataforma);
+		painelExecucao.add(rbThreadsVirtuais);
+		gbc.gridy = 8;
+		gbc.insets = new Insets(5, 5, 5, 5);
+		add(painelExecucao, gbc);
+
+		// Rótulo "Reserva dos Cruzamentos"
+		gbc.gridy = 9;
+		gbc.insets = new Insets(15, 5, 0, 5);
+		add(new JLabel("Reserva dos Cruzamentos:"), gbc);
+
+		// Célula a célula com tentativas, em ordem canônica bloqueante, ou o aglomerado inteiro num CAS
+		rbReservaTentativa = new JRadioButton("Tentativa", true);
+		rbReservaOrdenada = new JRadioButton("Ordenada");
+		rbReservaAglomerado = new JRadioButton("Aglomerado");
+		ButtonGroup grupoReserva = new ButtonGroup();
+		grupoReserva.add(rbReservaTentativa);
+		grupoReserva.add(rbReservaOrdenada);
+		grupoReserva.add(rbReservaAglomerado);
+		JPanel painelReserva = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+		painelReserva.add(rbReservaTentativa);
+		painelReserva.add(rbReservaOrdenada);
+		painelReserva.add(rbReservaAglomerado);
+		gbc.gridy = 10;
+		gbc.insets = new Insets(5, 5, 5, 5);
+		add(painelReserva, gbc);
+
+		// Sobreposição colorindo cada célula pela disputa medida
+		chkMapaDeCalor = new JCheckBox("Mapa de calor de disputa");
+		gbc.gridy = 11;
+		add(chkMapaDeCalor, gbc);
+
 		// Painel com os Botões de Ação
 		btnIniciar = new JButton("Iniciar Simulação");
 		btnEncerrarInsercao = new JButton("Encerrar Inserção");
 		btnEncerrarSimulacao = new JButton("Encerrar Simulação");
+		btnCarregarPerfil = new JButton("Carregar Perfil de Demanda");
 
-		JPanel painelBotoes = new JPanel(new GridLayout(3, 1, 0, 10));
+		JPanel painelBotoes = new JPanel(new GridLayout(4, 1, 0, 10));
 		painelBotoes.add(btnIniciar);
 		painelBotoes.add(btnEncerrarInsercao);
 		painelBotoes.add(btnEncerrarSimulacao);
+		painelBotoes.add(btnCarregarPerfil);
 
-		gbc.gridy = 4;
+		gbc.gridy = 12;
 		gbc.gridwidth = 2;
 		gbc.insets = new Insets(20, 5, 5, 5);
 		add(painelBotoes, gbc);
 
 		// Componente "invisível" para empurrar todo o conteúdo para cima
-		gbc.gridy = 5;
+		gbc.gridy = 13;
 		gbc.weighty = 1.0;
 		add(new JLabel(), gbc);
 	}
@@ -119,8 +224,52 @@ public class PainelControle extends JPanel {
 		return txtIntervalo.getText();
 	}
 
-	public boolean isSemaforoSelecionado() {
-		return rbSemaforo.isSelected();
+	public String getSemente() {
+		return txtSemente.getText();
+	}
+
+	public void setSemente(String semente) {
+		txtSemente.setText(semente);
+	}
+
+	public JComboBox<String> getCbEscalaTempo() {
+		return cbEscalaTempo;
+	}
+
+	/**
+	 * @return o texto da escala de tempo, no formato de EscalaTempo.definir (ex.: "10x", "máxima").
+	 */
+	public String getEscalaTempo() {
+		Object item = cbEscalaTempo.getSelectedItem();
+		return item != null ? item.toString() : "1x";
+	}
+
+	public String getQuadrosPorSegundo() {
+		return txtQuadrosPorSegundo.getText();
+	}
+
+	public EstrategiaSincronizacao getEstrategiaSincronizacao() {
+		if (rbMonitor.isSelected())
+			return EstrategiaSincronizacao.MONITOR;
+		if (rbAtomico.isSelected())
+			return EstrategiaSincronizacao.ATOMICO;
+		return EstrategiaSincronizacao.SEMAFORO;
+	}
+
+	public ModoExecucao getModoExecucao() {
+		return rbThreadsVirtuais.isSelected() ? ModoExecucao.VIRTUAL : ModoExecucao.PLATAFORMA;
+	}
+
+	public ModoReserva getModoReserva() {
+		if (rbReservaOrdenada.isSelected())
+			return ModoReserva.ORDENADA;
+		if (rbReservaAglomerado.isSelected())
+			return ModoReserva.AGLOMERADO;
+		return ModoReserva.TENTATIVA;
+	}
+
+	public JCheckBox getChkMapaDeCalor() {
+		return chkMapaDeCalor;
 	}
 
 	public JButton getBtnIniciar() {
@@ -134,4 +283,8 @@ public class PainelControle extends JPanel {
 	public JButton getBtnEncerrarSimulacao() {
 		return btnEncerrarSimulacao;
 	}
+
+	public JButton getBtnCarregarPerfil() {
+		return btnCarregarPerfil;
+	}
 }
\ No newline at end of file
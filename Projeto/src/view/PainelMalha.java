@@ -6,17 +6,46 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.util.List;
+import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
 import model.Malha;
-import model.Veiculo;
+import model.QuadroSimulacao;
 
+/**
+ * Desenha a malha em duas camadas: o fundo estático (células, setas, bordas, entradas e saídas),
+ * renderizado uma vez numa BufferedImage, e por cima a camada dinâmica (veículos e mapa de calor).
+ * A cada quadro só as células cuja ocupação mudou são marcadas para redesenho.
+ */
 public class PainelMalha extends JPanel {
 
     private static final long serialVersionUID = 1L;
+
+    private static final Color COR_CRUZAMENTO = new Color(120, 120, 120);
+    private static final Color COR_ESTRADA = new Color(180, 180, 180);
+    private static final Color COR_VAZIA = new Color(80, 80, 80);
+    private static final Color COR_ENTRADA = new Color(0, 255, 0, 150);
+    private static final Color COR_SAIDA = new Color(255, 0, 0, 150);
+
+    // Paleta do mapa de calor: de amarelo translúcido (pouca disputa) a vermelho quase opaco.
+    // Calculada uma vez; a intensidade 0..255 de cada célula escolhe uma das cores.
+    private static final Color[] PALETA_CALOR = new Color[32];
+    static {
+        for (int i = 0; i < PALETA_CALOR.length; i++) {
+            float t = (i + 1) / (float) PALETA_CALOR.length;
+            PALETA_CALOR[i] = new Color(255, Math.round(230 * (1 - t)), 0, 60 + Math.round(150 * t));
+        }
+    }
+
     private Malha malha;
-    private List<Veiculo> veiculos;
+    // Trocado inteiro a cada quadro pela thread de renderização; o desenho só lê arrays imutáveis.
+    private volatile QuadroSimulacao quadro = QuadroSimulacao.VAZIO;
+    private boolean mostrarMapaDeCalor;
+    private byte[] mapaDeCalor;
+    // Fundo estático; refeito só quando a malha ou o tamanho do painel mudam.
+    private BufferedImage fundo;
+    private Font fonteId;
 
     public PainelMalha() {
         setBackground(Color.GRAY);
@@ -24,21 +53,87 @@ public class PainelMalha extends JPanel {
 
     public void setMalha(Malha malha) {
         this.malha = malha;
+        this.fundo = null;
         repaint();
     }
 
-    public void setVeiculos(List<Veiculo> veiculos) {
-        this.veiculos = veiculos;
+    /**
+     * Publica as posições a desenhar. Pode ser chamado de qualquer thread: só troca a referência e
+     * pede um repaint, que o Swing agrupa com os pedidos pendentes.
+     */
+    public void setQuadro(QuadroSimulacao quadro) {
+        QuadroSimulacao anterior = this.quadro;
+        QuadroSimulacao atual = quadro != null ? quadro : QuadroSimulacao.VAZIO;
+        this.quadro = atual;
+        marcarCelulasAlteradas(anterior, atual);
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    /**
+     * Pede o redesenho apenas das células que um veículo deixou ou ocupou. Se os veículos são os
+     * mesmos, na mesma ordem, compara posição a posição; senão marca todas as células dos dois
+     * quadros. O RepaintManager junta os pedidos num único repaint.
+     */
+    private void marcarCelulasAlteradas(QuadroSimulacao anterior, QuadroSimulacao atual) {
+        Malha malha = this.malha;
         if (malha == null)
             return;
+        int tamanhoCelula = Math.min(getWidth() / malha.getColunas(), getHeight() / malha.getLinhas());
+        if (tamanhoCelula < 5)
+            return; // veículos não são desenhados nesse tamanho
+        int offsetX = (getWidth() - tamanhoCelula * malha.getColunas()) / 2;
+        int offsetY = (getHeight() - tamanhoCelula * malha.getLinhas()) / 2;
 
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        boolean mesmosVeiculos = anterior.getQuantidade() == atual.getQuantidade();
+        for (int i = 0; mesmosVeiculos && i < atual.getQuantidade(); i++) {
+            mesmosVeiculos = anterior.getId(i) == atual.getId(i);
+        }
+        for (int i = 0; i < atual.getQuantidade(); i++) {
+            if (mesmosVeiculos && anterior.getCelula(i) == atual.getCelula(i))
+                continue;
+            repaintCelula(atual.getCelula(i), tamanhoCelula, offsetX, offsetY);
+            if (mesmosVeiculos) {
+                repaintCelula(anterior.getCelula(i), tamanhoCelula, offsetX, offsetY);
+            }
+        }
+        if (!mesmosVeiculos) {
+            for (int i = 0; i < anterior.getQuantidade(); i++) {
+                repaintCelula(anterior.getCelula(i), tamanhoCelula, offsetX, offsetY);
+            }
+        }
+    }
+
+    private void repaintCelula(int celula, int tamanhoCelula, int offsetX, int offsetY) {
+        int colunas = malha.getColunas();
+        repaint(offsetX + (celula % colunas) * tamanhoCelula, offsetY + (celula / colunas) * tamanhoCelula,
+                tamanhoCelula + 1, tamanhoCelula + 1);
+    }
+
+    public void setMostrarMapaDeCalor(boolean mostrar) {
+        this.mostrarMapaDeCalor = mostrar;
+        repaint();
+    }
+
+    public boolean isMostrarMapaDeCalor() {
+        return mostrarMapaDeCalor;
+    }
+
+    /**
+     * Recebe o retrato da disputa por célula (um byte 0..255 por célula, indexado pela célula).
+     * O painel só lê esse array ao desenhar; quem o produz entrega um array novo a cada retrato.
+     */
+    public void setMapaDeCalor(byte[] mapaDeCalor) {
+        this.mapaDeCalor = mapaDeCalor;
+        if (mostrarMapaDeCalor) {
+            repaint();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (malha == null) {
+            super.paintComponent(g);
+            return;
+        }
 
         int tamanhoCelula = Math.min(getWidth() / malha.getColunas(), getHeight() / malha.getLinhas());
         int totalGridWidth = tamanhoCelula * malha.getColunas();
@@ -46,21 +141,51 @@ public class PainelMalha extends JPanel {
         int offsetX = (getWidth() - totalGridWidth) / 2;
         int offsetY = (getHeight() - totalGridHeight) / 2;
 
-        desenharMalha(g2d, tamanhoCelula, offsetX, offsetY);
-        
-        // Apenas desenha pontos e veículos se as células forem minimamente visíveis
+        // O fundo cobre o painel inteiro, então dispensa o super.paintComponent; com o clip de um
+        // repaint parcial, só o retângulo sujo da imagem é copiado.
+        g.drawImage(getFundo(tamanhoCelula, offsetX, offsetY), 0, 0, null);
+
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (mostrarMapaDeCalor && mapaDeCalor != null) {
+            desenharMapaDeCalor(g2d, mapaDeCalor, Math.max(1, tamanhoCelula), offsetX, offsetY);
+        }
+
+        // Apenas desenha veículos se as células forem minimamente visíveis
         if (tamanhoCelula >= 5) {
-            desenharPontos(g2d, tamanhoCelula, offsetX, offsetY);
-            if (veiculos != null) {
-                desenharVeiculos(g2d, tamanhoCelula, offsetX, offsetY);
+            desenharVeiculos(g2d, quadro, tamanhoCelula, offsetX, offsetY);
+        }
+    }
+
+    /**
+     * Devolve a imagem do fundo estático, renderizando-a de novo só se o tamanho do painel mudou.
+     */
+    private BufferedImage getFundo(int tamanhoCelula, int offsetX, int offsetY) {
+        int largura = Math.max(1, getWidth());
+        int altura = Math.max(1, getHeight());
+        if (fundo != null && fundo.getWidth() == largura && fundo.getHeight() == altura)
+            return fundo;
+
+        fundo = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = fundo.createGraphics();
+        try {
+            g2d.setColor(getBackground());
+            g2d.fillRect(0, 0, largura, altura);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            desenharMalha(g2d, tamanhoCelula, offsetX, offsetY);
+            if (tamanhoCelula >= 5) {
+                desenharPontos(g2d, tamanhoCelula, offsetX, offsetY);
             }
+        } finally {
+            g2d.dispose();
         }
+        return fundo;
     }
 
     private void desenharMalha(Graphics2D g2d, int tamanhoCelula, int offsetX, int offsetY) {
         // Se as células forem muito pequenas, não desenha os detalhes para evitar poluição visual.
         if (tamanhoCelula < 5) {
-            g2d.setColor(new Color(80, 80, 80));
+            g2d.setColor(COR_VAZIA);
             g2d.fillRect(offsetX, offsetY, malha.getColunas() * tamanhoCelula, malha.getLinhas() * tamanhoCelula);
             return; // Pula o resto do desenho detalhado
         }
@@ -99,6 +224,32 @@ public class PainelMalha extends JPanel {
         }
     }
 
+    /**
+     * Pinta por cima da malha as células com alguma disputa. Percorre só o array de bytes, e só
+     * as linhas e colunas dentro do clip, sem consultar o gerenciador de sincronização.
+     */
+    private void desenharMapaDeCalor(Graphics2D g2d, byte[] intensidades, int tamanhoCelula, int offsetX, int offsetY) {
+        int colunas = malha.getColunas();
+        int linhas = Math.min(malha.getLinhas(), intensidades.length / colunas);
+        int linhaIni = 0, linhaFim = linhas, colunaIni = 0, colunaFim = colunas;
+        Rectangle clip = g2d.getClipBounds();
+        if (clip != null) {
+            linhaIni = Math.max(0, (clip.y - offsetY) / tamanhoCelula);
+            linhaFim = Math.min(linhas, (clip.y + clip.height - offsetY) / tamanhoCelula + 1);
+            colunaIni = Math.max(0, (clip.x - offsetX) / tamanhoCelula);
+            colunaFim = Math.min(colunas, (clip.x + clip.width - offsetX) / tamanhoCelula + 1);
+        }
+        for (int i = linhaIni; i < linhaFim; i++) {
+            for (int j = colunaIni; j < colunaFim; j++) {
+                int intensidade = intensidades[i * colunas + j] & 0xFF;
+                if (intensidade == 0)
+                    continue;
+                g2d.setColor(PALETA_CALOR[intensidade * PALETA_CALOR.length / 256]);
+                g2d.fillRect(offsetX + j * tamanhoCelula, offsetY + i * tamanhoCelula, tamanhoCelula, tamanhoCelula);
+            }
+        }
+    }
+
     private void desenharSetaCima(Graphics2D g2d, int x, int y, int s) {
         int centerX = x + s / 2;
         int margin = s / 3; 
@@ -147,50 +298,55 @@ public class PainelMalha extends JPanel {
     }
 
     private void desenharPontos(Graphics2D g2d, int tamanhoCelula, int offsetX, int offsetY) {
-        g2d.setColor(new Color(0, 255, 0, 150));
+        g2d.setColor(COR_ENTRADA);
         for (Point p : malha.getPontosDeEntrada()) {
             g2d.fillOval(offsetX + p.x * tamanhoCelula + tamanhoCelula / 4, offsetY + p.y * tamanhoCelula + tamanhoCelula / 4,
                     tamanhoCelula / 2, tamanhoCelula / 2);
         }
 
-        g2d.setColor(new Color(255, 0, 0, 150));
+        g2d.setColor(COR_SAIDA);
         for (Point p : malha.getPontosDeSaida()) {
             g2d.fillOval(offsetX + p.x * tamanhoCelula + tamanhoCelula / 4, offsetY + p.y * tamanhoCelula + tamanhoCelula / 4,
                     tamanhoCelula / 2, tamanhoCelula / 2);
         }
     }
 
-    private void desenharVeiculos(Graphics2D g2d, int tamanhoCelula, int offsetX, int offsetY) {
-        synchronized (veiculos) {
-            Font idFont = new Font("Arial", Font.BOLD, Math.max(8, tamanhoCelula / 3));
-            g2d.setFont(idFont);
-            FontMetrics fm = g2d.getFontMetrics();
+    private void desenharVeiculos(Graphics2D g2d, QuadroSimulacao quadro, int tamanhoCelula, int offsetX, int offsetY) {
+        int tamanhoFonte = Math.max(8, tamanhoCelula / 3);
+        if (fonteId == null || fonteId.getSize() != tamanhoFonte) {
+            fonteId = new Font("Arial", Font.BOLD, tamanhoFonte);
+        }
+        g2d.setFont(fonteId);
+        FontMetrics fm = g2d.getFontMetrics();
+        int colunas = malha.getColunas();
+        Rectangle clip = g2d.getClipBounds();
 
-            for (Veiculo v : veiculos) {
-                Point p = v.getPosicao();
-                int xBase = offsetX + p.x * tamanhoCelula;
-                int yBase = offsetY + p.y * tamanhoCelula;
+        for (int i = 0; i < quadro.getQuantidade(); i++) {
+            int celula = quadro.getCelula(i);
+            int xBase = offsetX + (celula % colunas) * tamanhoCelula;
+            int yBase = offsetY + (celula / colunas) * tamanhoCelula;
+            if (clip != null && !clip.intersects(xBase, yBase, tamanhoCelula, tamanhoCelula))
+                continue; // fora da área suja deste repaint
 
-                g2d.setColor(Color.BLUE);
-                g2d.fillRoundRect(xBase + 2, yBase + 2, tamanhoCelula - 4, tamanhoCelula - 4, 5, 5);
+            g2d.setColor(Color.BLUE);
+            g2d.fillRoundRect(xBase + 2, yBase + 2, tamanhoCelula - 4, tamanhoCelula - 4, 5, 5);
 
-                String idTexto = String.valueOf(v.getId());
-                int xTexto = xBase + (tamanhoCelula - fm.stringWidth(idTexto)) / 2;
-                int yTexto = yBase + (tamanhoCelula - fm.getHeight()) / 2 + fm.getAscent();
+            String idTexto = String.valueOf(quadro.getId(i));
+            int xTexto = xBase + (tamanhoCelula - fm.stringWidth(idTexto)) / 2;
+            int yTexto = yBase + (tamanhoCelula - fm.getHeight()) / 2 + fm.getAscent();
 
-                g2d.setColor(Color.WHITE);
-                g2d.drawString(idTexto, xTexto, yTexto);
-            }
+            g2d.setColor(Color.WHITE);
+            g2d.drawString(idTexto, xTexto, yTexto);
         }
     }
 
     private Color getColorForSegmento(int tipoSegmento) {
         if (tipoSegmento >= 5 && tipoSegmento <= 12) {
-            return new Color(120, 120, 120); // Cruzamentos
+            return COR_CRUZAMENTO;
         }
         if (tipoSegmento >= 1 && tipoSegmento <= 4) {
-            return new Color(180, 180, 180); // Estradas
+            return COR_ESTRADA;
         }
-        return new Color(80, 80, 80); // Células vazias (Nada)
+        return COR_VAZIA; // Células vazias (Nada)
     }
 }
\ No newline at end of file
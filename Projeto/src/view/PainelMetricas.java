@@ -0,0 +1,120 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.border.TitledBorder;
+
+import model.metricas.InstantaneoMetricas;
+
+/**
+ * Mostra as métricas da simulação em andamento. É atualizado periodicamente pelo controlador
+ * com um InstantaneoMetricas; as taxas por segundo são calculadas contra o retrato anterior.
+ */
+public class PainelMetricas extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+	private final JLabel lblAtivos = new JLabel("-");
+	private final JLabel lblEntradas = new JLabel("-");
+	private final JLabel lblSaidas = new JLabel("-");
+	private final JLabel lblPassos = new JLabel("-");
+	private final JLabel lblLatencia = new JLabel("-");
+	private final JLabel lblEspera = new JLabel("-");
+	private final JLabel lblReservas = new JLabel("-");
+	private final JLabel lblDisputadas = new JLabel("-");
+	private InstantaneoMetricas anterior;
+	private int linha = 0;
+
+	public PainelMetricas() {
+		setLayout(new GridBagLayout());
+		setPreferredSize(new Dimension(320, 300));
+
+		setBorder(
+				BorderFactory.createCompoundBorder(
+						BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Métricas",
+								TitledBorder.CENTER, TitledBorder.TOP),
+						BorderFactory.createEmptyBorder(5, 10, 5, 10)));
+
+		adicionarLinha("Veículos ativos:", lblAtivos);
+		adicionarLinha("Entradas/s:", lblEntradas);
+		adicionarLinha("Saídas/s:", lblSaidas);
+		adicionarLinha("Passos/s:", lblPassos);
+		adicionarLinha("Viagem p50/p99:", lblLatencia);
+		adicionarLinha("Espera p50/p99:", lblEspera);
+		adicionarLinha("Reservas falhas:", lblReservas);
+
+		// Ranking das células mais disputadas, ocupando as duas colunas
+		GridBagConstraints gbc = new GridBagConstraints();
+		gbc.gridx = 0;
+		gbc.gridy = linha++;
+		gbc.gridwidth = 2;
+		gbc.insets = new Insets(8, 2, 2, 2);
+		gbc.anchor = GridBagConstraints.WEST;
+		add(new JLabel("Células mais disputadas:"), gbc);
+
+		gbc.gridy = linha++;
+		gbc.insets = new Insets(2, 2, 2, 2);
+		gbc.weighty = 1.0;
+		gbc.fill = GridBagConstraints.BOTH;
+		gbc.anchor = GridBagConstraints.NORTHWEST;
+		lblDisputadas.setVerticalAlignment(JLabel.TOP);
+		lblDisputadas.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+		add(lblDisputadas, gbc);
+	}
+
+	private void adicionarLinha(String rotulo, JLabel valor) {
+		GridBagConstraints gbc = new GridBagConstraints();
+		gbc.insets = new Insets(2, 2, 2, 2);
+		gbc.gridx = 0;
+		gbc.gridy = linha;
+		gbc.anchor = GridBagConstraints.WEST;
+		add(new JLabel(rotulo), gbc);
+
+		gbc.gridx = 1;
+		gbc.weightx = 1.0;
+		gbc.anchor = GridBagConstraints.EAST;
+		add(valor, gbc);
+		linha++;
+	}
+
+	/**
+	 * Deve ser chamado na thread do Swing (EDT).
+	 */
+	public void atualizar(InstantaneoMetricas atual) {
+		lblAtivos.setText(atual.getAtivos() + " (pico " + atual.getPicoAtivos() + ")");
+		lblEntradas.setText(String.format("%.2f", atual.getEntradasPorSegundo(anterior)));
+		lblSaidas.setText(String.format("%.2f", atual.getSaidasPorSegundo(anterior)));
+		lblPassos.setText(String.format("%.1f", atual.getPassosPorSegundo(anterior)));
+		lblLatencia.setText(String.format("%.0f / %.0f ms", atual.getLatenciaP50Ms(), atual.getLatenciaP99Ms()));
+		lblEspera.setText(String.format("%.1f / %.1f ms", atual.getEsperaP50Ms(), atual.getEsperaP99Ms()));
+		lblReservas.setText(atual.getFalhasCaminho() + " de " + atual.getTentativasCaminho());
+
+		StringBuilder sb = new StringBuilder("<html>");
+		int n = atual.getQuantidadeCelulasDisputadas();
+		if (n == 0) {
+			sb.append("nenhuma");
+		}
+		for (int i = 0; i < n; i++) {
+			sb.append(String.format("%s: %d<br>", atual.getDescricaoCelulaDisputada(i), atual.getDisputas(i)));
+		}
+		lblDisputadas.setText(sb.append("</html>").toString());
+		anterior = atual;
+	}
+
+	/**
+	 * Volta ao estado inicial, antes de uma nova simulação.
+	 */
+	public void limpar() {
+		anterior = null;
+		for (JLabel lbl : new JLabel[] { lblAtivos, lblEntradas, lblSaidas, lblPassos, lblLatencia, lblEspera,
+				lblReservas, lblDisputadas }) {
+			lbl.setText("-");
+		}
+	}
+}
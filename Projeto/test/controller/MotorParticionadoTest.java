@@ -0,0 +1,52 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.Malha;
+import model.metricas.ColetorMetricas;
+import util.GeradorMalha;
+import util.LeitorMalha;
+
+class MotorParticionadoTest {
+
+    private static final long DURACAO_MS = 60_000;
+
+    @Test
+    void resultadoNaoDependeDoNumeroDeParticoesNaMalhaDeExemplo() {
+        Malha malha = LeitorMalha.lerArquivo("Malhas/malha-exemplo-3.txt");
+        compararComSequencial(malha, 200, 100, 42);
+    }
+
+    @Test
+    void resultadoNaoDependeDoNumeroDeParticoesComCruzamentosNaFronteira() {
+        // Quarteirões pequenos: várias ruas e cruzamentos caem nas fronteiras das faixas.
+        Malha malha = new GeradorMalha(60, 60, 4, 0.5, 0.3, 7).criarMalha();
+        compararComSequencial(malha, 400, 20, 11);
+    }
+
+    private static void compararComSequencial(Malha malha, int veiculos, long intervaloMs, long semente) {
+        MotorEventosDiscretos sequencial = new MotorEventosDiscretos(malha, veiculos, intervaloMs, semente);
+        sequencial.executar(DURACAO_MS);
+        String esperado = resumo(sequencial.getMetricas());
+        assertTrue(sequencial.getMetricas().getVeiculosSaidos() > 0);
+
+        for (int particoes : new int[] { 1, 2, 3, 4, 7 }) {
+            MotorParticionado motor = new MotorParticionado(malha, veiculos, intervaloMs, semente, particoes);
+            motor.executar(DURACAO_MS);
+            assertEquals(esperado, resumo(motor.getMetricas()), "com " + particoes + " partições");
+            if (particoes > 1) {
+                assertTrue(motor.getTransferencias() > 0, "nenhum passo atravessou a fronteira");
+            }
+        }
+    }
+
+    private static String resumo(ColetorMetricas metricas) {
+        return "inseridos=" + metricas.getVeiculosInseridos() + " saídos=" + metricas.getVeiculosSaidos()
+                + " interrompidos=" + metricas.getVeiculosInterrompidos() + " ativos=" + metricas.getVeiculosAtivos()
+                + " pico=" + metricas.getPicoVeiculosAtivos() + " passos=" + metricas.getPassos()
+                + " latência média=" + metricas.getLatenciaMediaMs() + " máxima=" + metricas.getLatenciaMaximaMs();
+    }
+}
@@ -0,0 +1,65 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import model.Malha;
+import model.Veiculo;
+import model.sincronizacao.GerenciadorSemaforo;
+import util.LeitorMalha;
+
+class SimulacaoTest {
+
+    private static final long PRAZO_MS = 10_000;
+
+    @Test
+    void entradaVoltaAFicarLivreQuandoOVeiculoEInterrompidoAntesDeEntrar() throws Exception {
+        Malha malha = LeitorMalha.lerArquivo("Malhas/malha-exemplo-1.txt");
+        int[] entradas = malha.getCelulasDeEntrada();
+        GerenciadorSemaforo semaforos = new GerenciadorSemaforo(malha);
+        // Entradas ocupadas por fora da simulação: os veículos inseridos ficam presos no adquirir.
+        for (int celula : entradas) {
+            semaforos.adquirir(celula, -1);
+        }
+
+        Simulacao simulacao = new Simulacao(malha, semaforos, () -> entradas.length, () -> 10);
+        simulacao.setSemente(42L);
+        simulacao.setVigiaBloqueios(0, PoliticaBloqueio.REPORTAR);
+        simulacao.iniciar();
+        try {
+            aguardar(() -> simulacao.getQuantidadeVeiculos() == entradas.length);
+            List<Veiculo> primeiros = simulacao.getVeiculos();
+            primeiros.forEach(Veiculo::interromper);
+            for (Veiculo veiculo : primeiros) {
+                veiculo.aguardar(PRAZO_MS);
+            }
+
+            // As entradas reivindicadas pelos interrompidos recebem novos veículos.
+            aguardar(() -> simulacao.getGeradorChegadas().getInseridos() == 2L * entradas.length
+                    && simulacao.getQuantidadeVeiculos() == entradas.length);
+            Set<Integer> celulas = new HashSet<>();
+            for (Veiculo veiculo : simulacao.getVeiculos()) {
+                celulas.add(veiculo.getCelula());
+            }
+            assertEquals(entradas.length, celulas.size());
+            assertEquals(entradas.length, simulacao.getMetricas().getVeiculosInterrompidos());
+        } finally {
+            simulacao.encerrarEAguardar(PRAZO_MS);
+        }
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.currentTimeMillis() + PRAZO_MS;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "condição não atingida em " + PRAZO_MS + " ms");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import model.Malha;
+import model.TabelaRotas;
+import model.metricas.ColetorMetricas;
+import model.sincronizacao.GerenciadorAdmissaoCruzamento;
+import model.sincronizacao.GerenciadorEsperaCruzamento;
+import model.sincronizacao.GerenciadorInstrumentado;
+import model.sincronizacao.GerenciadorSemaforo;
+import model.sincronizacao.ModoReserva;
+import util.LeitorMalha;
+
+/**
+ * Monta, na malha de deadlock, o anel de vias entre os dois cruzamentos com um veículo em cada
+ * uma das quatro células que fecham o ciclo, e confere que o vigia o encontra e o desfaz.
+ *
+ * Dois veículos esperam pela via seguinte do anel (adquirir) e dois esperam atravessar um
+ * cruzamento cuja via de saída está com o próximo: com ORDENADA, bloqueados em adquirirCaminho;
+ * com TENTATIVA e AGLOMERADO, repetindo tentarAdquirirCaminho como o Veiculo faz.
+ */
+class VigiaBloqueiosTest {
+
+    private static final long ESPERA_MS = 5000;
+
+    private final Malha malha = LeitorMalha.lerArquivo("Malhas/malha-exemplo-2 - deadlock.txt");
+    private final TabelaRotas rotas = malha.getRotas();
+
+    @ParameterizedTest
+    @EnumSource(ModoReserva.class)
+    void detectaEDesfazOCicloNoAnelEntreOsCruzamentos(ModoReserva modo) throws Exception {
+        GerenciadorAdmissaoCruzamento admissao = new GerenciadorAdmissaoCruzamento(new GerenciadorSemaforo(malha), malha);
+        admissao.setAtivo(modo == ModoReserva.AGLOMERADO);
+        GerenciadorInstrumentado gerenciador = new GerenciadorInstrumentado(
+                new GerenciadorEsperaCruzamento(admissao, malha), malha);
+        gerenciador.setAtivo(true);
+        List<Integer> interrompidos = new ArrayList<>();
+        List<Thread> veiculos = new ArrayList<>();
+        VigiaBloqueios vigia = new VigiaBloqueios(gerenciador, new ColetorMetricas(), malha, id -> {
+            interrompidos.add(id);
+            veiculos.get(id).interrupt();
+        }, 10, VigiaBloqueios.LIMIAR_SEM_PROGRESSO_PADRAO_MS, PoliticaBloqueio.INTERROMPER);
+
+        // O anel: a via da linha 3 vai para a direita, entra no cruzamento da direita e sai na
+        // linha 2, que vai para a esquerda até o cruzamento da esquerda e sai de novo na linha 3.
+        int a = malha.getCelula(3, 5);
+        int d = malha.getCelula(2, 5);
+        int b = malha.getCelula(2, 4);
+        int c = malha.getCelula(3, 4);
+        int rotaA = rota(malha.getCelula(3, 6), d);
+        int rotaB = rota(malha.getCelula(2, 3), c);
+
+        CountDownLatch posicionados = new CountDownLatch(4);
+        veiculos.add(veiculo(() -> atravessar(gerenciador, modo, a, rotaA, 0, posicionados)));
+        veiculos.add(veiculo(() -> atravessar(gerenciador, modo, b, rotaB, 1, posicionados)));
+        veiculos.add(veiculo(() -> andar(gerenciador, c, a, 2, posicionados)));
+        veiculos.add(veiculo(() -> andar(gerenciador, d, b, 3, posicionados)));
+        veiculos.forEach(Thread::start);
+        try {
+            assertTrue(posicionados.await(ESPERA_MS, TimeUnit.MILLISECONDS));
+
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_MS);
+            while (vigia.getSituacao().getDeadlocks() == 0 && System.nanoTime() < limite) {
+                Thread.sleep(10);
+                vigia.verificar();
+            }
+            VigiaBloqueios.Situacao situacao = vigia.getSituacao();
+            assertEquals(VigiaBloqueios.Estado.DEADLOCK, situacao.getEstado());
+            assertEquals(1, situacao.getDeadlocks());
+            assertEquals(4, situacao.getCiclos().get(0).getQuantidade());
+            assertEquals(List.of(3), interrompidos);
+
+            // Sem o veículo 3, o 0 atravessa, o 2 anda para a via que ele deixou, e assim por diante.
+            for (Thread veiculo : veiculos) {
+                veiculo.join(ESPERA_MS);
+                assertFalse(veiculo.isAlive(), veiculo.getName() + " continua parado");
+            }
+            vigia.verificar();
+            vigia.verificar();
+            assertEquals(VigiaBloqueios.Estado.NORMAL, vigia.getSituacao().getEstado());
+            assertEquals(1, vigia.getSituacao().getDeadlocks());
+        } finally {
+            veiculos.forEach(Thread::interrupt);
+        }
+    }
+
+    /** Ocupa {@code origem} e espera pela via {@code destino}, que é a próxima do anel. */
+    private static void andar(GerenciadorInstrumentado gerenciador, int origem, int destino, int id,
+            CountDownLatch posicionados) throws InterruptedException {
+        gerenciador.adquirir(origem, id);
+        posicionados.countDown();
+        try {
+            posicionados.await();
+            gerenciador.adquirir(destino, id);
+            gerenciador.liberar(destino, id);
+        } finally {
+            gerenciador.liberar(origem, id);
+        }
+    }
+
+    /** Ocupa {@code origem} e atravessa o cruzamento pela {@code rota}, como o Veiculo no modo dado. */
+    private void atravessar(GerenciadorInstrumentado gerenciador, ModoReserva modo, int origem, int rota, int id,
+            CountDownLatch posicionados) throws InterruptedException {
+        int[] celulas = rotas.getCelulas();
+        int de = rotas.getInicio(rota);
+        int ate = rotas.getFim(rota);
+        gerenciador.adquirir(origem, id);
+        posicionados.countDown();
+        try {
+            posicionados.await();
+            if (modo == ModoReserva.ORDENADA) {
+                gerenciador.adquirirCaminho(celulas, de, ate, id);
+            } else {
+                while (!gerenciador.tentarAdquirirCaminho(celulas, de, ate, id)) {
+                    Thread.sleep(5);
+                }
+            }
+            gerenciador.liberarCaminho(celulas, de, ate, id);
+        } finally {
+            gerenciador.liberar(origem, id);
+        }
+    }
+
+    private static Thread veiculo(Passos passos) {
+        return new Thread(() -> {
+            try {
+                passos.executar();
+            } catch (InterruptedException e) {
+                // Interrompido pelo vigia: já liberou a célula que tinha.
+            }
+        });
+    }
+
+    /** A rota que entra no cruzamento por {@code entrada} e sai em {@code saida}. */
+    private int rota(int entrada, int saida) {
+        for (int i = 0; i < rotas.getQuantidadeRotas(entrada); i++) {
+            int rota = rotas.getRota(entrada, i);
+            if (rotas.getCelulas()[rotas.getFim(rota) - 1] == saida)
+                return rota;
+        }
+        throw new AssertionError("nenhuma rota de " + entrada + " sai em " + saida);
+    }
+
+    private interface Passos {
+        void executar() throws InterruptedException;
+    }
+}
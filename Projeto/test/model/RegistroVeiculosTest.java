@@ -0,0 +1,151 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import util.GeradorMalha;
+
+class RegistroVeiculosTest {
+
+    private static final int THREADS = 8;
+    private static final int VEICULOS_POR_THREAD = 200;
+    private static final int RODADAS = 200;
+
+    private final Malha malha = new GeradorMalha(10, 10, 4, 0.5, 0.0, 1).criarMalha();
+
+    @Test
+    void reaproveitaIndiceDevolvido() {
+        RegistroVeiculos registro = new RegistroVeiculos();
+        Veiculo[] veiculos = criar(3);
+        for (Veiculo veiculo : veiculos) {
+            registro.registrar(veiculo);
+        }
+        int indice = veiculos[1].getIndiceRegistro();
+        registro.remover(veiculos[1]);
+        registro.remover(veiculos[1]);
+        assertNull(registro.get(indice));
+        assertEquals(2, registro.getQuantidade());
+
+        Veiculo novo = criar(1)[0];
+        registro.registrar(novo);
+        assertEquals(indice, novo.getIndiceRegistro());
+        assertSame(novo, registro.get(indice));
+        assertEquals(3, registro.getLimite());
+    }
+
+    @Test
+    void registroERemocaoConcorrentesReaproveitamIndices() throws Exception {
+        RegistroVeiculos registro = new RegistroVeiculos();
+        Veiculo[][] porThread = new Veiculo[THREADS][];
+        for (int t = 0; t < THREADS; t++) {
+            porThread[t] = criar(VEICULOS_POR_THREAD);
+        }
+        AtomicReference<Throwable> erro = new AtomicReference<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (Veiculo[] veiculos : porThread) {
+            threads.add(new Thread(() -> {
+                try {
+                    largada.await();
+                    for (int rodada = 0; rodada < RODADAS; rodada++) {
+                        for (Veiculo veiculo : veiculos) {
+                            registro.registrar(veiculo);
+                        }
+                        // Enquanto registrado, o índice é só deste veículo.
+                        for (Veiculo veiculo : veiculos) {
+                            assertSame(veiculo, registro.get(veiculo.getIndiceRegistro()));
+                        }
+                        for (Veiculo veiculo : veiculos) {
+                            registro.remover(veiculo);
+                        }
+                    }
+                } catch (Throwable e) {
+                    erro.compareAndSet(null, e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        largada.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (erro.get() != null)
+            throw new AssertionError(erro.get());
+
+        assertEquals(0, registro.getQuantidade());
+        // Sem reaproveitamento o limite seria THREADS * VEICULOS_POR_THREAD * RODADAS.
+        assertTrue(registro.getLimite() <= THREADS * VEICULOS_POR_THREAD, "limite " + registro.getLimite());
+        for (int i = 0; i < registro.getLimite(); i++) {
+            assertNull(registro.get(i));
+        }
+    }
+
+    @Test
+    void paraCadaVisitaCadaVeiculoAtivoUmaVez() throws Exception {
+        RegistroVeiculos registro = new RegistroVeiculos();
+        Veiculo[] fixos = criar(3 * RegistroVeiculos.TAMANHO_SEGMENTO / 2);
+        for (Veiculo veiculo : fixos) {
+            registro.registrar(veiculo);
+        }
+        // Outros veículos entram e saem durante as voltas; os fixos continuam registrados.
+        Veiculo[][] porThread = new Veiculo[THREADS][];
+        for (int t = 0; t < THREADS; t++) {
+            porThread[t] = criar(VEICULOS_POR_THREAD);
+        }
+        AtomicBoolean parar = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (Veiculo[] veiculos : porThread) {
+            threads.add(new Thread(() -> {
+                while (!parar.get()) {
+                    for (Veiculo veiculo : veiculos) {
+                        registro.registrar(veiculo);
+                    }
+                    for (Veiculo veiculo : veiculos) {
+                        registro.remover(veiculo);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        try {
+            for (int volta = 0; volta < 100; volta++) {
+                Map<Veiculo, Integer> visitas = new IdentityHashMap<>();
+                registro.paraCada(veiculo -> visitas.merge(veiculo, 1, Integer::sum));
+                // Os que entram e saem durante a volta podem ou não ser visitados (ver paraCada).
+                for (Veiculo veiculo : fixos) {
+                    assertEquals(1, visitas.getOrDefault(veiculo, 0));
+                }
+            }
+        } finally {
+            parar.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        Map<Veiculo, Integer> visitas = new IdentityHashMap<>();
+        registro.paraCada(veiculo -> visitas.merge(veiculo, 1, Integer::sum));
+        assertEquals(fixos.length, visitas.size());
+        assertEquals(fixos.length, registro.listar().size());
+    }
+
+    private Veiculo[] criar(int quantidade) {
+        Veiculo[] veiculos = new Veiculo[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            veiculos[i] = new Veiculo(malha.getCelulasDeEntrada()[0], malha, null, null);
+        }
+        return veiculos;
+    }
+}
@@ -0,0 +1,157 @@
+package model.rastro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RastroTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void leOQueFoiGravado() throws Exception {
+        Path arquivo = pasta.resolve("rastro.bin");
+        AtomicLong relogio = new AtomicLong(1_000);
+        // Mais registros do que cabem num buffer, para passar pela troca entre os dois.
+        int n = GravadorRastro.TAMANHO_BUFFER / FormatoRastro.TAMANHO_REGISTRO * 2 + 7;
+        GravadorRastro gravador = GravadorRastro.abrir(arquivo, 6, 10, () -> relogio.addAndGet(10));
+        gravador.registrar(0, FormatoRastro.FORA, 3, 0);
+        for (int i = 1; i < n - 1; i++) {
+            gravador.registrar(i % 50, i, i + 1, i * 1_000L);
+        }
+        gravador.registrar(7, 59, FormatoRastro.INTERROMPIDO, 2_500_999);
+        gravador.fechar();
+
+        assertEquals(n, gravador.getRegistros());
+        assertEquals(0, gravador.getDescartados());
+        assertEquals(FormatoRastro.TAMANHO_CABECALHO + (long) n * FormatoRastro.TAMANHO_REGISTRO,
+                Files.size(arquivo));
+        assertEquals(Files.size(arquivo), gravador.getBytesEscritos());
+
+        try (LeitorRastro leitor = LeitorRastro.abrir(arquivo)) {
+            assertEquals(6, leitor.getLinhas());
+            assertEquals(10, leitor.getColunas());
+            assertEquals(n, leitor.getQuantidade());
+
+            assertTrue(leitor.proximo());
+            assertEquals(0, leitor.getIndice());
+            assertEquals(10, leitor.getInstanteNanos());
+            assertEquals(0, leitor.getVeiculo());
+            assertEquals(FormatoRastro.FORA, leitor.getDe());
+            assertEquals(3, leitor.getPara());
+            for (int i = 1; i < n - 1; i++) {
+                assertTrue(leitor.proximo());
+                assertEquals(i * 10L + 10, leitor.getInstanteNanos());
+                assertEquals(i % 50, leitor.getVeiculo());
+                assertEquals(i, leitor.getDe());
+                assertEquals(i + 1, leitor.getPara());
+                assertEquals(i * 1_000L, leitor.getEsperaNanos());
+            }
+            assertTrue(leitor.proximo());
+            assertEquals(FormatoRastro.INTERROMPIDO, leitor.getPara());
+            // A espera é gravada em µs.
+            assertEquals(2_500_000, leitor.getEsperaNanos());
+            assertFalse(leitor.proximo());
+        }
+    }
+
+    @Test
+    void veiculosConcorrentesNaoPerdemNemEmbaralhamRegistros() throws Exception {
+        Path arquivo = pasta.resolve("concorrente.bin");
+        int threads = 8;
+        int porVeiculo = 20_000;
+        GravadorRastro gravador = GravadorRastro.abrir(arquivo, 6, 10);
+        List<Thread> veiculos = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            veiculos.add(new Thread(() -> {
+                for (int i = 0; i < porVeiculo; i++) {
+                    gravador.registrar(id, i, i + 1, 0);
+                }
+            }));
+        }
+        veiculos.forEach(Thread::start);
+        for (Thread veiculo : veiculos) {
+            veiculo.join();
+        }
+        gravador.fechar();
+
+        int[] proximo = new int[threads];
+        long instanteAnterior = -1;
+        try (LeitorRastro leitor = LeitorRastro.abrir(arquivo)) {
+            assertEquals((long) threads * porVeiculo, leitor.getQuantidade());
+            while (leitor.proximo()) {
+                int v = leitor.getVeiculo();
+                // Os passos de cada veículo aparecem na ordem em que ele os deu, e os instantes
+                // nunca voltam no arquivo.
+                assertEquals(proximo[v]++, leitor.getDe());
+                assertTrue(leitor.getInstanteNanos() >= instanteAnterior, "registro " + leitor.getIndice());
+                instanteAnterior = leitor.getInstanteNanos();
+            }
+        }
+        for (int v = 0; v < threads; v++) {
+            assertEquals(porVeiculo, proximo[v]);
+        }
+    }
+
+    @Test
+    void ignoraORegistroIncompletoNoFim() throws Exception {
+        Path arquivo = pasta.resolve("truncado.bin");
+        GravadorRastro gravador = GravadorRastro.abrir(arquivo, 6, 10);
+        for (int i = 0; i < 10; i++) {
+            gravador.registrar(i, i, i + 1, 0);
+        }
+        gravador.fechar();
+        // Uma gravação interrompida no meio do último registro.
+        truncar(arquivo, Files.size(arquivo) - FormatoRastro.TAMANHO_REGISTRO / 2);
+
+        try (LeitorRastro leitor = LeitorRastro.abrir(arquivo)) {
+            assertEquals(9, leitor.getQuantidade());
+            for (int i = 0; i < 9; i++) {
+                assertTrue(leitor.proximo());
+                assertEquals(i, leitor.getVeiculo());
+                assertEquals(i + 1, leitor.getPara());
+            }
+            assertFalse(leitor.proximo());
+        }
+
+        // Só o cabeçalho: um rastro vazio.
+        truncar(arquivo, FormatoRastro.TAMANHO_CABECALHO + 5);
+        try (LeitorRastro leitor = LeitorRastro.abrir(arquivo)) {
+            assertEquals(0, leitor.getQuantidade());
+            assertFalse(leitor.proximo());
+        }
+    }
+
+    @Test
+    void recusaCabecalhoIncompletoOuDeOutroFormato() throws Exception {
+        Path arquivo = pasta.resolve("cabecalho.bin");
+        GravadorRastro.abrir(arquivo, 6, 10).fechar();
+        truncar(arquivo, FormatoRastro.TAMANHO_CABECALHO - 1);
+        assertThrows(IOException.class, () -> LeitorRastro.abrir(arquivo));
+
+        Path outro = pasta.resolve("outro.bin");
+        Files.write(outro, new byte[FormatoRastro.TAMANHO_CABECALHO + FormatoRastro.TAMANHO_REGISTRO]);
+        assertThrows(IOException.class, () -> LeitorRastro.abrir(outro));
+    }
+
+    private static void truncar(Path arquivo, long tamanho) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanho);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package model.sincronizacao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.Malha;
+import model.TabelaRotas;
+import util.LeitorMalha;
+
+class GerenciadorAdmissaoCruzamentoTest {
+
+    private final Malha malha = LeitorMalha.lerArquivo("Malhas/malha-exemplo-1.txt");
+    private final GerenciadorSemaforo semaforos = new GerenciadorSemaforo(malha);
+    private final GerenciadorAdmissaoCruzamento admissao = new GerenciadorAdmissaoCruzamento(semaforos, malha);
+    private final TabelaRotas rotas = malha.getRotas();
+    private final int[] celulas = rotas.getCelulas();
+
+    GerenciadorAdmissaoCruzamentoTest() {
+        admissao.setAtivo(true);
+    }
+
+    @Test
+    void reservaELiberaOCaminhoInteiro() {
+        int rota = rotaComCruzamentos(2);
+        int de = rotas.getInicio(rota);
+        int ate = rotas.getFim(rota);
+
+        assertTrue(admissao.tentarAdquirirCaminho(celulas, de, ate, 1));
+        for (int k = de; k < ate; k++) {
+            assertTrue(admissao.isOcupado(celulas[k]));
+        }
+        // Qualquer rota que passe por uma célula já reservada é recusada sem mudar nada.
+        int conflitante = rotaQueCompartilha(rota);
+        assertFalse(admissao.tentarAdquirirCaminho(celulas, rotas.getInicio(conflitante), rotas.getFim(conflitante), 2));
+        for (int k = rotas.getInicio(conflitante); k < rotas.getFim(conflitante); k++) {
+            assertEquals(contem(rota, celulas[k]), admissao.isOcupado(celulas[k]));
+        }
+
+        admissao.liberarCaminho(celulas, de, ate, 1);
+        for (int k = de; k < ate; k++) {
+            assertFalse(admissao.isOcupado(celulas[k]));
+        }
+        assertTrue(admissao.tentarAdquirirCaminho(celulas, rotas.getInicio(conflitante), rotas.getFim(conflitante), 2));
+    }
+
+    @Test
+    void desfazAMascaraQuandoAViaDeSaidaEstaOcupada() throws InterruptedException {
+        int rota = rotaComCruzamentos(1);
+        int de = rotas.getInicio(rota);
+        int ate = rotas.getFim(rota);
+        int saida = celulas[ate - 1];
+        assertTrue(malha.getTipo(saida) < 5);
+        semaforos.adquirir(saida, 9);
+
+        ContadoresReserva contadores = admissao.getContadoresReserva();
+        assertFalse(admissao.tentarAdquirirCaminho(celulas, de, ate, 1));
+        for (int k = de; k < ate - 1; k++) {
+            assertFalse(admissao.isOcupado(celulas[k]), "bit do cruzamento ficou ligado");
+        }
+        assertEquals(1, contadores.getRollbacks());
+        assertEquals(ate - de - 1, contadores.getCelulasDesfeitas());
+
+        semaforos.liberar(saida, 9);
+        assertTrue(admissao.tentarAdquirirCaminho(celulas, de, ate, 1));
+    }
+
+    @Test
+    void adquirirEsperaACelulaSerLiberada() throws Exception {
+        int celula = celulas[rotas.getInicio(rotaComCruzamentos(1))];
+        assertTrue(admissao.tentarAdquirir(celula, 1));
+        Thread espera = new Thread(() -> {
+            try {
+                admissao.adquirir(celula, 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        espera.start();
+        espera.join(50);
+        assertTrue(espera.isAlive(), "adquirir não esperou a célula ocupada");
+
+        admissao.liberar(celula, 1);
+        espera.join(2000);
+        assertFalse(espera.isAlive());
+        assertTrue(admissao.isOcupado(celula));
+        assertFalse(admissao.tentarAdquirir(celula, 3));
+    }
+
+    /** Uma rota com ao menos {@code minimo} células de cruzamento. */
+    private int rotaComCruzamentos(int minimo) {
+        for (int rota = 0; rota < rotas.getTotalRotas(); rota++) {
+            int n = 0;
+            for (int k = rotas.getInicio(rota); k < rotas.getFim(rota); k++) {
+                if (malha.getTipo(celulas[k]) >= 5)
+                    n++;
+            }
+            if (n >= minimo)
+                return rota;
+        }
+        throw new AssertionError("malha sem rota com " + minimo + " células de cruzamento");
+    }
+
+    private int rotaQueCompartilha(int rota) {
+        for (int outra = 0; outra < rotas.getTotalRotas(); outra++) {
+            if (outra == rota)
+                continue;
+            for (int k = rotas.getInicio(outra); k < rotas.getFim(outra); k++) {
+                if (malha.getTipo(celulas[k]) >= 5 && contem(rota, celulas[k]))
+                    return outra;
+            }
+        }
+        throw new AssertionError("nenhuma rota compartilha células com " + rota);
+    }
+
+    private boolean contem(int rota, int celula) {
+        for (int k = rotas.getInicio(rota); k < rotas.getFim(rota); k++) {
+            if (celulas[k] == celula)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package model.sincronizacao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import model.Malha;
+import util.LeitorMalha;
+
+class GerenciadorEsperaCruzamentoTest {
+
+    private final Malha malha = LeitorMalha.lerArquivo("Malhas/malha-exemplo-1.txt");
+    private final GerenciadorEsperaCruzamento espera = new GerenciadorEsperaCruzamento(new GerenciadorSemaforo(malha),
+            malha);
+    private final int celula = malha.getCruzamentos().getCelula(0);
+
+    @Test
+    void desligadoSoRepassaAsLiberacoes() throws InterruptedException {
+        espera.adquirir(celula, 1);
+        espera.liberar(celula, 1);
+        assertEquals(0, espera.getVersaoCruzamento(celula));
+    }
+
+    @Test
+    void ligadoAcordaQuemEsperaOCruzamento() throws Exception {
+        espera.setAtivo(true);
+        espera.adquirir(celula, 1);
+        long versao = espera.getVersaoCruzamento(celula);
+        Thread liberador = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            espera.liberar(celula, 1);
+        });
+        liberador.start();
+
+        long inicio = System.nanoTime();
+        espera.aguardarCruzamento(celula, versao, 10_000);
+        long esperouMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        liberador.join();
+        assertNotEquals(versao, espera.getVersaoCruzamento(celula));
+        assertTrue(esperouMs < 5_000, "esperou " + esperouMs + " ms pelo limite em vez do aviso");
+    }
+}